@@ -0,0 +1,94 @@
+package com.iobaf.common.cache;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按自然日分桶的计数器
+ * 每个日期一个 LongAdder，高并发累加时各线程写入不同的计数单元，互不争用；
+ * 只保留最近 retentionDays 天的分桶，查询代价与查询天数成正比
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public class DailyCounter {
+
+    private final int retentionDays;
+
+    private final ConcurrentMap<LocalDate, LongAdder> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param retentionDays 保留天数
+     */
+    public DailyCounter(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * 指定日期计数加一，超出保留期的日期忽略
+     *
+     * @param day 日期，为null时忽略
+     */
+    public void increment(LocalDate day) {
+        add(day, 1);
+    }
+
+    /**
+     * 指定日期计数增加
+     *
+     * @param day 日期，为null时忽略
+     * @param count 增加数
+     */
+    public void add(LocalDate day, long count) {
+        if (day == null || day.isBefore(LocalDate.now().minusDays(retentionDays))) {
+            return;
+        }
+        LongAdder bucket = buckets.get(day);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(day, d -> new LongAdder());
+        }
+        bucket.add(count);
+    }
+
+    /**
+     * 查询最近若干天的计数，不含计数的日期返回0
+     *
+     * @param days 天数（含今天），不超过保留天数
+     * @return 日期到计数的映射，按日期升序
+     */
+    public Map<LocalDate, Long> lastDays(int days) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Long> result = new LinkedHashMap<>();
+        for (int i = Math.min(days, retentionDays) - 1; i >= 0; i--) {
+            LocalDate day = today.minusDays(i);
+            LongAdder bucket = buckets.get(day);
+            result.put(day, bucket == null ? 0L : bucket.sum());
+        }
+        return result;
+    }
+
+    /**
+     * 移除超出保留期的分桶
+     */
+    public void prune() {
+        LocalDate earliest = LocalDate.now().minusDays(retentionDays);
+        Iterator<LocalDate> iterator = buckets.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isBefore(earliest)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 清空计数
+     */
+    public void clear() {
+        buckets.clear();
+    }
+}
\ No newline at end of file
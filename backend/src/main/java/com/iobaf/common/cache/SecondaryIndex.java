@@ -0,0 +1,116 @@
+package com.iobaf.common.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 实体二级索引：索引键到实体ID集合的映射
+ * 由 {@link WriteBehindCache} 在实体新增和每次修改后维护，事务回滚时恢复，同一实体的更新在该实体的锁内串行进行。
+ * 只保存ID，不持有实体，可覆盖缓存之外的全部实体；索引键为null的实体不进入索引。
+ * 查询结果是弱一致的快照，调用方取回实体后应再按条件过滤一次
+ *
+ * @param <T> 实体类型
+ * @param <K> 索引键类型
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public class SecondaryIndex<T, K> {
+
+    private final Function<T, K> keyFunction;
+
+    private final Map<K, Set<Long>> idsByKey = new ConcurrentHashMap<>();
+
+    private final Map<Long, K> keyById = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyFunction 索引键提取函数
+     */
+    public SecondaryIndex(Function<T, K> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * 按实体当前状态更新索引，索引键变化时从旧键移到新键
+     *
+     * @param id 实体ID
+     * @param entity 实体
+     */
+    public void update(Long id, T entity) {
+        K key = keyFunction.apply(entity);
+        K previous = key == null ? keyById.remove(id) : keyById.put(id, key);
+        // 增删都在 compute 内完成，空集合随之移除，不会与并发的新增交错
+        if (previous != null && !previous.equals(key)) {
+            idsByKey.computeIfPresent(previous, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (key != null) {
+            idsByKey.compute(key, (k, ids) -> {
+                Set<Long> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * 从索引中移除实体
+     *
+     * @param id 实体ID
+     */
+    public void remove(Long id) {
+        K previous = keyById.remove(id);
+        if (previous != null) {
+            idsByKey.computeIfPresent(previous, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * 查询索引键对应的实体ID
+     *
+     * @param key 索引键
+     * @return 实体ID集合（只读视图）
+     */
+    public Set<Long> get(K key) {
+        Set<Long> ids = idsByKey.get(key);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * 查询索引键对应的实体数
+     *
+     * @param key 索引键
+     * @return 实体数
+     */
+    public int count(K key) {
+        Set<Long> ids = idsByKey.get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * 各索引键对应的实体数，代价与索引键个数成正比
+     *
+     * @return 索引键到实体数的映射
+     */
+    public Map<K, Integer> counts() {
+        Map<K, Integer> counts = new HashMap<>();
+        idsByKey.forEach((key, ids) -> counts.put(key, ids.size()));
+        return counts;
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        idsByKey.clear();
+        keyById.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,697 @@
+package com.iobaf.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 写回式实体缓存
+ * 实体的新增与修改先写入缓存并标记为脏，由 {@link #flush()} 批量写入数据库，请求线程不等待数据库写入；
+ * 缓存未命中时从数据库加载。每个实体有独立的可重入锁，修改必须在 {@link #lock(Long)} 返回的句柄内进行，
+ * 同一实体的并发修改因此串行执行，不同实体之间互不阻塞。
+ * 缓存条目数超过上限时，在刷写后淘汰最久未访问的干净条目，脏条目在写入数据库前不会被淘汰。
+ * 实体ID由调用方在新增前分配，刷写时按ID插入。
+ * 可挂接 {@link SecondaryIndex}，索引覆盖表中全部实体，启动时由 {@link #rebuildIndexes} 从数据库构建，
+ * 之后随新增和修改维护；前提是该表只由本进程写入。
+ * 可设置预写日志：每次新增和修改在持有实体锁时追加到日志，同一实体的日志顺序与修改顺序一致；
+ * 刷写时跳过最近一次修改尚未在日志中落盘的条目，数据库中的状态因此总能由日志重放得到。
+ * 新增和修改参与 Spring 事务：事务中的新增和锁定的实体都是工作副本，只对本事务可见，实体锁持有到事务结束；
+ * 事务提交后副本才替换缓存中的实例、标记为待写入、追加到日志并计入统计，回滚时丢弃副本并恢复索引。
+ * 句柄内的修改中途抛出异常时，由事务回滚丢弃；不在事务中时，修改在句柄关闭时立即生效。
+ * 缓存中的实例发布后不再被修改，读取方法返回的实例可在不持锁时读取和序列化，但调用方不得修改
+ *
+ * @param <T> 实体类型
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+public class WriteBehindCache<T> {
+
+    /**
+     * 事务中等待实体锁的最长时间（秒），超时视为死锁，抛出异常使事务回滚
+     */
+    private static final long LOCK_TIMEOUT_SECONDS = 10;
+
+    private final String name;
+
+    private final BaseMapper<T> mapper;
+
+    private final Function<T, Long> idGetter;
+
+    private final int maxSize;
+
+    private final ConcurrentMap<Long, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private final List<SecondaryIndex<T, ?>> indexes = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<T>> insertListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 累计未写入数据库的次数（写入失败或日志尚未落盘）
+     */
+    private final LongAdder flushSkipped = new LongAdder();
+
+    private volatile ToLongFunction<T> logAppender;
+
+    private volatile LongSupplier logDurableSequence;
+
+    /**
+     * 表中实体总数，由 {@link #rebuildIndexes} 初始化，之后随新增累加
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param name 缓存名称，用于日志
+     * @param mapper 实体数据访问层
+     * @param idGetter 实体ID读取函数
+     * @param maxSize 条目数上限
+     */
+    public WriteBehindCache(String name, BaseMapper<T> mapper, Function<T, Long> idGetter, int maxSize) {
+        this.name = name;
+        this.mapper = mapper;
+        this.idGetter = idGetter;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 读取实体，未命中时从数据库加载
+     * 返回的是已提交的实例（本事务中新增或锁定过的实体返回工作副本），只能读取，修改须通过 {@link #lock(Long)}
+     *
+     * @param id 实体ID
+     * @return 实体，不存在时返回null
+     */
+    public T get(Long id) {
+        Pending<T> pending = pending(id);
+        if (pending != null) {
+            return pending.working;
+        }
+        Entry<T> entry = entry(id);
+        return entry == null ? null : entry.entity;
+    }
+
+    /**
+     * 新增实体，实体ID必须已分配
+     * 缓存保存的是实体的副本，调用方之后对参数的修改不影响缓存；在事务中调用时提交后才生效
+     *
+     * @param entity 实体
+     */
+    public void insert(T entity) {
+        Long id = idGetter.apply(entity);
+        if (id == null) {
+            throw new IllegalArgumentException(name + "新增前必须分配ID");
+        }
+        T copy = copy(entity);
+        Workspace workspace = workspace();
+        if (workspace != null) {
+            if (workspace.pending.containsKey(id) || entries.containsKey(id)) {
+                throw new IllegalStateException(name + "ID重复：" + id);
+            }
+            workspace.pending.put(id, new Pending<>(null, copy));
+            // 索引先行更新，使本事务中的索引查询能找到新增的实体；其他事务取回实体时按已提交状态过滤
+            updateIndexes(id, copy);
+            return;
+        }
+        publishInsert(id, copy);
+    }
+
+    /**
+     * 添加新增监听器，用于维护按新增累计的统计，须在启用缓存前调用
+     *
+     * @param listener 监听器，在新增线程中同步调用
+     */
+    public void addInsertListener(Consumer<T> listener) {
+        insertListeners.add(listener);
+    }
+
+    /**
+     * 设置预写日志，须在启用缓存前调用
+     *
+     * @param appender 追加修改后的实体，返回日志序号，在修改线程中持有实体锁时同步调用
+     * @param durableSequence 已落盘的最大日志序号
+     */
+    public void setWriteAheadLog(ToLongFunction<T> appender, LongSupplier durableSequence) {
+        this.logAppender = appender;
+        this.logDurableSequence = durableSequence;
+    }
+
+    /**
+     * @return 表中实体总数
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * 添加二级索引，须在启用缓存前调用
+     *
+     * @param keyFunction 索引键提取函数
+     * @return 二级索引
+     */
+    public <K> SecondaryIndex<T, K> addIndex(Function<T, K> keyFunction) {
+        SecondaryIndex<T, K> index = new SecondaryIndex<>(keyFunction);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * 从数据库重建全部二级索引，按ID分段读取，每段只查询索引所需的列
+     *
+     * @param chunkSize 每段读取行数
+     * @param columns 索引键所在的列
+     * @return 已索引的实体数
+     */
+    public long rebuildIndexes(int chunkSize, String... columns) {
+        for (SecondaryIndex<T, ?> index : indexes) {
+            index.clear();
+        }
+        String[] selectColumns = new String[columns.length + 1];
+        selectColumns[0] = "id";
+        System.arraycopy(columns, 0, selectColumns, 1, columns.length);
+        long count = 0;
+        long lastId = 0;
+        while (true) {
+            List<T> rows = mapper.selectList(new QueryWrapper<T>()
+                    .select(selectColumns)
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + chunkSize));
+            for (T row : rows) {
+                Long id = idGetter.apply(row);
+                // 已在缓存中的实体以缓存状态为准
+                Entry<T> entry = entries.get(id);
+                updateIndexes(id, entry == null ? row : entry.entity);
+                lastId = id;
+            }
+            count += rows.size();
+            if (rows.size() < chunkSize) {
+                total.reset();
+                total.add(count);
+                return count;
+            }
+        }
+    }
+
+    /**
+     * 按ID批量读取实体并过滤，缓存未命中的实体一次批量加载
+     * 用于根据二级索引的查询结果取回实体，过滤条件应与索引条件一致以排除并发修改造成的差异
+     *
+     * @param ids 实体ID
+     * @param filter 过滤条件
+     * @return 满足条件的实体，按ID升序
+     */
+    public List<T> findByIds(Collection<Long> ids, Predicate<T> filter) {
+        List<Long> sortedIds = new ArrayList<>(ids);
+        sortedIds.sort(null);
+        List<T> result = new ArrayList<>(sortedIds.size());
+        List<Long> misses = new ArrayList<>();
+        Workspace workspace = currentWorkspace();
+        for (Long id : sortedIds) {
+            Pending<T> pending = workspace == null ? null : workspace.pending.get(id);
+            if (pending != null) {
+                if (filter.test(pending.working)) {
+                    result.add(pending.working);
+                }
+                continue;
+            }
+            Entry<T> entry = entries.get(id);
+            if (entry == null) {
+                misses.add(id);
+            } else {
+                entry.lastAccess = System.nanoTime();
+                if (filter.test(entry.entity)) {
+                    result.add(entry.entity);
+                }
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (T entity : mapper.selectBatchIds(misses)) {
+                Entry<T> loaded = new Entry<>(entity, true);
+                Entry<T> entry = entries.putIfAbsent(idGetter.apply(entity), loaded);
+                T current = entry == null ? entity : entry.entity;
+                if (filter.test(current)) {
+                    result.add(current);
+                }
+            }
+            result.sort(Comparator.comparing(idGetter));
+        }
+        return result;
+    }
+
+    /**
+     * 锁定实体以便修改，句柄中是实体的工作副本
+     * 在事务中调用时锁持有到事务结束，提交后副本生效，同一事务内重复锁定得到同一副本；
+     * 不在事务中时句柄关闭即生效并释放锁。锁可重入，同一线程内的嵌套流程可以重复锁定同一实体
+     *
+     * @param id 实体ID
+     * @return 锁定句柄，实体不存在时句柄中的实体为null
+     * @throws IllegalStateException 事务中等待实体锁超时
+     */
+    public Handle<T> lock(Long id) {
+        Workspace workspace = workspace();
+        if (workspace != null) {
+            Pending<T> pending = workspace.pending.get(id);
+            if (pending != null) {
+                return new Handle<>(this, id, pending.entry, pending.working, true);
+            }
+        }
+        while (true) {
+            Entry<T> entry = entry(id);
+            if (entry == null) {
+                return new Handle<>(this, id, null, null, workspace != null);
+            }
+            if (workspace == null) {
+                entry.lock.lock();
+            } else {
+                acquire(entry, id);
+            }
+            if (!entry.evicted) {
+                T working = copy(entry.entity);
+                if (workspace != null) {
+                    workspace.pending.put(id, new Pending<>(entry, working));
+                }
+                return new Handle<>(this, id, entry, working, workspace != null);
+            }
+            // 加锁前条目已被淘汰，重新加载
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * 用缓存中的实例替换数据库查询结果中的同ID实体，使查询结果与缓存中的最新状态一致
+     *
+     * @param loaded 数据库查询结果
+     * @return 替换后的列表
+     */
+    public List<T> resolve(List<T> loaded) {
+        List<T> result = new ArrayList<>(loaded.size());
+        Workspace workspace = currentWorkspace();
+        for (T entity : loaded) {
+            Long id = idGetter.apply(entity);
+            Pending<T> pending = workspace == null ? null : workspace.pending.get(id);
+            if (pending != null) {
+                result.add(pending.working);
+                continue;
+            }
+            Entry<T> entry = entries.get(id);
+            result.add(entry == null ? entity : entry.entity);
+        }
+        return result;
+    }
+
+    /**
+     * 将全部脏条目写入数据库，条目数超过上限时淘汰最久未访问的干净条目
+     * 写入失败的条目和正被未结束的事务锁定的条目保持为脏，下次刷写时重试。
+     * 不能在事务中调用：写入会加入该事务，事务回滚后条目却已标记为已写入
+     *
+     * @return 写入的条目数
+     * @throws IllegalStateException 当前线程有进行中的事务
+     */
+    public int flush() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(name + "不能在事务中刷写");
+        }
+        int written = 0;
+        int failed = 0;
+        int deferred = 0;
+        LongSupplier durable = logDurableSequence;
+        long durableSequence = durable == null ? Long.MAX_VALUE : durable.getAsLong();
+        for (Entry<T> entry : entries.values()) {
+            if (!entry.isDirty()) {
+                continue;
+            }
+            // 事务持有实体锁直到结束，不等待，避免刷写线程或持锁的请求线程相互阻塞
+            if (!entry.lock.tryLock()) {
+                deferred++;
+                flushSkipped.increment();
+                continue;
+            }
+            try {
+                if (entry.evicted || !entry.isDirty()) {
+                    continue;
+                }
+                if (entry.logSequence > durableSequence) {
+                    deferred++;
+                    flushSkipped.increment();
+                    continue;
+                }
+                long version = entry.version;
+                if (entry.persisted) {
+                    mapper.updateById(entry.entity);
+                } else {
+                    mapper.insert(entry.entity);
+                    entry.persisted = true;
+                }
+                entry.flushedVersion = version;
+                written++;
+            } catch (RuntimeException e) {
+                failed++;
+                flushSkipped.increment();
+                log.error("{}写入数据库失败，ID={}", name, idGetter.apply(entry.entity), e);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        if (failed > 0) {
+            log.warn("{}本次刷写失败{}条，将在下次刷写时重试", name, failed);
+        }
+        if (deferred > 0) {
+            log.debug("{}本次刷写有{}条修改的日志尚未落盘或正被锁定，推迟到下次刷写", name, deferred);
+        }
+        evict();
+        return written;
+    }
+
+    /**
+     * @return 当前条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return 累计未写入数据库的次数（写入失败或日志尚未落盘），两次读取之间不变说明期间的刷写写入了全部修改
+     */
+    public long flushSkippedCount() {
+        return flushSkipped.sum();
+    }
+
+    /**
+     * @return 待写入数据库的条目数
+     */
+    public int dirtyCount() {
+        int count = 0;
+        for (Entry<T> entry : entries.values()) {
+            if (entry.isDirty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void updateIndexes(Long id, T entity) {
+        for (SecondaryIndex<T, ?> index : indexes) {
+            index.update(id, entity);
+        }
+    }
+
+    private void removeFromIndexes(Long id) {
+        for (SecondaryIndex<T, ?> index : indexes) {
+            index.remove(id);
+        }
+    }
+
+    private void publishInsert(Long id, T entity) {
+        Entry<T> entry = new Entry<>(entity, false);
+        // 先加锁再放入缓存，保证日志中新增记录先于之后的修改记录
+        entry.lock.lock();
+        try {
+            if (entries.putIfAbsent(id, entry) != null) {
+                throw new IllegalStateException(name + "ID重复：" + id);
+            }
+            updateIndexes(id, entity);
+            total.increment();
+            for (Consumer<T> listener : insertListeners) {
+                listener.accept(entity);
+            }
+            appendLog(entry);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * 以工作副本替换缓存中的实例并标记为待写入，副本与原实例相同时不产生修改；调用方持有实体锁
+     */
+    private void publishUpdate(Long id, Entry<T> entry, T working) {
+        if (Objects.equals(working, entry.entity)) {
+            return;
+        }
+        entry.entity = working;
+        entry.version++;
+        updateIndexes(id, working);
+        appendLog(entry);
+    }
+
+    private void acquire(Entry<T> entry, Long id) {
+        try {
+            if (!entry.lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(name + "等待实体锁超时，ID=" + id);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + "等待实体锁被中断，ID=" + id, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T copy(T entity) {
+        T copy = (T) BeanUtils.instantiateClass(entity.getClass());
+        BeanUtils.copyProperties(entity, copy);
+        return copy;
+    }
+
+    private Pending<T> pending(Long id) {
+        Workspace workspace = currentWorkspace();
+        return workspace == null ? null : workspace.pending.get(id);
+    }
+
+    /**
+     * 当前事务中本缓存的工作区，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private Workspace currentWorkspace() {
+        return TransactionSynchronizationManager.isSynchronizationActive()
+                ? (Workspace) TransactionSynchronizationManager.getResource(this) : null;
+    }
+
+    /**
+     * 当前事务中本缓存的工作区，首次使用时创建并登记事务同步；不在事务中时返回null
+     */
+    private Workspace workspace() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Workspace workspace = currentWorkspace();
+        if (workspace == null) {
+            workspace = new Workspace();
+            TransactionSynchronizationManager.bindResource(this, workspace);
+            TransactionSynchronizationManager.registerSynchronization(workspace);
+        }
+        return workspace;
+    }
+
+    private void appendLog(Entry<T> entry) {
+        ToLongFunction<T> appender = logAppender;
+        if (appender != null) {
+            entry.logSequence = appender.applyAsLong(entry.entity);
+        }
+    }
+
+    private Entry<T> entry(Long id) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null) {
+            T entity = mapper.selectById(id);
+            if (entity == null) {
+                return null;
+            }
+            Entry<T> loaded = new Entry<>(entity, true);
+            entry = entries.putIfAbsent(id, loaded);
+            if (entry == null) {
+                entry = loaded;
+            }
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry;
+    }
+
+    private void evict() {
+        int excess = entries.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        List<Entry<T>> candidates = new ArrayList<>();
+        for (Entry<T> entry : entries.values()) {
+            if (!entry.isDirty()) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+        for (int i = 0; i < candidates.size() && excess > 0; i++) {
+            Entry<T> entry = candidates.get(i);
+            // 正在被修改的条目跳过
+            if (!entry.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!entry.isDirty()) {
+                    entry.evicted = true;
+                    entries.remove(idGetter.apply(entry.entity), entry);
+                    excess--;
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 缓存条目
+     * entity、version、flushedVersion 与 logSequence 只在持有 lock 时修改；entity 只整体替换，实例本身不再修改
+     */
+    private static class Entry<T> {
+
+        private volatile T entity;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile long version;
+
+        private volatile long flushedVersion;
+
+        /**
+         * 最近一次修改的日志序号
+         */
+        private volatile long logSequence;
+
+        private volatile boolean persisted;
+
+        private volatile boolean evicted;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(T entity, boolean persisted) {
+            this.entity = entity;
+            this.persisted = persisted;
+            this.version = persisted ? 0 : 1;
+        }
+
+        boolean isDirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    /**
+     * 事务中新增或锁定的实体：entry 为null表示新增
+     */
+    private static final class Pending<T> {
+
+        private final Entry<T> entry;
+
+        private final T working;
+
+        private Pending(Entry<T> entry, T working) {
+            this.entry = entry;
+            this.working = working;
+        }
+    }
+
+    /**
+     * 一个事务中本缓存的工作副本，事务结束时提交或丢弃并释放实体锁
+     */
+    private final class Workspace implements TransactionSynchronization {
+
+        private final Map<Long, Pending<T>> pending = new LinkedHashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(WriteBehindCache.this);
+            boolean committed = status == STATUS_COMMITTED;
+            for (Map.Entry<Long, Pending<T>> item : pending.entrySet()) {
+                Long id = item.getKey();
+                Pending<T> change = item.getValue();
+                try {
+                    if (change.entry == null) {
+                        if (committed) {
+                            publishInsert(id, change.working);
+                        } else {
+                            removeFromIndexes(id);
+                        }
+                    } else if (committed) {
+                        publishUpdate(id, change.entry, change.working);
+                    } else {
+                        updateIndexes(id, change.entry.entity);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("{}事务结束时{}失败，ID={}", name, committed ? "提交修改" : "丢弃修改", id, e);
+                } finally {
+                    if (change.entry != null) {
+                        change.entry.lock.unlock();
+                    }
+                }
+            }
+            if (!committed && !pending.isEmpty()) {
+                log.info("{}事务回滚，丢弃{}条未提交的修改", name, pending.size());
+            }
+        }
+    }
+
+    /**
+     * 实体锁定句柄，配合 try-with-resources 使用
+     */
+    public static final class Handle<T> implements AutoCloseable {
+
+        private final WriteBehindCache<T> cache;
+
+        private final Long id;
+
+        private final Entry<T> entry;
+
+        private final T working;
+
+        private final boolean transactional;
+
+        private Handle(WriteBehindCache<T> cache, Long id, Entry<T> entry, T working, boolean transactional) {
+            this.cache = cache;
+            this.id = id;
+            this.entry = entry;
+            this.working = working;
+            this.transactional = transactional;
+        }
+
+        /**
+         * @return 已锁定实体的工作副本，不存在时返回null
+         */
+        public T get() {
+            return working;
+        }
+
+        @Override
+        public void close() {
+            if (working == null) {
+                return;
+            }
+            if (transactional) {
+                // 锁与副本留到事务结束；索引随副本更新，使本事务中的索引查询反映修改
+                cache.updateIndexes(id, working);
+                return;
+            }
+            try {
+                cache.publishUpdate(id, entry, working);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,359 @@
+package com.iobaf.common.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 分段追加日志
+ * 记录按递增序号追加到当前段文件，段文件超过大小上限后切换到新段，文件名为段内第一条记录的序号。
+ * 追加只写入内存缓冲区，由 {@link #sync()} 批量写入文件并 fsync，多次追加共用一次 fsync；
+ * 进程或系统异常退出时最多丢失最近一次 sync 之后的记录。
+ * 每条记录格式为 长度(4) + CRC32(4) + 序号(8) + 内容，打开时校验最后一段并截掉末尾不完整的记录。
+ * {@link #snapshot(long)} 记录快照点：快照点之前的记录已无需重放，完全位于快照点之前的段被删除或归档，
+ * 重放只读取快照点之后的记录，启动耗时因此与快照间隔内的记录数成正比
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+public class SegmentedJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_FILE = "snapshot";
+
+    private static final String ARCHIVE_DIR = "archive";
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    private final boolean archiveCompacted;
+
+    /**
+     * 各段第一条记录的序号，升序，最后一个为当前段
+     */
+    private final List<Long> segments = new ArrayList<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private FileChannel channel;
+
+    private long segmentBytes;
+
+    private long lastSequence;
+
+    private volatile long syncedSequence;
+
+    private volatile long snapshotSequence;
+
+    /**
+     * @param directory 日志目录，不存在时创建
+     * @param segmentSize 段文件大小上限（字节）
+     * @param archiveCompacted 快照后不再需要的段是否移入归档目录保留，否则删除
+     */
+    public SegmentedJournal(Path directory, long segmentSize, boolean archiveCompacted) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.archiveCompacted = archiveCompacted;
+    }
+
+    /**
+     * 打开日志：读取快照点，校验最后一段并截掉末尾不完整的记录，之后追加到最后一段
+     *
+     * @throws IOException 读写日志文件失败
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            snapshotSequence = Long.parseLong(new String(Files.readAllBytes(snapshotFile), StandardCharsets.US_ASCII).trim());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+
+        if (segments.isEmpty()) {
+            lastSequence = snapshotSequence;
+            openSegment(lastSequence + 1);
+        } else {
+            long first = segments.get(segments.size() - 1);
+            Path file = segmentPath(first);
+            long[] scanned = {first - 1, 0};
+            scan(file, Long.MIN_VALUE, scanned, null);
+            lastSequence = Math.max(scanned[0], snapshotSequence);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            if (scanned[1] < channel.size()) {
+                log.warn("日志段{}末尾存在不完整的记录，已截断{}字节", file.getFileName(), channel.size() - scanned[1]);
+                channel.truncate(scanned[1]);
+                channel.force(true);
+            }
+            channel.position(scanned[1]);
+            segmentBytes = scanned[1];
+        }
+        syncedSequence = lastSequence;
+        log.info("日志已打开，目录={}，段数={}，快照序号={}，最新序号={}", directory, segments.size(),
+                snapshotSequence, lastSequence);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param payload 记录内容
+     * @return 记录序号
+     * @throws IOException 写入日志文件失败
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        long written = segmentBytes + buffer.position();
+        if (written > 0 && written + recordSize > segmentSize) {
+            rollSegment();
+        }
+        if (buffer.remaining() < recordSize) {
+            drain();
+            if (buffer.capacity() < recordSize) {
+                buffer = ByteBuffer.allocate(recordSize);
+            }
+        }
+        long sequence = ++lastSequence;
+        CRC32 crc = new CRC32();
+        crc.update(longBytes(sequence));
+        crc.update(payload);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).putLong(sequence).put(payload);
+        return sequence;
+    }
+
+    /**
+     * 将缓冲区中的记录写入文件并 fsync，fsync 期间不阻塞追加
+     *
+     * @throws IOException 写入日志文件失败
+     */
+    public void sync() throws IOException {
+        FileChannel target;
+        long sequence;
+        synchronized (this) {
+            if (syncedSequence == lastSequence) {
+                return;
+            }
+            drain();
+            target = channel;
+            sequence = lastSequence;
+        }
+        try {
+            target.force(false);
+        } catch (ClosedChannelException e) {
+            // 期间已切换到新段，旧段在关闭前已 fsync
+        }
+        synchronized (this) {
+            syncedSequence = Math.max(syncedSequence, sequence);
+        }
+    }
+
+    /**
+     * 按序号顺序重放快照点之后的记录
+     *
+     * @param handler 记录处理器
+     * @return 重放的记录数
+     * @throws IOException 读取日志文件失败
+     */
+    public synchronized long replay(RecordHandler handler) throws IOException {
+        drain();
+        long[] scanned = {0, 0};
+        long count = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            // 下一段的起始序号不大于快照点+1 时，本段全部位于快照点之前
+            if (i + 1 < segments.size() && segments.get(i + 1) <= snapshotSequence + 1) {
+                continue;
+            }
+            count += scan(segmentPath(segments.get(i)), snapshotSequence, scanned, handler);
+        }
+        return count;
+    }
+
+    /**
+     * 记录快照点：序号不大于 sequence 的记录所做的修改已另行持久化，之后不再重放；
+     * 同时删除或归档完全位于快照点之前的段
+     *
+     * @param sequence 快照序号，不得大于最新序号
+     * @throws IOException 写入快照文件或清理段文件失败
+     */
+    public void snapshot(long sequence) throws IOException {
+        List<Long> obsolete = new ArrayList<>();
+        synchronized (this) {
+            if (sequence <= snapshotSequence) {
+                return;
+            }
+            if (sequence > lastSequence) {
+                throw new IllegalArgumentException("快照序号" + sequence + "大于最新序号" + lastSequence);
+            }
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.US_ASCII)));
+                out.force(true);
+            }
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            snapshotSequence = sequence;
+            while (segments.size() > 1 && segments.get(1) <= sequence + 1) {
+                obsolete.add(segments.remove(0));
+            }
+        }
+        if (archiveCompacted && !obsolete.isEmpty()) {
+            Files.createDirectories(directory.resolve(ARCHIVE_DIR));
+        }
+        for (Long first : obsolete) {
+            Path file = segmentPath(first);
+            if (archiveCompacted) {
+                Files.move(file, directory.resolve(ARCHIVE_DIR).resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public long syncedSequence() {
+        return syncedSequence;
+    }
+
+    public long snapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * fsync 全部记录后关闭
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            drain();
+            channel.force(false);
+            channel.close();
+            channel = null;
+            syncedSequence = lastSequence;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        drain();
+        channel.force(false);
+        channel.close();
+        syncedSequence = lastSequence;
+        openSegment(lastSequence + 1);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        channel = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.add(firstSequence);
+        segmentBytes = 0;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 顺序读取段文件中的有效记录，遇到不完整或校验失败的记录时停止
+     *
+     * @param result 输出：[0] 最后一条有效记录的序号，[1] 有效记录结束位置
+     * @return 交给处理器的记录数
+     */
+    private static long scan(Path file, long afterSequence, long[] result, RecordHandler handler) throws IOException {
+        long count = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long position = 0;
+            long size = in.size();
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(in, header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                long sequence = header.getLong();
+                if (length < 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload, position + HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                crc.update(longBytes(sequence));
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                position += HEADER_SIZE + length;
+                result[0] = sequence;
+                result[1] = position;
+                if (handler != null && sequence > afterSequence) {
+                    handler.handle(sequence, payload.array());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = in.read(target, position + target.position());
+            if (read < 0) {
+                throw new IOException("日志文件意外结束");
+            }
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 记录处理器
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+
+        /**
+         * 处理一条记录
+         *
+         * @param sequence 记录序号
+         * @param payload 记录内容
+         */
+        void handle(long sequence, byte[] payload);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.iobaf.common.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额累加器
+ * 内部以固定小数位的 long（最小单位计数）累加：加数的未缩放值乘以10的幂折算为最小单位，
+ * 读取未缩放值经 movePointRight 到0位小数后取 long，JIT 编译后临时对象由逃逸分析消除，累加不产生对象分配；
+ * 加数小数位超过精度或累加溢出时自动切换为 BigDecimal 累加，结果始终精确。
+ * 输出时按已累加金额的最大小数位还原为 BigDecimal，与直接用 BigDecimal 相加的结果完全一致。
+ * 非线程安全，并行汇总时各线程分别累加后再合并
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class MoneySum implements Comparable<MoneySum> {
+
+    /**
+     * 默认内部精度：4位小数，覆盖金额（2位）与单价、汇率类字段（4位）
+     */
+    public static final int DEFAULT_SCALE = 4;
+
+    /**
+     * 10的0到18次幂，用于把加数的未缩放值折算为内部精度的最小单位
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int scale;
+
+    private long units;
+
+    /**
+     * 已累加金额的最大小数位，决定输出精度
+     */
+    private int outputScale;
+
+    /**
+     * 精确累加值，为null时表示仍处于 long 累加模式
+     */
+    private BigDecimal exact;
+
+    public MoneySum() {
+        this(DEFAULT_SCALE);
+    }
+
+    /**
+     * @param scale 内部精度（小数位数）
+     */
+    public MoneySum(int scale) {
+        if (scale < 0 || scale > 9) {
+            throw new IllegalArgumentException("金额精度应在0到9之间：" + scale);
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * 累加金额，null视为0
+     *
+     * @param amount 金额
+     * @return 当前累加器
+     */
+    public MoneySum add(BigDecimal amount) {
+        accumulate(amount, false);
+        return this;
+    }
+
+    /**
+     * 减去金额，null视为0
+     *
+     * @param amount 金额
+     * @return 当前累加器
+     */
+    public MoneySum subtract(BigDecimal amount) {
+        accumulate(amount, true);
+        return this;
+    }
+
+    /**
+     * 合并另一个累加器的结果
+     *
+     * @param other 另一个累加器
+     * @return 当前累加器
+     */
+    public MoneySum add(MoneySum other) {
+        if (exact == null && other.exact == null && scale == other.scale) {
+            try {
+                units = Math.addExact(units, other.units);
+                outputScale = Math.max(outputScale, other.outputScale);
+                return this;
+            } catch (ArithmeticException e) {
+                // 溢出，改用精确累加
+            }
+        }
+        exact = toBigDecimal().add(other.toBigDecimal());
+        return this;
+    }
+
+    /**
+     * 转换为 BigDecimal
+     *
+     * @return 累加结果
+     */
+    public BigDecimal toBigDecimal() {
+        if (exact != null) {
+            return exact;
+        }
+        return BigDecimal.valueOf(units, scale).setScale(outputScale, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * 累加结果的符号
+     *
+     * @return -1、0或1
+     */
+    public int signum() {
+        return exact != null ? exact.signum() : Long.signum(units);
+    }
+
+    @Override
+    public int compareTo(MoneySum other) {
+        if (exact == null && other.exact == null && scale == other.scale) {
+            return Long.compare(units, other.units);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    /**
+     * 转换为 BigDecimal，累加器为null时返回0
+     *
+     * @param sum 累加器
+     * @return 累加结果
+     */
+    public static BigDecimal toBigDecimal(MoneySum sum) {
+        return sum == null ? BigDecimal.ZERO : sum.toBigDecimal();
+    }
+
+    private void accumulate(BigDecimal amount, boolean negate) {
+        if (amount == null) {
+            return;
+        }
+        if (exact == null) {
+            int amountScale = amount.scale();
+            int shift = scale - amountScale;
+            if (shift >= 0 && shift < POWERS_OF_TEN.length) {
+                try {
+                    // 未缩放值超出 long 范围或折算溢出时抛出异常
+                    long unscaled = amountScale >= 0
+                            ? amount.movePointRight(amountScale).longValueExact()
+                            : amount.unscaledValue().longValueExact();
+                    long amountUnits = Math.multiplyExact(unscaled, POWERS_OF_TEN[shift]);
+                    units = negate ? Math.subtractExact(units, amountUnits) : Math.addExact(units, amountUnits);
+                    outputScale = Math.max(outputScale, amountScale);
+                    return;
+                } catch (ArithmeticException e) {
+                    // 超出 long 范围，改用精确累加
+                }
+            }
+            exact = toBigDecimal();
+        }
+        exact = negate ? exact.subtract(amount) : exact.add(amount);
+    }
+}
\ No newline at end of file
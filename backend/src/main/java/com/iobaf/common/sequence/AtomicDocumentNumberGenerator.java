@@ -0,0 +1,36 @@
+package com.iobaf.common.sequence;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 AtomicLong 的进程内单据编号生成器
+ * 每个序列一个独立计数器，不同单据类型之间互不争用；分配为一次 CAS，无锁。
+ * 同一序列内的ID连续且严格递增，便于单据编号按时间顺序排列
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Component
+public class AtomicDocumentNumberGenerator implements DocumentNumberGenerator {
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public long nextId(String sequence) {
+        return counter(sequence).incrementAndGet();
+    }
+
+    @Override
+    public void advanceTo(String sequence, long lastId) {
+        counter(sequence).accumulateAndGet(lastId, Math::max);
+    }
+
+    private AtomicLong counter(String sequence) {
+        AtomicLong counter = counters.get(sequence);
+        return counter != null ? counter : counters.computeIfAbsent(sequence, key -> new AtomicLong());
+    }
+}
\ No newline at end of file
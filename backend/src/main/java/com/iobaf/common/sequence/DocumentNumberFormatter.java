@@ -0,0 +1,69 @@
+package com.iobaf.common.sequence;
+
+/**
+ * 单据编号格式化工具
+ * 生成“前缀 + 左补零数字”形式的编号，等价于 prefix + String.format("%0Nd", value)，
+ * 但直接填充字符数组，不解析格式串，也不产生中间字符串
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class DocumentNumberFormatter {
+
+    private DocumentNumberFormatter() {
+    }
+
+    /**
+     * 格式化单据编号
+     *
+     * @param prefix 前缀
+     * @param value 序号，不能为负数
+     * @param width 数字部分最小位数，不足时左补零，超出时完整保留
+     * @return 单据编号
+     */
+    public static String format(String prefix, long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("单据序号不能为负数：" + value);
+        }
+        int digits = digits(value);
+        int numberLength = Math.max(digits, width);
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + numberLength];
+        prefix.getChars(0, prefixLength, chars, 0);
+        int pos = chars.length;
+        do {
+            chars[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (pos > prefixLength) {
+            chars[--pos] = '0';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 追加格式化后的数字部分到已有缓冲区，供拼接更长编号时使用
+     *
+     * @param builder 目标缓冲区
+     * @param value 序号，不能为负数
+     * @param width 最小位数
+     * @return 目标缓冲区
+     */
+    public static StringBuilder appendPadded(StringBuilder builder, long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("单据序号不能为负数：" + value);
+        }
+        for (int i = digits(value); i < width; i++) {
+            builder.append('0');
+        }
+        return builder.append(value);
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
\ No newline at end of file
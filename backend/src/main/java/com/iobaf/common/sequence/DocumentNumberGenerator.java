@@ -0,0 +1,30 @@
+package com.iobaf.common.sequence;
+
+/**
+ * 单据编号生成器
+ * 按序列名称分配递增的单据ID，单据编号由ID经 {@link DocumentNumberFormatter} 格式化得到。
+ * 实现必须线程安全；默认实现为进程内计数器，需要跨实例唯一时可声明 @Primary 的其他实现
+ * （如数据库号段分配）替换
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public interface DocumentNumberGenerator {
+
+    /**
+     * 分配下一个ID
+     *
+     * @param sequence 序列名称，不同单据类型各自独立编号
+     * @return 从1开始递增的ID
+     */
+    long nextId(String sequence);
+
+    /**
+     * 将序列推进到不小于指定值，之后分配的ID均大于该值
+     * 用于启动时根据已持久化的最大ID恢复计数
+     *
+     * @param sequence 序列名称
+     * @param lastId 已使用的最大ID
+     */
+    void advanceTo(String sequence, long lastId);
+}
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.iobaf.common.statemachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 表驱动状态机
+ * 状态与事件均为枚举，转换表按 (状态序号, 事件序号) 编译为一维数组，判断转换是否合法只需一次数组访问。
+ * 状态以枚举名称保存在实体字段中，读取时经构建时预建的名称映射转换为枚举。
+ * 转换可附加守卫条件，转换完成后依次同步通知监听器。
+ * 构建完成后不可修改，可被多线程共享；同一实体的转换由调用方加锁串行
+ *
+ * @param <T> 实体类型
+ * @param <S> 状态枚举
+ * @param <E> 事件枚举
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class StateMachine<T, S extends Enum<S>, E extends Enum<E>> {
+
+    private static final int NO_TRANSITION = -1;
+
+    private final String name;
+
+    private final S[] states;
+
+    private final E[] events;
+
+    private final S initialState;
+
+    /**
+     * 下标为 状态序号 * 事件数 + 事件序号，值为目标状态序号，不允许的转换为 -1
+     */
+    private final int[] targets;
+
+    private final Predicate<? super T>[] guards;
+
+    private final Map<String, S> stateByName;
+
+    private final Function<T, String> stateGetter;
+
+    private final BiConsumer<T, String> stateSetter;
+
+    private final List<TransitionListener<? super T, S, E>> listeners;
+
+    private StateMachine(Builder<T, S, E> builder) {
+        this.name = builder.name;
+        this.states = builder.states;
+        this.events = builder.events;
+        this.initialState = builder.initialState;
+        this.targets = builder.targets.clone();
+        this.guards = builder.guards.clone();
+        this.stateGetter = builder.stateGetter;
+        this.stateSetter = builder.stateSetter;
+        this.listeners = Collections.unmodifiableList(new ArrayList<>(builder.listeners));
+        Map<String, S> byName = new HashMap<>(states.length * 2);
+        for (S state : states) {
+            byName.put(state.name(), state);
+        }
+        this.stateByName = byName;
+    }
+
+    /**
+     * 创建状态机构建器
+     *
+     * @param name 状态机名称，用于异常信息和转换事件
+     * @param stateType 状态枚举类型
+     * @param eventType 事件枚举类型
+     * @param stateGetter 读取实体状态字段
+     * @param stateSetter 写入实体状态字段
+     * @return 构建器
+     */
+    public static <T, S extends Enum<S>, E extends Enum<E>> Builder<T, S, E> builder(String name,
+                                                                                    Class<S> stateType,
+                                                                                    Class<E> eventType,
+                                                                                    Function<T, String> stateGetter,
+                                                                                    BiConsumer<T, String> stateSetter) {
+        return new Builder<>(name, stateType, eventType, stateGetter, stateSetter);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 将实体状态设置为初始状态，不触发监听器
+     *
+     * @param entity 实体
+     */
+    public void initialize(T entity) {
+        stateSetter.accept(entity, initialState.name());
+    }
+
+    /**
+     * 按名称解析状态
+     *
+     * @param stateName 状态名称
+     * @return 状态，名称无效时返回null
+     */
+    public S parse(String stateName) {
+        return stateName == null ? null : stateByName.get(stateName);
+    }
+
+    /**
+     * 读取实体当前状态
+     *
+     * @param entity 实体
+     * @return 当前状态，字段为空或无效时返回null
+     */
+    public S stateOf(T entity) {
+        return parse(stateGetter.apply(entity));
+    }
+
+    /**
+     * 判断实体当前能否执行事件（转换存在且守卫条件满足）
+     *
+     * @param entity 实体
+     * @param event 事件
+     * @return 能否执行
+     */
+    public boolean canFire(T entity, E event) {
+        S from = stateOf(entity);
+        if (from == null) {
+            return false;
+        }
+        int index = from.ordinal() * events.length + event.ordinal();
+        return targets[index] != NO_TRANSITION && (guards[index] == null || guards[index].test(entity));
+    }
+
+    /**
+     * 对实体执行事件：校验转换与守卫条件，写入目标状态并通知监听器
+     *
+     * @param entity 实体
+     * @param event 事件
+     * @return 目标状态
+     * @throws IllegalStateException 当前状态无效、不允许该事件或守卫条件不满足
+     */
+    public S fire(T entity, E event) {
+        S from = stateOf(entity);
+        if (from == null) {
+            throw new IllegalStateException(name + "状态无效：" + stateGetter.apply(entity));
+        }
+        int index = from.ordinal() * events.length + event.ordinal();
+        int target = targets[index];
+        if (target == NO_TRANSITION) {
+            throw new IllegalStateException(name + "在" + from + "状态下不允许" + event);
+        }
+        Predicate<? super T> guard = guards[index];
+        if (guard != null && !guard.test(entity)) {
+            throw new IllegalStateException(name + "在" + from + "状态下执行" + event + "的条件不满足");
+        }
+        S to = states[target];
+        stateSetter.accept(entity, to.name());
+        for (TransitionListener<? super T, S, E> listener : listeners) {
+            listener.onTransition(entity, from, event, to);
+        }
+        return to;
+    }
+
+    /**
+     * 将实体转换到指定状态：查找从当前状态到目标状态的事件并执行
+     *
+     * @param entity 实体
+     * @param to 目标状态
+     * @return 执行的事件
+     * @throws IllegalStateException 当前状态无效或不存在到目标状态的转换
+     */
+    public E fireTo(T entity, S to) {
+        S from = stateOf(entity);
+        if (from == null) {
+            throw new IllegalStateException(name + "状态无效：" + stateGetter.apply(entity));
+        }
+        int offset = from.ordinal() * events.length;
+        for (int i = 0; i < events.length; i++) {
+            if (targets[offset + i] == to.ordinal()) {
+                fire(entity, events[i]);
+                return events[i];
+            }
+        }
+        throw new IllegalStateException(name + "不允许从" + from + "转换到" + to);
+    }
+
+    /**
+     * 状态机构建器，非线程安全
+     */
+    public static final class Builder<T, S extends Enum<S>, E extends Enum<E>> {
+
+        private final String name;
+
+        private final S[] states;
+
+        private final E[] events;
+
+        private final int[] targets;
+
+        private final Predicate<? super T>[] guards;
+
+        private final Function<T, String> stateGetter;
+
+        private final BiConsumer<T, String> stateSetter;
+
+        private final List<TransitionListener<? super T, S, E>> listeners = new ArrayList<>();
+
+        private S initialState;
+
+        private Builder(String name, Class<S> stateType, Class<E> eventType,
+                        Function<T, String> stateGetter, BiConsumer<T, String> stateSetter) {
+            this.name = name;
+            this.states = stateType.getEnumConstants();
+            this.events = eventType.getEnumConstants();
+            this.targets = new int[states.length * events.length];
+            Arrays.fill(targets, NO_TRANSITION);
+            this.guards = newGuards(targets.length);
+            this.stateGetter = stateGetter;
+            this.stateSetter = stateSetter;
+        }
+
+        /**
+         * 设置初始状态
+         */
+        public Builder<T, S, E> initial(S state) {
+            this.initialState = state;
+            return this;
+        }
+
+        /**
+         * 允许在 from 状态下执行 event 转换到 to 状态
+         */
+        public Builder<T, S, E> permit(S from, E event, S to) {
+            return permit(from, event, to, null);
+        }
+
+        /**
+         * 允许在 from 状态下执行 event 转换到 to 状态，且 guard 对实体成立
+         */
+        public Builder<T, S, E> permit(S from, E event, S to, Predicate<? super T> guard) {
+            int index = from.ordinal() * events.length + event.ordinal();
+            if (targets[index] != NO_TRANSITION) {
+                throw new IllegalArgumentException(name + "重复定义转换：" + from + " " + event);
+            }
+            targets[index] = to.ordinal();
+            guards[index] = guard;
+            return this;
+        }
+
+        /**
+         * 允许在多个状态下执行 event 转换到 to 状态
+         */
+        @SafeVarargs
+        public final Builder<T, S, E> permitAll(E event, S to, S... froms) {
+            return permitAll(event, to, null, froms);
+        }
+
+        /**
+         * 允许在多个状态下执行 event 转换到 to 状态，且 guard 对实体成立
+         */
+        @SafeVarargs
+        public final Builder<T, S, E> permitAll(E event, S to, Predicate<? super T> guard, S... froms) {
+            for (S from : froms) {
+                permit(from, event, to, guard);
+            }
+            return this;
+        }
+
+        /**
+         * 添加转换监听器，按添加顺序在每次转换完成后同步调用
+         */
+        public Builder<T, S, E> listener(TransitionListener<? super T, S, E> listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        public StateMachine<T, S, E> build() {
+            if (initialState == null) {
+                throw new IllegalArgumentException(name + "未设置初始状态");
+            }
+            return new StateMachine<>(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <G> Predicate<? super G>[] newGuards(int length) {
+            return (Predicate<? super G>[]) new Predicate<?>[length];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.iobaf.common.statemachine;
+
+/**
+ * 状态转换监听器
+ * 在实体状态字段写入目标状态后、由执行转换的线程同步调用，实现应尽快返回
+ *
+ * @param <T> 实体类型
+ * @param <S> 状态枚举
+ * @param <E> 事件枚举
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@FunctionalInterface
+public interface TransitionListener<T, S extends Enum<S>, E extends Enum<E>> {
+
+    /**
+     * 状态转换完成
+     *
+     * @param entity 实体
+     * @param from 原状态
+     * @param event 事件
+     * @param to 目标状态
+     */
+    void onTransition(T entity, S from, E event, S to);
+}
\ No newline at end of file
@@ -3,12 +3,34 @@ package com.iobaf.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.iobaf.common.response.Result;
+import com.iobaf.domain.finance.entity.AccountingPeriod;
 import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.service.AccountTreeCache;
+import com.iobaf.domain.finance.service.AutoVoucherQueue;
 import com.iobaf.domain.finance.service.FinanceDomainService;
+import com.iobaf.domain.finance.service.LedgerDomainService;
+import com.iobaf.domain.finance.service.OrderReconciliationService;
+import com.iobaf.domain.finance.service.VoucherExportService;
+import com.iobaf.domain.finance.service.VoucherRevalidationService;
+import com.iobaf.domain.finance.vo.AccountBalanceNodeVO;
+import com.iobaf.domain.finance.vo.AccountBalanceVO;
+import com.iobaf.domain.finance.vo.OrderReconciliationReportVO;
+import com.iobaf.domain.finance.vo.TrialBalanceVO;
+import com.iobaf.domain.finance.vo.VoucherBatchResultVO;
+import com.iobaf.domain.finance.vo.VoucherCursorPageVO;
+import com.iobaf.domain.finance.vo.VoucherValidationReportVO;
 import com.iobaf.domain.finance.vo.VoucherVO;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * 财务管理控制器
  * 
@@ -19,19 +41,44 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/finance")
 public class FinanceController {
 
+    /**
+     * 游标分页每页最大条数
+     */
+    private static final long MAX_CURSOR_PAGE_SIZE = 1000;
+
     @Autowired
     private FinanceDomainService financeDomainService;
 
+    @Autowired
+    private LedgerDomainService ledgerDomainService;
+
+    @Autowired
+    private VoucherExportService voucherExportService;
+
+    @Autowired
+    private VoucherRevalidationService voucherRevalidationService;
+
+    @Autowired
+    private AutoVoucherQueue autoVoucherQueue;
+
+    @Autowired
+    private OrderReconciliationService orderReconciliationService;
+
+    @Autowired
+    private AccountTreeCache accountTreeCache;
+
     /**
      * 分页查询凭证列表
      * 
      * @param current 当前页
      * @param size 每页大小
      * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，CONTAINS-包含
      * @param voucherType 凭证类型
      * @param status 状态
      * @param startDate 开始日期
      * @param endDate 结束日期
+     * @param withDetails 是否返回明细，仅展示表头的列表页可传false
      * @return 凭证列表
      */
     @GetMapping("/vouchers")
@@ -39,17 +86,111 @@ public class FinanceController {
             @RequestParam(defaultValue = "1") Long current,
             @RequestParam(defaultValue = "10") Long size,
             @RequestParam(required = false) String voucherNo,
+            @RequestParam(defaultValue = "CONTAINS") String voucherNoMatch,
             @RequestParam(required = false) Integer voucherType,
             @RequestParam(required = false) Integer status,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "true") Boolean withDetails) {
         
         Page<Voucher> page = new Page<>(current, size);
-        IPage<VoucherVO> result = financeDomainService.getVoucherPage(page, voucherNo, voucherType, status, startDate, endDate);
+        IPage<VoucherVO> result = financeDomainService.getVoucherPage(page, voucherNo, voucherNoMatch, voucherType, status, startDate, endDate, withDetails);
         
         return Result.success(result);
     }
 
+    /**
+     * 游标分页查询凭证列表
+     * 请求携带 cursor 参数时启用，首页传空值，后续页传上一页返回的 nextCursor
+     * 
+     * @param cursor 分页游标
+     * @param size 每页大小
+     * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，CONTAINS-包含
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param withDetails 是否返回明细
+     * @param withTotal 是否统计总数
+     * @return 凭证游标分页结果
+     */
+    @GetMapping(value = "/vouchers", params = "cursor")
+    public Result<VoucherCursorPageVO> getVoucherCursorList(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") Long size,
+            @RequestParam(required = false) String voucherNo,
+            @RequestParam(defaultValue = "CONTAINS") String voucherNoMatch,
+            @RequestParam(required = false) Integer voucherType,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "true") Boolean withDetails,
+            @RequestParam(defaultValue = "false") Boolean withTotal) {
+        
+        if (size <= 0 || size > MAX_CURSOR_PAGE_SIZE) {
+            return Result.error("每页大小需在1到" + MAX_CURSOR_PAGE_SIZE + "之间");
+        }
+        try {
+            VoucherCursorPageVO result = financeDomainService.getVoucherCursorPage(cursor, size, voucherNo, voucherNoMatch,
+                    voucherType, status, startDate, endDate, withDetails, withTotal);
+            return Result.success(result);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Result.error(400, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 流式导出凭证及明细（CSV）
+     * 结果按凭证ID、明细ID升序输出，下载中断后以最后收到的完整一行的凭证ID、明细ID作为afterId、afterDetailId续传
+     * （该行没有明细时只传afterId），续传内容不含表头
+     * 
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param afterId 续传起点凭证ID
+     * @param afterDetailId 续传起点明细ID
+     * @param gzip 是否gzip压缩
+     * @param response HTTP响应
+     * @throws IOException 写出失败
+     */
+    @GetMapping("/vouchers/export")
+    public void exportVouchers(
+            @RequestParam(required = false) Integer voucherType,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Long afterDetailId,
+            @RequestParam(defaultValue = "false") Boolean gzip,
+            HttpServletResponse response) throws IOException {
+        
+        if (afterId == null && afterDetailId != null) {
+            response.sendError(400, "afterDetailId须与afterId同时指定");
+            return;
+        }
+        String fileName = afterId == null ? "vouchers.csv"
+                : "vouchers-after-" + afterId + (afterDetailId == null ? "" : "-" + afterDetailId) + ".csv";
+        if (gzip) {
+            fileName += ".gz";
+            response.setContentType("application/gzip");
+        } else {
+            response.setContentType("text/csv;charset=UTF-8");
+        }
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+        
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+            voucherExportService.exportCsv(voucherType, status, startDate, endDate, afterId, afterDetailId, gzipOut);
+            gzipOut.finish();
+        } else {
+            voucherExportService.exportCsv(voucherType, status, startDate, endDate, afterId, afterDetailId, out);
+        }
+        out.flush();
+    }
+
     /**
      * 根据ID查询凭证详情
      * 
@@ -73,11 +214,31 @@ public class FinanceController {
      */
     @PostMapping("/vouchers")
     public Result<String> createVoucher(@RequestBody VoucherVO voucherVO) {
-        boolean success = financeDomainService.createVoucher(voucherVO);
-        if (success) {
-            return Result.success("凭证创建成功");
-        } else {
-            return Result.error("凭证创建失败");
+        try {
+            boolean success = financeDomainService.createVoucher(voucherVO);
+            if (success) {
+                return Result.success("凭证创建成功");
+            } else {
+                return Result.error("凭证创建失败");
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 批量创建凭证
+     * 
+     * @param voucherVOs 凭证信息列表
+     * @return 创建数量
+     */
+    @PostMapping("/vouchers/batch")
+    public Result<Integer> createVouchers(@RequestBody List<VoucherVO> voucherVOs) {
+        try {
+            int created = financeDomainService.createVouchers(voucherVOs);
+            return Result.success(created);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
         }
     }
 
@@ -91,11 +252,15 @@ public class FinanceController {
     @PutMapping("/vouchers/{id}")
     public Result<String> updateVoucher(@PathVariable Long id, @RequestBody VoucherVO voucherVO) {
         voucherVO.setId(id);
-        boolean success = financeDomainService.updateVoucher(voucherVO);
-        if (success) {
-            return Result.success("凭证更新成功");
-        } else {
-            return Result.error("凭证更新失败");
+        try {
+            boolean success = financeDomainService.updateVoucher(voucherVO);
+            if (success) {
+                return Result.success("凭证更新成功");
+            } else {
+                return Result.error("凭证更新失败");
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
         }
     }
 
@@ -131,4 +296,157 @@ public class FinanceController {
             return Result.error("凭证审核失败");
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 凭证过账
+     * 
+     * @param id 凭证ID
+     * @return 操作结果
+     */
+    @PostMapping("/vouchers/{id}/post")
+    public Result<String> postVoucher(@PathVariable Long id) {
+        boolean success = financeDomainService.postVoucher(id);
+        if (success) {
+            return Result.success("凭证过账成功");
+        } else {
+            return Result.error("凭证过账失败，凭证不存在、未审核或所属期间已结账");
+        }
+    }
+
+    /**
+     * 批量审核凭证
+     * 
+     * @param ids 凭证ID列表
+     * @param auditUserId 审核人ID
+     * @return 每张凭证的处理结果
+     */
+    @PostMapping("/vouchers/batch-audit")
+    public Result<VoucherBatchResultVO> auditVouchers(@RequestBody List<Long> ids, @RequestParam Long auditUserId) {
+        return Result.success(financeDomainService.auditVouchers(ids, auditUserId));
+    }
+
+    /**
+     * 批量过账凭证
+     * 
+     * @param ids 凭证ID列表
+     * @return 每张凭证的处理结果
+     */
+    @PostMapping("/vouchers/batch-post")
+    public Result<VoucherBatchResultVO> postVouchers(@RequestBody List<Long> ids) {
+        return Result.success(financeDomainService.postVouchers(ids));
+    }
+
+    /**
+     * 复核全部凭证的借贷平衡
+     * 
+     * @return 复核报告
+     */
+    @PostMapping("/vouchers/revalidate")
+    public Result<VoucherValidationReportVO> revalidateVouchers() {
+        return Result.success(voucherRevalidationService.revalidateAll());
+    }
+
+    /**
+     * 查询自动凭证生成队列状态
+     * 
+     * @return 队列长度与提交、合并、生成、失败等计数
+     */
+    @GetMapping("/auto-vouchers/status")
+    public Result<Map<String, Object>> getAutoVoucherStatus() {
+        return Result.success(autoVoucherQueue.getStatus());
+    }
+
+    /**
+     * 电商订单与收款凭证月末对账
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @return 对账报告
+     */
+    @PostMapping("/reconciliation/orders")
+    public Result<OrderReconciliationReportVO> reconcileOrders(@RequestParam String period) {
+        try {
+            return Result.success(orderReconciliationService.reconcile(period));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询试算平衡表
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @return 试算平衡表
+     */
+    @GetMapping("/trial-balance")
+    public Result<TrialBalanceVO> getTrialBalance(@RequestParam String period) {
+        try {
+            return Result.success(ledgerDomainService.getTrialBalance(period));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询科目总账
+     * 
+     * @param accountId 科目ID
+     * @param startPeriod 开始期间，格式yyyyMM
+     * @param endPeriod 结束期间，格式yyyyMM
+     * @return 各期间余额
+     */
+    @GetMapping("/accounts/{accountId}/ledger")
+    public Result<List<AccountBalanceVO>> getGeneralLedger(@PathVariable Long accountId,
+                                                           @RequestParam String startPeriod,
+                                                           @RequestParam String endPeriod) {
+        try {
+            List<AccountBalanceVO> ledger = ledgerDomainService.getGeneralLedger(accountId, startPeriod, endPeriod);
+            if (ledger == null) {
+                return Result.error("科目不存在");
+            }
+            return Result.success(ledger);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询科目余额树（上级科目汇总下级科目）
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @return 一级科目节点列表
+     */
+    @GetMapping("/balance-report")
+    public Result<List<AccountBalanceNodeVO>> getBalanceReport(@RequestParam String period) {
+        try {
+            return Result.success(ledgerDomainService.getBalanceReport(period));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 期间结账，冻结科目余额快照
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @param closeUserId 结账人ID
+     * @return 已结账期间
+     */
+    @PostMapping("/periods/{period}/close")
+    public Result<AccountingPeriod> closePeriod(@PathVariable String period, @RequestParam Long closeUserId) {
+        try {
+            return Result.success(ledgerDomainService.closePeriod(period, closeUserId));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载会计科目树，科目变更后调用
+     * 
+     * @return 科目数量
+     */
+    @PostMapping("/accounts/tree/refresh")
+    public Result<Integer> refreshAccountTree() {
+        return Result.success(accountTreeCache.refresh().size());
+    }
+}
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.iobaf.domain.ecommerce.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -104,4 +105,16 @@ public interface OrderRepository extends BaseMapper<Order> {
                            @Param("paymentStatus") String paymentStatus,
                            @Param("paymentTime") LocalDateTime paymentTime,
                            @Param("updatedBy") Long updatedBy);
+
+    /**
+     * 流式读取支付时间在指定区间内的已支付订单，用于订单与凭证对账；已退款、已取消等非已支付状态的订单不返回
+     * 只返回ID、订单编号、平台类型、实付金额和支付时间
+     * 
+     * @param startTime 支付时间起点（含）
+     * @param endTime 支付时间终点（不含）
+     * @param handler 结果处理器
+     */
+    void selectPaidOrdersForReconcile(@Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime,
+                                      ResultHandler<Order> handler);
 } 
\ No newline at end of file
@@ -2,9 +2,14 @@ package com.iobaf.domain.ecommerce.service.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.common.sequence.DocumentNumberFormatter;
 import com.iobaf.domain.ecommerce.entity.Order;
 import com.iobaf.domain.ecommerce.repository.OrderRepository;
 import com.iobaf.domain.ecommerce.service.OrderService;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.event.AutoVoucherSource;
+import com.iobaf.domain.finance.service.AutoVoucherQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -30,6 +35,11 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private AutoVoucherQueue autoVoucherQueue;
+
+    private static final String PAYMENT_STATUS_PAID = "PAID";
+
     // 订单编号计数器，用于生成唯一订单号
     private static final AtomicInteger orderCounter = new AtomicInteger(1);
     private static final DateTimeFormatter ORDER_NO_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
@@ -82,6 +92,7 @@ public class OrderServiceImpl implements OrderService {
             int result = orderRepository.insert(order);
             
             if (result > 0) {
+                submitPaymentVoucher(order);
                 log.info("订单创建成功，orderId={}", order.getId());
                 return true;
             } else {
@@ -170,6 +181,9 @@ public class OrderServiceImpl implements OrderService {
             int result = orderRepository.updatePaymentStatus(orderId, paymentStatus, paymentTime, updatedBy);
             
             if (result > 0) {
+                if (PAYMENT_STATUS_PAID.equals(paymentStatus)) {
+                    submitPaymentVoucher(orderRepository.selectById(orderId));
+                }
                 log.info("支付状态更新成功，orderId={}, paymentStatus={}", orderId, paymentStatus);
                 return true;
             } else {
@@ -243,12 +257,15 @@ public class OrderServiceImpl implements OrderService {
             // 计算统计数据
             Map<String, Object> statistics = new java.util.HashMap<>();
             statistics.put("totalOrders", orders.size());
-            statistics.put("totalAmount", orders.stream()
-                    .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                    .sum());
-            statistics.put("paidAmount", orders.stream()
-                    .mapToDouble(order -> order.getPaidAmount().doubleValue())
-                    .sum());
+            // 金额以定点long累加，避免double的精度损失
+            MoneySum totalAmount = new MoneySum();
+            MoneySum paidAmount = new MoneySum();
+            for (Order order : orders) {
+                totalAmount.add(order.getTotalAmount());
+                paidAmount.add(order.getPaidAmount());
+            }
+            statistics.put("totalAmount", totalAmount.toBigDecimal());
+            statistics.put("paidAmount", paidAmount.toBigDecimal());
             
             return statistics;
         } catch (Exception e) {
@@ -312,9 +329,9 @@ public class OrderServiceImpl implements OrderService {
         // 生成订单编号：平台前缀 + 时间戳 + 序号
         String prefix = getPlatformPrefix(platformType);
         String timestamp = LocalDateTime.now().format(ORDER_NO_FORMATTER);
-        String sequence = String.format("%04d", orderCounter.getAndIncrement());
-        
-        String orderNo = prefix + timestamp + sequence;
+        StringBuilder builder = new StringBuilder(prefix.length() + timestamp.length() + 4)
+                .append(prefix).append(timestamp);
+        String orderNo = DocumentNumberFormatter.appendPadded(builder, orderCounter.getAndIncrement(), 4).toString();
         log.info("生成订单编号：{}", orderNo);
         
         return orderNo;
@@ -340,4 +357,16 @@ public class OrderServiceImpl implements OrderService {
                 return "EC";
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 已支付订单生成收款凭证，凭证号与订单ID一一对应，供月末对账关联
+     */
+    private void submitPaymentVoucher(Order order) {
+        if (order == null || !PAYMENT_STATUS_PAID.equals(order.getPaymentStatus()) || order.getPaymentTime() == null) {
+            return;
+        }
+        autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.ORDER_PAYMENT, order.getId(), null,
+                order.getPaidAmount(), order.getPaymentTime().toLocalDate(),
+                "订单收款-" + order.getPlatformType() + "-" + order.getOrderNo()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.iobaf.domain.finance.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 科目期间余额实体类
+ * 按 (科目, 会计期间) 汇总已过账凭证的借贷发生额，凭证过账时增量累加
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("fin_account_balance")
+public class AccountBalance {
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 科目ID
+     */
+    @TableField("account_id")
+    private Long accountId;
+
+    /**
+     * 会计期间，格式yyyyMM
+     */
+    @TableField("period")
+    private String period;
+
+    /**
+     * 本期借方发生额
+     */
+    @TableField("debit_amount")
+    private BigDecimal debitAmount;
+
+    /**
+     * 本期贷方发生额
+     */
+    @TableField("credit_amount")
+    private BigDecimal creditAmount;
+
+    /**
+     * 更新时间
+     */
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+}
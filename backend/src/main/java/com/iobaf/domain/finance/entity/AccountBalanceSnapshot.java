@@ -0,0 +1,82 @@
+package com.iobaf.domain.finance.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 科目余额快照实体类
+ * 期间结账时冻结各科目的期初累计、本期发生额与期末累计借贷额，
+ * 之后的期间以最近一次快照加其后发生额计算期初，不再汇总全部历史期间
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("fin_account_balance_snapshot")
+public class AccountBalanceSnapshot {
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 会计期间，格式yyyyMM
+     */
+    @TableField("period")
+    private String period;
+
+    /**
+     * 科目ID
+     */
+    @TableField("account_id")
+    private Long accountId;
+
+    /**
+     * 期初累计借方发生额
+     */
+    @TableField("opening_debit_amount")
+    private BigDecimal openingDebitAmount;
+
+    /**
+     * 期初累计贷方发生额
+     */
+    @TableField("opening_credit_amount")
+    private BigDecimal openingCreditAmount;
+
+    /**
+     * 本期借方发生额
+     */
+    @TableField("debit_amount")
+    private BigDecimal debitAmount;
+
+    /**
+     * 本期贷方发生额
+     */
+    @TableField("credit_amount")
+    private BigDecimal creditAmount;
+
+    /**
+     * 期末累计借方发生额
+     */
+    @TableField("closing_debit_amount")
+    private BigDecimal closingDebitAmount;
+
+    /**
+     * 期末累计贷方发生额
+     */
+    @TableField("closing_credit_amount")
+    private BigDecimal closingCreditAmount;
+
+    /**
+     * 创建时间
+     */
+    @TableField("create_time")
+    private LocalDateTime createTime;
+}
\ No newline at end of file
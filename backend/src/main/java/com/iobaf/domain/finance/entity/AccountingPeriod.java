@@ -0,0 +1,50 @@
+package com.iobaf.domain.finance.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会计期间实体类
+ * 记录已结账的会计期间，结账后该期间及之前的期间不再接受凭证过账
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("fin_accounting_period")
+public class AccountingPeriod {
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 会计期间，格式yyyyMM
+     */
+    @TableField("period")
+    private String period;
+
+    /**
+     * 状态：1-未结账，2-已结账
+     */
+    @TableField("status")
+    private Integer status;
+
+    /**
+     * 结账人ID
+     */
+    @TableField("close_user_id")
+    private Long closeUserId;
+
+    /**
+     * 结账时间
+     */
+    @TableField("close_time")
+    private LocalDateTime closeTime;
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.iobaf.domain.finance.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 自动凭证已生成事件
+ * 凭证写入提交后发布，来源业务可据此回写凭证ID
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+@AllArgsConstructor
+public class AutoVoucherCreatedEvent {
+
+    /**
+     * 来源业务类型
+     */
+    private AutoVoucherSource source;
+
+    /**
+     * 来源业务ID
+     */
+    private Long sourceId;
+
+    /**
+     * 凭证ID
+     */
+    private Long voucherId;
+
+    /**
+     * 凭证号
+     */
+    private String voucherNo;
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.iobaf.domain.finance.event;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 自动凭证生成事件
+ * 同一业务事件只生成一张凭证：凭证号由来源类型、来源ID与来源参考号确定，
+ * 队列中重复的事件会被合并，已生成过的凭证号会被跳过
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class AutoVoucherEvent {
+
+    /**
+     * 凭证号前缀
+     */
+    public static final String VOUCHER_NO_PREFIX = "AUTO-";
+
+    /**
+     * 来源业务类型
+     */
+    private AutoVoucherSource source;
+
+    /**
+     * 来源业务ID
+     */
+    private Long sourceId;
+
+    /**
+     * 来源参考号，同一业务单据可产生多张凭证时用于区分（如分次收款），可为空
+     */
+    private String sourceRef;
+
+    /**
+     * 金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 凭证日期
+     */
+    private LocalDate voucherDate;
+
+    /**
+     * 摘要
+     */
+    private String summary;
+
+    /**
+     * 生成凭证号，同时作为事件合并键
+     *
+     * @return 凭证号
+     */
+    public String getVoucherNo() {
+        String voucherNo = voucherNoPrefix(source) + sourceId;
+        return sourceRef == null ? voucherNo : voucherNo + "-" + sourceRef;
+    }
+
+    /**
+     * 某一来源业务的凭证号前缀，用于按来源检索自动凭证
+     *
+     * @param source 来源业务类型
+     * @return 凭证号前缀，如 AUTO-ORD-
+     */
+    public static String voucherNoPrefix(AutoVoucherSource source) {
+        return VOUCHER_NO_PREFIX + source.getPrefix() + "-";
+    }
+
+    /**
+     * 从自动凭证号中解析来源业务ID
+     *
+     * @param source 来源业务类型
+     * @param voucherNo 凭证号
+     * @return 来源业务ID，凭证号不属于该来源或格式不符时返回null
+     */
+    public static Long parseSourceId(AutoVoucherSource source, String voucherNo) {
+        String prefix = voucherNoPrefix(source);
+        if (voucherNo == null || !voucherNo.startsWith(prefix)) {
+            return null;
+        }
+        int end = voucherNo.indexOf('-', prefix.length());
+        try {
+            return Long.valueOf(end < 0 ? voucherNo.substring(prefix.length()) : voucherNo.substring(prefix.length(), end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 创建事件
+     *
+     * @param source 来源业务类型
+     * @param sourceId 来源业务ID
+     * @param sourceRef 来源参考号，可为空
+     * @param amount 金额
+     * @param voucherDate 凭证日期
+     * @param summary 摘要
+     * @return 事件
+     */
+    public static AutoVoucherEvent of(AutoVoucherSource source, Long sourceId, String sourceRef,
+                                      BigDecimal amount, LocalDate voucherDate, String summary) {
+        AutoVoucherEvent event = new AutoVoucherEvent();
+        event.setSource(source);
+        event.setSourceId(sourceId);
+        event.setSourceRef(sourceRef);
+        event.setAmount(amount);
+        event.setVoucherDate(voucherDate);
+        event.setSummary(summary);
+        return event;
+    }
+}
\ No newline at end of file
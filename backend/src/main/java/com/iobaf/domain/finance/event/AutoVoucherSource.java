@@ -0,0 +1,75 @@
+package com.iobaf.domain.finance.event;
+
+/**
+ * 自动凭证来源业务类型
+ * 每种来源对应固定的凭证号前缀、凭证类型和借贷科目配置项
+ * （iobaf.finance.auto-voucher.accounts.{配置键}.debit-account-id / credit-account-id）
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public enum AutoVoucherSource {
+
+    /**
+     * 开具销售发票：借应收账款，贷主营业务收入
+     */
+    INVOICE("INV", 3, "invoice"),
+
+    /**
+     * 确认收款：借银行存款，贷应收账款
+     */
+    RECEIPT("RCV", 1, "receipt"),
+
+    /**
+     * 费用报销审批通过：借管理费用，贷其他应付款
+     */
+    EXPENSE("EXP", 3, "expense"),
+
+    /**
+     * 费用报销付款：借其他应付款，贷银行存款
+     */
+    EXPENSE_PAYMENT("EXPPAY", 2, "expense-payment"),
+
+    /**
+     * 促销费用分摊：借销售费用，贷其他应付款
+     */
+    PROMOTION_ALLOCATION("PROMO", 3, "promotion-allocation"),
+
+    /**
+     * 电商订单支付：借银行存款，贷主营业务收入，凭证日期为支付日期
+     */
+    ORDER_PAYMENT("ORD", 1, "order-payment");
+
+    private final String prefix;
+
+    private final int voucherType;
+
+    private final String configKey;
+
+    AutoVoucherSource(String prefix, int voucherType, String configKey) {
+        this.prefix = prefix;
+        this.voucherType = voucherType;
+        this.configKey = configKey;
+    }
+
+    /**
+     * @return 凭证号前缀
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return 凭证类型：1-收款，2-付款，3-转账
+     */
+    public int getVoucherType() {
+        return voucherType;
+    }
+
+    /**
+     * @return 科目配置键
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+}
\ No newline at end of file
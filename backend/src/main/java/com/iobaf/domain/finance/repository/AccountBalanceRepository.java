@@ -0,0 +1,59 @@
+package com.iobaf.domain.finance.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.finance.entity.AccountBalance;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 科目期间余额数据访问层
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Mapper
+public interface AccountBalanceRepository extends BaseMapper<AccountBalance> {
+
+    /**
+     * 批量累加科目期间发生额
+     * 依赖 (account_id, period) 唯一索引，不存在时插入，存在时在原值上累加
+     * 
+     * @param balances 本次发生额
+     * @return 影响行数
+     */
+    int batchAccumulate(@Param("balances") List<AccountBalance> balances);
+
+    /**
+     * 查询指定期间的科目发生额
+     * 
+     * @param period 会计期间
+     * @return 科目期间余额列表
+     */
+    List<AccountBalance> selectByPeriod(@Param("period") String period);
+
+    /**
+     * 汇总指定期间之前（不含）各科目的累计发生额，用于计算期初余额
+     * 
+     * @param period 会计期间
+     * @param afterPeriod 起始期间（不含），为空时从最早期间开始汇总
+     * @param accountId 科目ID，为空时汇总全部科目
+     * @return 各科目累计发生额（period 字段为空）
+     */
+    List<AccountBalance> sumBeforePeriod(@Param("period") String period,
+                                         @Param("afterPeriod") String afterPeriod,
+                                         @Param("accountId") Long accountId);
+
+    /**
+     * 查询科目在期间范围内的发生额
+     * 
+     * @param accountId 科目ID
+     * @param startPeriod 开始期间（含）
+     * @param endPeriod 结束期间（含）
+     * @return 科目期间余额列表，按期间升序
+     */
+    List<AccountBalance> selectByAccountAndPeriodRange(@Param("accountId") Long accountId,
+                                                       @Param("startPeriod") String startPeriod,
+                                                       @Param("endPeriod") String endPeriod);
+}
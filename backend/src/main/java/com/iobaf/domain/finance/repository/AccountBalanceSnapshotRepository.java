@@ -0,0 +1,35 @@
+package com.iobaf.domain.finance.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.finance.entity.AccountBalanceSnapshot;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 科目余额快照数据访问层
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Mapper
+public interface AccountBalanceSnapshotRepository extends BaseMapper<AccountBalanceSnapshot> {
+
+    /**
+     * 批量插入快照
+     * 
+     * @param snapshots 快照列表
+     * @return 插入数量
+     */
+    int batchInsert(@Param("snapshots") List<AccountBalanceSnapshot> snapshots);
+
+    /**
+     * 查询指定期间的快照
+     * 
+     * @param period 会计期间
+     * @param accountId 科目ID，为空时查询全部科目
+     * @return 快照列表
+     */
+    List<AccountBalanceSnapshot> selectByPeriod(@Param("period") String period, @Param("accountId") Long accountId);
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.iobaf.domain.finance.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.finance.entity.Account;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 会计科目数据访问层
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Mapper
+public interface AccountRepository extends BaseMapper<Account> {
+}
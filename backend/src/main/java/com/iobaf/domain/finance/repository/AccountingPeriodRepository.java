@@ -0,0 +1,47 @@
+package com.iobaf.domain.finance.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.finance.entity.AccountingPeriod;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 会计期间数据访问层
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Mapper
+public interface AccountingPeriodRepository extends BaseMapper<AccountingPeriod> {
+
+    /**
+     * 查询最近一个已结账期间并加共享锁
+     * 过账事务持有该锁期间，结账写入新期间会被阻塞，保证过账与结账不会交错
+     * 
+     * @return 最近已结账期间，没有时为空
+     */
+    String selectLatestClosedPeriodForShare();
+
+    /**
+     * 查询最近一个已结账期间并加排他锁，用于串行化结账操作
+     * 
+     * @return 最近已结账期间，没有时为空
+     */
+    String selectLatestClosedPeriodForUpdate();
+
+    /**
+     * 查询指定期间之前（不含）最近一个已结账期间
+     * 
+     * @param period 会计期间
+     * @return 已结账期间，没有时为空
+     */
+    String selectLatestClosedBefore(@Param("period") String period);
+
+    /**
+     * 统计指定期间是否已结账
+     * 
+     * @param period 会计期间
+     * @return 已结账记录数
+     */
+    int countClosed(@Param("period") String period);
+}
\ No newline at end of file
@@ -23,4 +23,38 @@ public interface VoucherDetailRepository extends BaseMapper<VoucherDetail> {
      * @return 明细列表
      */
     List<VoucherDetail> selectByVoucherId(@Param("voucherId") Long voucherId);
+
+    /**
+     * 根据凭证ID列表批量查询明细
+     * 
+     * @param voucherIds 凭证ID列表
+     * @return 明细列表（按凭证ID、明细ID排序）
+     */
+    List<VoucherDetail> selectByVoucherIds(@Param("voucherIds") List<Long> voucherIds);
+
+    /**
+     * 根据凭证ID区间查询明细，按凭证ID、明细ID升序
+     * 
+     * @param fromVoucherId 起始凭证ID（含）
+     * @param toVoucherId 结束凭证ID（不含）
+     * @return 明细列表
+     */
+    List<VoucherDetail> selectByVoucherIdRange(@Param("fromVoucherId") Long fromVoucherId,
+                                               @Param("toVoucherId") Long toVoucherId);
+
+    /**
+     * 根据凭证ID删除明细
+     * 
+     * @param voucherId 凭证ID
+     * @return 删除数量
+     */
+    int deleteByVoucherId(@Param("voucherId") Long voucherId);
+
+    /**
+     * 批量插入明细
+     * 
+     * @param details 明细列表
+     * @return 插入数量
+     */
+    int batchInsert(@Param("details") List<VoucherDetail> details);
 } 
\ No newline at end of file
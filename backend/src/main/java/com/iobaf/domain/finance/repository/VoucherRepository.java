@@ -4,8 +4,14 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.vo.VoucherExportRowVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 凭证数据访问层
@@ -20,7 +26,9 @@ public interface VoucherRepository extends BaseMapper<Voucher> {
      * 分页查询凭证列表
      * 
      * @param page 分页参数
-     * @param voucherNo 凭证号（模糊查询）
+     * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，其他-包含
+     * @param voucherIds 由凭证号索引解析出的凭证ID，不为空时替代凭证号条件
      * @param voucherType 凭证类型
      * @param status 状态
      * @param startDate 开始日期
@@ -29,8 +37,167 @@ public interface VoucherRepository extends BaseMapper<Voucher> {
      */
     IPage<Voucher> selectVoucherPage(Page<Voucher> page, 
                                     @Param("voucherNo") String voucherNo,
+                                    @Param("voucherNoMatch") String voucherNoMatch,
+                                    @Param("voucherIds") List<Long> voucherIds,
                                     @Param("voucherType") Integer voucherType,
                                     @Param("status") Integer status,
                                     @Param("startDate") String startDate,
                                     @Param("endDate") String endDate);
+
+    /**
+     * 游标分页查询凭证列表
+     * 按 (create_time, id) 倒序定位到游标之后的数据，翻页深度不影响查询代价
+     * 
+     * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，其他-包含
+     * @param voucherIds 由凭证号索引解析出的凭证ID，不为空时替代凭证号条件
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param cursorTime 游标位置的创建时间，为空表示第一页
+     * @param cursorId 游标位置的凭证ID，为空表示第一页
+     * @param limit 查询条数
+     * @return 凭证列表
+     */
+    List<Voucher> selectVoucherSeek(@Param("voucherNo") String voucherNo,
+                                    @Param("voucherNoMatch") String voucherNoMatch,
+                                    @Param("voucherIds") List<Long> voucherIds,
+                                    @Param("voucherType") Integer voucherType,
+                                    @Param("status") Integer status,
+                                    @Param("startDate") String startDate,
+                                    @Param("endDate") String endDate,
+                                    @Param("cursorTime") LocalDateTime cursorTime,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
+
+    /**
+     * 统计凭证数量
+     * 
+     * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，其他-包含
+     * @param voucherIds 由凭证号索引解析出的凭证ID，不为空时替代凭证号条件
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 凭证数量
+     */
+    Long countVoucher(@Param("voucherNo") String voucherNo,
+                      @Param("voucherNoMatch") String voucherNoMatch,
+                      @Param("voucherIds") List<Long> voucherIds,
+                      @Param("voucherType") Integer voucherType,
+                      @Param("status") Integer status,
+                      @Param("startDate") String startDate,
+                      @Param("endDate") String endDate);
+
+    /**
+     * 按ID批量查询凭证并加行锁，用于批量状态变更前确定每张凭证的处理结果
+     * 
+     * @param ids 凭证ID列表
+     * @return 凭证列表
+     */
+    List<Voucher> selectByIdsForUpdate(@Param("ids") List<Long> ids);
+
+    /**
+     * 按状态条件批量更新凭证状态，仅更新当前状态等于期望状态的凭证
+     * 
+     * @param ids 凭证ID列表
+     * @param expectedStatus 期望的当前状态
+     * @param status 新状态
+     * @param auditUserId 审核人ID，为空时不更新审核信息
+     * @param auditTime 审核时间
+     * @return 更新数量
+     */
+    int batchUpdateStatusIfMatch(@Param("ids") List<Long> ids,
+                                 @Param("expectedStatus") Integer expectedStatus,
+                                 @Param("status") Integer status,
+                                 @Param("auditUserId") Long auditUserId,
+                                 @Param("auditTime") LocalDateTime auditTime);
+
+    /**
+     * 流式读取全部凭证的ID与凭证号
+     * 
+     * @param handler 结果处理器
+     */
+    void selectVoucherNoEntries(ResultHandler<Voucher> handler);
+
+    /**
+     * 查询最小凭证ID
+     * 
+     * @return 最小凭证ID，无凭证时为空
+     */
+    Long selectMinId();
+
+    /**
+     * 查询最早凭证日期
+     * 
+     * @return 最早凭证日期，无凭证时为空
+     */
+    LocalDate selectMinVoucherDate();
+
+    /**
+     * 查询最大凭证ID
+     * 
+     * @return 最大凭证ID，无凭证时为空
+     */
+    Long selectMaxId();
+
+    /**
+     * 根据ID区间查询凭证，按ID升序
+     * 
+     * @param fromId 起始ID（含）
+     * @param toId 结束ID（不含）
+     * @return 凭证列表
+     */
+    List<Voucher> selectByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * 流式读取凭证及明细导出行
+     * 按凭证ID、明细ID升序返回，同一凭证的明细连续输出，可从上次导出的最后一行（凭证ID、明细ID）之后续传
+     * 
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param afterId 续传起点凭证ID，为空时从头导出
+     * @param afterDetailId 续传起点明细ID，为空时从 afterId 的下一个凭证开始，否则从该凭证中此明细之后的行开始
+     * @param handler 结果处理器
+     */
+    void selectExportRows(@Param("voucherType") Integer voucherType,
+                          @Param("status") Integer status,
+                          @Param("startDate") String startDate,
+                          @Param("endDate") String endDate,
+                          @Param("afterId") Long afterId,
+                          @Param("afterDetailId") Long afterDetailId,
+                          ResultHandler<VoucherExportRowVO> handler);
+
+    /**
+     * 查询已存在的凭证号
+     * 
+     * @param voucherNos 凭证号列表
+     * @return 其中已存在的凭证号
+     */
+    List<String> selectExistingVoucherNos(@Param("voucherNos") List<String> voucherNos);
+
+    /**
+     * 流式读取指定凭证号前缀、日期区间内的凭证表头
+     * 
+     * @param voucherNoPrefix 凭证号前缀
+     * @param startDate 开始日期（含）
+     * @param endDate 结束日期（含）
+     * @param handler 结果处理器
+     */
+    void selectByVoucherNoPrefix(@Param("voucherNoPrefix") String voucherNoPrefix,
+                                 @Param("startDate") LocalDate startDate,
+                                 @Param("endDate") LocalDate endDate,
+                                 ResultHandler<Voucher> handler);
+
+    /**
+     * 批量插入凭证并回填主键
+     * 
+     * @param vouchers 凭证列表
+     * @return 插入数量
+     */
+    int batchInsert(@Param("vouchers") List<Voucher> vouchers);
 } 
\ No newline at end of file
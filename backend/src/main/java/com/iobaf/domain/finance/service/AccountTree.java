@@ -0,0 +1,203 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.domain.finance.entity.Account;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会计科目树（不可变）
+ * 科目按编码排序后以数组存储，父子关系保存为下标，构建完成后不再修改，可被多线程无锁共享；
+ * 科目变更时整体重建并替换引用
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class AccountTree {
+
+    private static final int NO_PARENT = -1;
+
+    private final Account[] accounts;
+
+    private final int[] parentIndexes;
+
+    private final int[][] childIndexes;
+
+    private final int[] rootIndexes;
+
+    private final Map<Long, Integer> indexById;
+
+    private AccountTree(Account[] accounts, int[] parentIndexes, int[][] childIndexes, int[] rootIndexes,
+                        Map<Long, Integer> indexById) {
+        this.accounts = accounts;
+        this.parentIndexes = parentIndexes;
+        this.childIndexes = childIndexes;
+        this.rootIndexes = rootIndexes;
+        this.indexById = indexById;
+    }
+
+    /**
+     * 根据科目列表构建科目树
+     * 父级科目不存在或形成环时，该科目作为根节点处理
+     *
+     * @param accountList 科目列表
+     * @return 科目树
+     */
+    public static AccountTree build(List<Account> accountList) {
+        List<Account> sorted = new ArrayList<>(accountList);
+        sorted.sort(Comparator.comparing(Account::getAccountCode, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        int size = sorted.size();
+        Account[] accounts = sorted.toArray(new Account[0]);
+        Map<Long, Integer> indexById = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexById.put(accounts[i].getId(), i);
+        }
+
+        int[] parentIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            Integer parent = accounts[i].getParentId() == null ? null : indexById.get(accounts[i].getParentId());
+            parentIndexes[i] = parent == null || parent == i ? NO_PARENT : parent;
+        }
+        breakCycles(parentIndexes);
+
+        int[] childCounts = new int[size];
+        int rootCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (parentIndexes[i] == NO_PARENT) {
+                rootCount++;
+            } else {
+                childCounts[parentIndexes[i]]++;
+            }
+        }
+        int[][] childIndexes = new int[size][];
+        for (int i = 0; i < size; i++) {
+            childIndexes[i] = new int[childCounts[i]];
+            childCounts[i] = 0;
+        }
+        int[] rootIndexes = new int[rootCount];
+        rootCount = 0;
+        for (int i = 0; i < size; i++) {
+            int parent = parentIndexes[i];
+            if (parent == NO_PARENT) {
+                rootIndexes[rootCount++] = i;
+            } else {
+                childIndexes[parent][childCounts[parent]++] = i;
+            }
+        }
+        return new AccountTree(accounts, parentIndexes, childIndexes, rootIndexes,
+                Collections.unmodifiableMap(indexById));
+    }
+
+    /**
+     * 空科目树
+     *
+     * @return 空科目树
+     */
+    public static AccountTree empty() {
+        return build(Collections.emptyList());
+    }
+
+    /**
+     * 科目数量
+     *
+     * @return 科目数量
+     */
+    public int size() {
+        return accounts.length;
+    }
+
+    /**
+     * 根据科目ID获取节点下标
+     *
+     * @param accountId 科目ID
+     * @return 节点下标，科目不存在时返回-1
+     */
+    public int indexOf(Long accountId) {
+        Integer index = indexById.get(accountId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 获取节点对应的科目
+     *
+     * @param index 节点下标
+     * @return 科目
+     */
+    public Account getAccount(int index) {
+        return accounts[index];
+    }
+
+    /**
+     * 获取父节点下标
+     *
+     * @param index 节点下标
+     * @return 父节点下标，根节点返回-1
+     */
+    public int getParentIndex(int index) {
+        return parentIndexes[index];
+    }
+
+    /**
+     * 获取子节点下标（按科目编码排序）
+     *
+     * @param index 节点下标
+     * @return 子节点下标，调用方不得修改
+     */
+    public int[] getChildIndexes(int index) {
+        return childIndexes[index];
+    }
+
+    /**
+     * 获取根节点下标（按科目编码排序）
+     *
+     * @return 根节点下标，调用方不得修改
+     */
+    public int[] getRootIndexes() {
+        return rootIndexes;
+    }
+
+    /**
+     * 沿父链把金额汇总到科目自身及全部上级科目，复杂度为树深度
+     *
+     * @param totals 按节点下标存放的汇总数组
+     * @param index 科目节点下标
+     * @param amount 待汇总金额
+     */
+    public void rollUp(MoneySum[] totals, int index, BigDecimal amount) {
+        for (int i = index; i != NO_PARENT; i = parentIndexes[i]) {
+            if (totals[i] == null) {
+                totals[i] = new MoneySum();
+            }
+            totals[i].add(amount);
+        }
+    }
+
+    /**
+     * 断开父链中的环，环上首个被重复访问的科目被提升为根节点
+     */
+    private static void breakCycles(int[] parentIndexes) {
+        int size = parentIndexes.length;
+        // 0-未访问，1-访问中，2-已完成
+        byte[] states = new byte[size];
+        for (int start = 0; start < size; start++) {
+            int i = start;
+            while (i != NO_PARENT && states[i] == 0) {
+                states[i] = 1;
+                i = parentIndexes[i];
+            }
+            if (i != NO_PARENT && states[i] == 1) {
+                parentIndexes[i] = NO_PARENT;
+            }
+            for (int j = start; j != NO_PARENT && states[j] == 1; j = parentIndexes[j]) {
+                states[j] = 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.domain.finance.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会计科目树缓存
+ * 启动时加载一次，科目变更后调用 {@link #refresh()} 重建并原子替换，读取方始终看到完整的一棵树
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class AccountTreeCache {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private volatile AccountTree tree = AccountTree.empty();
+
+    /**
+     * 启动完成后加载科目树；监听方法不返回值，否则返回值会被作为新事件发布
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * 重新加载科目树
+     *
+     * @return 新的科目树
+     */
+    public AccountTree refresh() {
+        AccountTree rebuilt = AccountTree.build(accountRepository.selectList(null));
+        tree = rebuilt;
+        log.info("会计科目树加载完成，科目数={}", rebuilt.size());
+        return rebuilt;
+    }
+
+    /**
+     * 获取当前科目树
+     *
+     * @return 科目树
+     */
+    public AccountTree getTree() {
+        return tree;
+    }
+}
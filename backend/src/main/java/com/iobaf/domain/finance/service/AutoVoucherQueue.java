@@ -0,0 +1,329 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.domain.finance.event.AutoVoucherCreatedEvent;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.repository.VoucherRepository;
+import com.iobaf.domain.finance.vo.VoucherDetailVO;
+import com.iobaf.domain.finance.vo.VoucherVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自动凭证生成队列
+ * 业务事件在事务提交后进入有界队列，由单个后台线程批量取出：
+ * 同一凭证号的重复事件合并为一条，已生成过的凭证号跳过，其余通过
+ * {@link FinanceDomainService#createVouchers} 一次批量写入。
+ * 队列满时提交方最多等待 offer-timeout-ms，形成背压；写入失败按指数退避重试，
+ * 重试耗尽后逐条写入，避免单个异常事件拖垮整批
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class AutoVoucherQueue {
+
+    private static final String ACCOUNT_PROPERTY_PREFIX = "iobaf.finance.auto-voucher.accounts.";
+
+    private static final int DIRECTION_DEBIT = 1;
+
+    private static final int DIRECTION_CREDIT = 2;
+
+    /**
+     * 后台线程取队列的等待时间，用于及时响应停止信号
+     */
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+
+    @Autowired
+    private FinanceDomainService financeDomainService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${iobaf.finance.auto-voucher.capacity:10000}")
+    private int capacity;
+
+    @Value("${iobaf.finance.auto-voucher.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${iobaf.finance.auto-voucher.offer-timeout-ms:5000}")
+    private long offerTimeoutMillis;
+
+    @Value("${iobaf.finance.auto-voucher.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${iobaf.finance.auto-voucher.retry-backoff-ms:200}")
+    private long retryBackoffMillis;
+
+    private BlockingQueue<AutoVoucherEvent> queue;
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        worker = new Thread(this::run, "auto-voucher-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止接收新事件，处理完队列中剩余事件后退出
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("自动凭证队列停止时仍有{}个事件未处理", queue.size());
+        }
+    }
+
+    /**
+     * 提交凭证生成事件
+     * 存在事务时在事务提交后入队，业务回滚则不生成凭证
+     *
+     * @param event 凭证生成事件
+     */
+    public void submit(AutoVoucherEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    /**
+     * 查询队列运行状态
+     *
+     * @return 队列长度与各项计数
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running);
+        status.put("queued", queue.size());
+        status.put("capacity", capacity);
+        status.put("submitted", submitted.sum());
+        status.put("rejected", rejected.sum());
+        status.put("coalesced", coalesced.sum());
+        status.put("skipped", skipped.sum());
+        status.put("created", created.sum());
+        status.put("failed", failed.sum());
+        status.put("batches", batches.sum());
+        return status;
+    }
+
+    private void enqueue(AutoVoucherEvent event) {
+        if (!running) {
+            rejected.increment();
+            log.error("自动凭证队列已停止，事件被拒绝：{}", event.getVoucherNo());
+            return;
+        }
+        try {
+            if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                submitted.increment();
+                return;
+            }
+            log.error("自动凭证队列已满（容量{}），等待{}ms后事件被拒绝：{}", capacity, offerTimeoutMillis, event.getVoucherNo());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("自动凭证事件入队被中断：{}", event.getVoucherNo());
+        }
+        rejected.increment();
+    }
+
+    private void run() {
+        List<AutoVoucherEvent> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AutoVoucherEvent first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                // 停止时不中断正在进行的写入，继续处理剩余事件
+                log.warn("自动凭证写入线程被中断");
+            } catch (RuntimeException e) {
+                failed.add(batch.size());
+                log.error("自动凭证批次处理失败，事件数={}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 处理一批事件：合并、去重、构建凭证并写入
+     */
+    private void process(List<AutoVoucherEvent> batch) throws InterruptedException {
+        Map<String, AutoVoucherEvent> merged = new LinkedHashMap<>();
+        for (AutoVoucherEvent event : batch) {
+            merged.put(event.getVoucherNo(), event);
+        }
+        coalesced.add(batch.size() - merged.size());
+
+        for (String voucherNo : voucherRepository.selectExistingVoucherNos(new ArrayList<>(merged.keySet()))) {
+            merged.remove(voucherNo);
+            skipped.increment();
+        }
+
+        List<AutoVoucherEvent> events = new ArrayList<>(merged.size());
+        List<VoucherVO> voucherVOs = new ArrayList<>(merged.size());
+        Map<String, Long[]> accounts = new HashMap<>();
+        for (AutoVoucherEvent event : merged.values()) {
+            Long[] accountIds = accounts.computeIfAbsent(event.getSource().getConfigKey(), this::resolveAccounts);
+            if (accountIds == null || event.getAmount() == null || event.getAmount().signum() <= 0) {
+                failed.increment();
+                log.warn("自动凭证事件无效或未配置科目，已忽略：{}，金额={}", event.getVoucherNo(), event.getAmount());
+                continue;
+            }
+            events.add(event);
+            voucherVOs.add(buildVoucher(event, accountIds[0], accountIds[1]));
+        }
+        if (voucherVOs.isEmpty()) {
+            return;
+        }
+
+        batches.increment();
+        if (writeWithRetry(voucherVOs)) {
+            published(events, voucherVOs);
+            return;
+        }
+        // 整批重试失败后逐条写入，隔离异常事件
+        for (int i = 0; i < voucherVOs.size(); i++) {
+            List<VoucherVO> single = voucherVOs.subList(i, i + 1);
+            if (writeWithRetry(single)) {
+                published(events.subList(i, i + 1), single);
+            } else {
+                failed.increment();
+                log.error("自动凭证生成失败：{}", events.get(i).getVoucherNo());
+            }
+        }
+    }
+
+    /**
+     * 写入凭证，临时性失败按指数退避重试；校验不通过的数据不重试
+     *
+     * @return 是否写入成功
+     */
+    private boolean writeWithRetry(List<VoucherVO> voucherVOs) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                financeDomainService.createVouchers(voucherVOs);
+                return true;
+            } catch (IllegalArgumentException e) {
+                log.warn("自动凭证校验不通过，凭证数={}：{}", voucherVOs.size(), e.getMessage());
+                return false;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    log.error("自动凭证写入失败，已重试{}次，凭证数={}", attempt, voucherVOs.size(), e);
+                    return false;
+                }
+                log.warn("自动凭证写入失败，第{}次重试，凭证数={}：{}", attempt, voucherVOs.size(), e.getMessage());
+                Thread.sleep(retryBackoffMillis << (attempt - 1));
+            }
+        }
+    }
+
+    private void published(List<AutoVoucherEvent> events, List<VoucherVO> voucherVOs) {
+        created.add(voucherVOs.size());
+        for (int i = 0; i < events.size(); i++) {
+            AutoVoucherEvent event = events.get(i);
+            VoucherVO voucherVO = voucherVOs.get(i);
+            try {
+                eventPublisher.publishEvent(new AutoVoucherCreatedEvent(event.getSource(), event.getSourceId(),
+                        voucherVO.getId(), voucherVO.getVoucherNo()));
+            } catch (RuntimeException e) {
+                log.error("自动凭证生成通知处理失败：{}", voucherVO.getVoucherNo(), e);
+            }
+        }
+    }
+
+    /**
+     * 读取来源业务的借贷科目配置
+     *
+     * @return [借方科目ID, 贷方科目ID]，未配置时返回null
+     */
+    private Long[] resolveAccounts(String configKey) {
+        Long debitAccountId = environment.getProperty(ACCOUNT_PROPERTY_PREFIX + configKey + ".debit-account-id", Long.class);
+        Long creditAccountId = environment.getProperty(ACCOUNT_PROPERTY_PREFIX + configKey + ".credit-account-id", Long.class);
+        if (debitAccountId == null || creditAccountId == null) {
+            return null;
+        }
+        return new Long[]{debitAccountId, creditAccountId};
+    }
+
+    private VoucherVO buildVoucher(AutoVoucherEvent event, Long debitAccountId, Long creditAccountId) {
+        VoucherVO voucherVO = new VoucherVO();
+        voucherVO.setVoucherNo(event.getVoucherNo());
+        voucherVO.setVoucherDate(event.getVoucherDate() == null ? LocalDate.now() : event.getVoucherDate());
+        voucherVO.setSummary(event.getSummary());
+        voucherVO.setTotalAmount(event.getAmount());
+        voucherVO.setVoucherType(event.getSource().getVoucherType());
+
+        List<VoucherDetailVO> details = new ArrayList<>(2);
+        details.add(buildDetail(debitAccountId, DIRECTION_DEBIT, event));
+        details.add(buildDetail(creditAccountId, DIRECTION_CREDIT, event));
+        voucherVO.setDetails(details);
+        return voucherVO;
+    }
+
+    private VoucherDetailVO buildDetail(Long accountId, int direction, AutoVoucherEvent event) {
+        VoucherDetailVO detail = new VoucherDetailVO();
+        detail.setAccountId(accountId);
+        detail.setDirection(direction);
+        detail.setAmount(event.getAmount());
+        detail.setSummary(event.getSummary());
+        return detail;
+    }
+}
\ No newline at end of file
@@ -6,16 +6,25 @@ import com.iobaf.domain.finance.entity.Voucher;
 import com.iobaf.domain.finance.entity.VoucherDetail;
 import com.iobaf.domain.finance.repository.VoucherRepository;
 import com.iobaf.domain.finance.repository.VoucherDetailRepository;
+import com.iobaf.domain.finance.vo.VoucherBatchResultVO;
+import com.iobaf.domain.finance.vo.VoucherCursorPageVO;
 import com.iobaf.domain.finance.vo.VoucherVO;
 import com.iobaf.domain.finance.vo.VoucherDetailVO;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * 财务领域服务
@@ -26,36 +35,84 @@ import java.util.stream.Collectors;
 @Service
 public class FinanceDomainService {
 
+    /**
+     * 游标中创建时间与凭证ID的分隔符
+     */
+    private static final String CURSOR_SEPARATOR = ",";
+
+    /**
+     * 凭证状态：草稿
+     */
+    private static final int STATUS_DRAFT = 1;
+
+    /**
+     * 凭证状态：已审核
+     */
+    private static final int STATUS_AUDITED = 2;
+
+    /**
+     * 凭证状态：已过账
+     */
+    private static final int STATUS_POSTED = 3;
+
+    /**
+     * 凭证号索引命中数上限，超过时回退到数据库模糊查询，避免生成过长的 IN 条件
+     */
+    private static final int MAX_INDEXED_VOUCHER_IDS = 2000;
+
     @Autowired
     private VoucherRepository voucherRepository;
 
     @Autowired
     private VoucherDetailRepository voucherDetailRepository;
 
+    @Autowired
+    private VoucherNoIndex voucherNoIndex;
+
+    @Autowired
+    private LedgerDomainService ledgerDomainService;
+
+    /**
+     * 凭证及明细批量写入时每条多行INSERT包含的行数
+     */
+    @Value("${iobaf.finance.batch-size:500}")
+    private int batchSize;
+
     /**
      * 分页查询凭证列表
      * 
      * @param page 分页参数
      * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，CONTAINS-包含
      * @param voucherType 凭证类型
      * @param status 状态
      * @param startDate 开始日期
      * @param endDate 结束日期
+     * @param withDetails 是否加载明细，列表页仅展示表头时传false
      * @return 凭证列表
      */
     public IPage<VoucherVO> getVoucherPage(Page<Voucher> page, 
                                           String voucherNo, 
+                                          String voucherNoMatch,
                                           Integer voucherType, 
                                           Integer status,
                                           String startDate,
-                                          String endDate) {
+                                          String endDate,
+                                          boolean withDetails) {
+        // 包含匹配优先由凭证号索引解析
+        List<Long> voucherIds = resolveVoucherIds(voucherNo, voucherNoMatch);
+        if (voucherIds != null && voucherIds.isEmpty()) {
+            Page<VoucherVO> emptyPage = new Page<>(page.getCurrent(), page.getSize(), 0);
+            emptyPage.setRecords(new ArrayList<>());
+            return emptyPage;
+        }
+        
         // 查询凭证数据
-        IPage<Voucher> voucherPage = voucherRepository.selectVoucherPage(page, voucherNo, voucherType, status, startDate, endDate);
+        IPage<Voucher> voucherPage = voucherRepository.selectVoucherPage(page, voucherNo, voucherNoMatch, voucherIds,
+                voucherType, status, startDate, endDate);
         
         // 转换为VO对象
-        List<VoucherVO> voucherVOList = voucherPage.getRecords().stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        List<VoucherVO> voucherVOList = convertToVOList(voucherPage.getRecords(), withDetails);
         
         // 创建新的分页结果
         Page<VoucherVO> resultPage = new Page<>(page.getCurrent(), page.getSize(), page.getTotal());
@@ -64,6 +121,72 @@ public class FinanceDomainService {
         return resultPage;
     }
 
+    /**
+     * 游标分页查询凭证列表
+     * 按 (create_time, id) 定位翻页，深层页与首页代价相同；仅在 withTotal 为 true 时执行 COUNT 查询
+     * 
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param size 每页大小
+     * @param voucherNo 凭证号
+     * @param voucherNoMatch 凭证号匹配方式：EXACT-精确，PREFIX-前缀，CONTAINS-包含
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param withDetails 是否加载明细
+     * @param withTotal 是否统计总数
+     * @return 凭证游标分页结果
+     */
+    public VoucherCursorPageVO getVoucherCursorPage(String cursor,
+                                                   long size,
+                                                   String voucherNo,
+                                                   String voucherNoMatch,
+                                                   Integer voucherType,
+                                                   Integer status,
+                                                   String startDate,
+                                                   String endDate,
+                                                   boolean withDetails,
+                                                   boolean withTotal) {
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            cursorTime = LocalDateTime.parse(position[0]);
+            cursorId = Long.valueOf(position[1]);
+        }
+        
+        VoucherCursorPageVO result = new VoucherCursorPageVO();
+        result.setSize(size);
+        List<Long> voucherIds = resolveVoucherIds(voucherNo, voucherNoMatch);
+        if (voucherIds != null && voucherIds.isEmpty()) {
+            result.setRecords(new ArrayList<>());
+            result.setHasMore(false);
+            result.setTotal(withTotal ? 0L : null);
+            return result;
+        }
+        
+        // 多取一条用于判断是否还有下一页
+        int limit = (int) size;
+        List<Voucher> vouchers = voucherRepository.selectVoucherSeek(voucherNo, voucherNoMatch, voucherIds,
+                voucherType, status, startDate, endDate, cursorTime, cursorId, limit + 1);
+        boolean hasMore = vouchers.size() > limit;
+        if (hasMore) {
+            vouchers = vouchers.subList(0, limit);
+        }
+        
+        result.setRecords(convertToVOList(vouchers, withDetails));
+        result.setHasMore(hasMore);
+        if (hasMore) {
+            Voucher last = vouchers.get(vouchers.size() - 1);
+            result.setNextCursor(encodeCursor(last.getCreateTime(), last.getId()));
+        }
+        if (withTotal) {
+            result.setTotal(voucherRepository.countVoucher(voucherNo, voucherNoMatch, voucherIds,
+                    voucherType, status, startDate, endDate));
+        }
+        return result;
+    }
+
     /**
      * 根据ID查询凭证详情
      * 
@@ -83,16 +206,12 @@ public class FinanceDomainService {
      * 
      * @param voucherVO 凭证信息
      * @return 是否成功
+     * @throws IllegalArgumentException 凭证借贷不平衡或明细无效
      */
     @Transactional
     public boolean createVoucher(VoucherVO voucherVO) {
-        Voucher voucher = new Voucher();
-        BeanUtils.copyProperties(voucherVO, voucher);
-        
-        // 设置默认状态
-        if (voucher.getStatus() == null) {
-            voucher.setStatus(1);
-        }
+        VoucherBalanceValidator.validate(voucherVO);
+        Voucher voucher = buildVoucher(voucherVO);
         
         // 保存凭证
         boolean success = voucherRepository.insert(voucher) > 0;
@@ -101,76 +220,120 @@ public class FinanceDomainService {
         }
         
         // 保存明细
-        if (voucherVO.getDetails() != null && !voucherVO.getDetails().isEmpty()) {
-            for (VoucherDetailVO detailVO : voucherVO.getDetails()) {
-                VoucherDetail detail = new VoucherDetail();
-                BeanUtils.copyProperties(detailVO, detail);
-                detail.setVoucherId(voucher.getId());
-                voucherDetailRepository.insert(detail);
+        insertDetails(voucher.getId(), voucherVO.getDetails());
+        voucherNoIndex.put(voucher.getId(), voucher.getVoucherNo());
+        
+        return true;
+    }
+
+    /**
+     * 批量创建凭证
+     * 表头按批次多行插入并回填主键，随后所有凭证的明细合并后按批次多行插入，
+     * 整个批次在同一事务中完成，生成的凭证ID回填到传入的凭证信息中
+     * 
+     * @param voucherVOs 凭证信息列表
+     * @return 创建的凭证数量
+     * @throws IllegalArgumentException 凭证借贷不平衡或明细无效
+     */
+    @Transactional
+    public int createVouchers(List<VoucherVO> voucherVOs) {
+        if (voucherVOs == null || voucherVOs.isEmpty()) {
+            return 0;
+        }
+        
+        for (int i = 0; i < voucherVOs.size(); i++) {
+            try {
+                VoucherBalanceValidator.validate(voucherVOs.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第" + (i + 1) + "张凭证：" + e.getMessage(), e);
             }
         }
         
-        return true;
+        // 批量保存凭证表头
+        List<Voucher> vouchers = new ArrayList<>(voucherVOs.size());
+        for (VoucherVO voucherVO : voucherVOs) {
+            Voucher voucher = buildVoucher(voucherVO);
+            voucher.setId(null);
+            vouchers.add(voucher);
+        }
+        int created = 0;
+        for (int from = 0; from < vouchers.size(); from += batchSize) {
+            created += voucherRepository.batchInsert(vouchers.subList(from, Math.min(from + batchSize, vouchers.size())));
+        }
+        
+        // 合并所有凭证的明细后批量保存
+        List<VoucherDetail> details = new ArrayList<>();
+        for (int i = 0; i < voucherVOs.size(); i++) {
+            details.addAll(buildDetails(vouchers.get(i).getId(), voucherVOs.get(i).getDetails()));
+        }
+        batchInsertDetails(details);
+        for (int i = 0; i < vouchers.size(); i++) {
+            Voucher voucher = vouchers.get(i);
+            voucherVOs.get(i).setId(voucher.getId());
+            voucherNoIndex.put(voucher.getId(), voucher.getVoucherNo());
+        }
+        
+        return created;
     }
 
     /**
      * 更新凭证
+     * 仅草稿凭证可修改；状态及审核信息不随凭证信息更新，只能经审核、过账变更
      * 
      * @param voucherVO 凭证信息
-     * @return 是否成功
+     * @return 是否成功，凭证不存在或不是草稿时返回false
+     * @throws IllegalArgumentException 凭证借贷不平衡或明细无效
      */
     @Transactional
     public boolean updateVoucher(VoucherVO voucherVO) {
-        Voucher voucher = new Voucher();
-        BeanUtils.copyProperties(voucherVO, voucher);
+        VoucherBalanceValidator.validate(voucherVO);
+        if (!lockDraft(voucherVO.getId())) {
+            return false;
+        }
         
-        // 更新凭证
+        Voucher voucher = VoucherConverter.toEntity(voucherVO);
+        voucher.setStatus(null);
+        voucher.setAuditUserId(null);
+        voucher.setAuditTime(null);
+        
+        // 更新凭证，空字段不更新
         boolean success = voucherRepository.updateById(voucher) > 0;
         if (!success) {
             return false;
         }
         
-        // 删除原有明细
-        voucherDetailRepository.delete(
-            voucherDetailRepository.selectList(null).stream()
-                .filter(detail -> detail.getVoucherId().equals(voucher.getId()))
-                .collect(Collectors.toList())
-        );
-        
-        // 保存新明细
-        if (voucherVO.getDetails() != null && !voucherVO.getDetails().isEmpty()) {
-            for (VoucherDetailVO detailVO : voucherVO.getDetails()) {
-                VoucherDetail detail = new VoucherDetail();
-                BeanUtils.copyProperties(detailVO, detail);
-                detail.setVoucherId(voucher.getId());
-                voucherDetailRepository.insert(detail);
-            }
-        }
+        // 按凭证ID整体替换明细：一次索引删除 + 一次批量插入
+        voucherDetailRepository.deleteByVoucherId(voucher.getId());
+        insertDetails(voucher.getId(), voucherVO.getDetails());
+        voucherNoIndex.put(voucher.getId(), voucher.getVoucherNo());
         
         return true;
     }
 
     /**
      * 删除凭证
+     * 仅草稿凭证可删除
      * 
      * @param id 凭证ID
-     * @return 是否成功
+     * @return 是否成功，凭证不存在或不是草稿时返回false
      */
     @Transactional
     public boolean deleteVoucher(Long id) {
+        if (!lockDraft(id)) {
+            return false;
+        }
+        
         // 删除明细
-        voucherDetailRepository.delete(
-            voucherDetailRepository.selectList(null).stream()
-                .filter(detail -> detail.getVoucherId().equals(id))
-                .collect(Collectors.toList())
-        );
+        voucherDetailRepository.deleteByVoucherId(id);
         
         // 删除凭证
+        voucherNoIndex.delete(id);
         return voucherRepository.deleteById(id) > 0;
     }
 
     /**
      * 审核凭证
+     * 仅草稿凭证可审核，状态更新带条件，并发审核不会相互覆盖
      * 
      * @param id 凭证ID
      * @param auditUserId 审核人ID
@@ -178,16 +341,246 @@ public class FinanceDomainService {
      */
     @Transactional
     public boolean auditVoucher(Long id, Long auditUserId) {
-        Voucher voucher = voucherRepository.selectById(id);
-        if (voucher == null) {
+        VoucherBatchResultVO result = auditVouchers(Collections.singletonList(id), auditUserId);
+        return VoucherBatchResultVO.OUTCOME_SUCCESS.equals(result.getOutcomes().get(id));
+    }
+
+    /**
+     * 凭证过账
+     * 仅已审核凭证可过账，状态更新带条件保证同一凭证只计入总账一次
+     * 
+     * @param id 凭证ID
+     * @return 是否成功
+     */
+    @Transactional
+    public boolean postVoucher(Long id) {
+        VoucherBatchResultVO result = postVouchers(Collections.singletonList(id));
+        return VoucherBatchResultVO.OUTCOME_SUCCESS.equals(result.getOutcomes().get(id));
+    }
+
+    /**
+     * 批量审核凭证
+     * 
+     * @param ids 凭证ID列表
+     * @param auditUserId 审核人ID
+     * @return 每张凭证的处理结果
+     */
+    @Transactional
+    public VoucherBatchResultVO auditVouchers(List<Long> ids, Long auditUserId) {
+        return changeStatus(ids, STATUS_DRAFT, STATUS_AUDITED, auditUserId, LocalDateTime.now(), false);
+    }
+
+    /**
+     * 批量过账凭证，过账成功的凭证在同一事务中计入总账
+     * 
+     * @param ids 凭证ID列表
+     * @return 每张凭证的处理结果
+     */
+    @Transactional
+    public VoucherBatchResultVO postVouchers(List<Long> ids) {
+        return changeStatus(ids, STATUS_AUDITED, STATUS_POSTED, null, null, true);
+    }
+
+    /**
+     * 以 SELECT ... FOR UPDATE 锁定凭证并判断是否为草稿，行锁持有到事务结束，
+     * 与审核、过账的加锁方式一致，判断之后凭证不会被并发审核或过账
+     * 
+     * @param id 凭证ID
+     * @return 凭证存在且为草稿
+     */
+    private boolean lockDraft(Long id) {
+        if (id == null) {
             return false;
         }
+        List<Voucher> locked = voucherRepository.selectByIdsForUpdate(Collections.singletonList(id));
+        return !locked.isEmpty() && Integer.valueOf(STATUS_DRAFT).equals(locked.get(0).getStatus());
+    }
+
+    /**
+     * 批量变更凭证状态
+     * 每批先以 SELECT ... FOR UPDATE 锁定凭证并判定各自结果，再以一条带状态条件的
+     * UPDATE ... WHERE id IN (...) AND status = ? 完成变更；行锁保证判定结果与实际更新一致，
+     * 状态条件保证并发操作不会覆盖彼此的结果；过账时凭证日期落在已结账期间的不予过账
+     * 
+     * @param ids 凭证ID列表
+     * @param expectedStatus 允许变更的当前状态
+     * @param status 新状态
+     * @param auditUserId 审核人ID，为空时不更新审核信息
+     * @param auditTime 审核时间
+     * @param postToLedger 是否将变更成功的凭证计入总账
+     * @return 每张凭证的处理结果
+     */
+    private VoucherBatchResultVO changeStatus(List<Long> ids, int expectedStatus, int status,
+                                              Long auditUserId, LocalDateTime auditTime, boolean postToLedger) {
+        Map<Long, String> outcomes = new LinkedHashMap<>();
+        if (ids != null) {
+            for (Long id : ids) {
+                if (id != null) {
+                    outcomes.put(id, VoucherBatchResultVO.OUTCOME_NOT_FOUND);
+                }
+            }
+        }
+        
+        List<Long> distinctIds = new ArrayList<>(outcomes.keySet());
+        List<Voucher> changed = new ArrayList<>();
+        String closedThrough = postToLedger ? ledgerDomainService.lockClosedThrough() : null;
+        for (int from = 0; from < distinctIds.size(); from += batchSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + batchSize, distinctIds.size()));
+            List<Long> eligibleIds = new ArrayList<>(chunk.size());
+            for (Voucher voucher : voucherRepository.selectByIdsForUpdate(chunk)) {
+                if (!Integer.valueOf(expectedStatus).equals(voucher.getStatus())) {
+                    outcomes.put(voucher.getId(), VoucherBatchResultVO.OUTCOME_INVALID_STATUS);
+                } else if (closedThrough != null
+                        && LedgerDomainService.toPeriod(voucher.getVoucherDate()).compareTo(closedThrough) <= 0) {
+                    outcomes.put(voucher.getId(), VoucherBatchResultVO.OUTCOME_PERIOD_CLOSED);
+                } else {
+                    eligibleIds.add(voucher.getId());
+                    changed.add(voucher);
+                    outcomes.put(voucher.getId(), VoucherBatchResultVO.OUTCOME_SUCCESS);
+                }
+            }
+            if (!eligibleIds.isEmpty()) {
+                voucherRepository.batchUpdateStatusIfMatch(eligibleIds, expectedStatus, status, auditUserId, auditTime);
+            }
+        }
         
-        voucher.setStatus(2);
-        voucher.setAuditUserId(auditUserId);
-        voucher.setAuditTime(java.time.LocalDateTime.now());
+        if (postToLedger && !changed.isEmpty()) {
+            ledgerDomainService.postToLedger(changed, selectDetailMap(changed));
+        }
         
-        return voucherRepository.updateById(voucher) > 0;
+        VoucherBatchResultVO result = new VoucherBatchResultVO();
+        result.setTotal(outcomes.size());
+        result.setSuccessCount(changed.size());
+        result.setFailureCount(outcomes.size() - changed.size());
+        result.setOutcomes(outcomes);
+        return result;
+    }
+
+    /**
+     * 按批次查询凭证明细并按凭证ID分组
+     * 
+     * @param vouchers 凭证实体列表
+     * @return 凭证ID到明细列表的映射
+     */
+    private Map<Long, List<VoucherDetail>> selectDetailMap(List<Voucher> vouchers) {
+        List<Long> voucherIds = new ArrayList<>(vouchers.size());
+        for (Voucher voucher : vouchers) {
+            voucherIds.add(voucher.getId());
+        }
+        Map<Long, List<VoucherDetail>> detailMap = new HashMap<>(voucherIds.size() * 2);
+        for (int from = 0; from < voucherIds.size(); from += batchSize) {
+            List<Long> chunk = voucherIds.subList(from, Math.min(from + batchSize, voucherIds.size()));
+            for (VoucherDetail detail : voucherDetailRepository.selectByVoucherIds(chunk)) {
+                detailMap.computeIfAbsent(detail.getVoucherId(), key -> new ArrayList<>()).add(detail);
+            }
+        }
+        return detailMap;
+    }
+
+    /**
+     * 通过凭证号索引解析包含匹配的凭证ID
+     * 
+     * @param voucherNo 凭证号关键字
+     * @param voucherNoMatch 凭证号匹配方式
+     * @return 命中的凭证ID；精确/前缀匹配或索引无法回答时返回null，由数据库条件处理
+     */
+    private List<Long> resolveVoucherIds(String voucherNo, String voucherNoMatch) {
+        if (voucherNo == null || voucherNo.isEmpty()
+                || "EXACT".equals(voucherNoMatch) || "PREFIX".equals(voucherNoMatch)) {
+            return null;
+        }
+        return voucherNoIndex.search(voucherNo, MAX_INDEXED_VOUCHER_IDS);
+    }
+
+    /**
+     * 生成游标：对 (create_time, id) 做URL安全的Base64编码，调用方不依赖其内部格式
+     * 
+     * @param createTime 创建时间
+     * @param id 凭证ID
+     * @return 游标
+     */
+    private String encodeCursor(LocalDateTime createTime, Long id) {
+        String position = createTime + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * 
+     * @param cursor 游标
+     * @return [创建时间, 凭证ID]
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    private String[] decodeCursor(String cursor) {
+        String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = position.split(CURSOR_SEPARATOR, 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        return parts;
+    }
+
+    /**
+     * 构建待保存的凭证实体
+     * 
+     * @param voucherVO 凭证信息
+     * @return 凭证实体
+     */
+    private Voucher buildVoucher(VoucherVO voucherVO) {
+        Voucher voucher = VoucherConverter.toEntity(voucherVO);
+        
+        // 新建凭证一律为草稿，审核、过账须经对应操作
+        voucher.setStatus(STATUS_DRAFT);
+        voucher.setAuditUserId(null);
+        voucher.setAuditTime(null);
+        if (voucher.getCreateTime() == null) {
+            voucher.setCreateTime(LocalDateTime.now());
+        }
+        return voucher;
+    }
+
+    /**
+     * 保存单张凭证的明细
+     * 
+     * @param voucherId 凭证ID
+     * @param detailVOs 明细信息
+     */
+    private void insertDetails(Long voucherId, List<VoucherDetailVO> detailVOs) {
+        batchInsertDetails(buildDetails(voucherId, detailVOs));
+    }
+
+    /**
+     * 构建待保存的明细实体
+     * 
+     * @param voucherId 凭证ID
+     * @param detailVOs 明细信息
+     * @return 明细实体列表
+     */
+    private List<VoucherDetail> buildDetails(Long voucherId, List<VoucherDetailVO> detailVOs) {
+        if (detailVOs == null || detailVOs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<VoucherDetail> details = new ArrayList<>(detailVOs.size());
+        for (VoucherDetailVO detailVO : detailVOs) {
+            VoucherDetail detail = VoucherConverter.toDetailEntity(detailVO);
+            detail.setId(null);
+            detail.setVoucherId(voucherId);
+            details.add(detail);
+        }
+        return details;
+    }
+
+    /**
+     * 按批次多行插入明细
+     * 每批一条 INSERT ... VALUES (...),(...)，批次大小由 iobaf.finance.batch-size 控制，
+     * 避免单条语句超过 max_allowed_packet
+     * 
+     * @param details 明细实体列表
+     */
+    private void batchInsertDetails(List<VoucherDetail> details) {
+        for (int from = 0; from < details.size(); from += batchSize) {
+            voucherDetailRepository.batchInsert(details.subList(from, Math.min(from + batchSize, details.size())));
+        }
     }
 
     /**
@@ -197,65 +590,41 @@ public class FinanceDomainService {
      * @return 凭证VO
      */
     private VoucherVO convertToVO(Voucher voucher) {
-        VoucherVO vo = new VoucherVO();
-        BeanUtils.copyProperties(voucher, vo);
-        
-        // 设置凭证类型名称
-        switch (voucher.getVoucherType()) {
-            case 1:
-                vo.setVoucherTypeName("收款");
-                break;
-            case 2:
-                vo.setVoucherTypeName("付款");
-                break;
-            case 3:
-                vo.setVoucherTypeName("转账");
-                break;
-            case 4:
-                vo.setVoucherTypeName("其他");
-                break;
-            default:
-                vo.setVoucherTypeName("未知");
-        }
-        
-        // 设置状态名称
-        switch (voucher.getStatus()) {
-            case 1:
-                vo.setStatusName("草稿");
-                break;
-            case 2:
-                vo.setStatusName("已审核");
-                break;
-            case 3:
-                vo.setStatusName("已过账");
-                break;
-            default:
-                vo.setStatusName("未知");
-        }
+        VoucherVO vo = VoucherConverter.toVO(voucher);
         
         // 查询明细
         List<VoucherDetail> details = voucherDetailRepository.selectByVoucherId(voucher.getId());
-        List<VoucherDetailVO> detailVOs = details.stream()
-                .map(this::convertDetailToVO)
-                .collect(Collectors.toList());
-        vo.setDetails(detailVOs);
+        vo.setDetails(VoucherConverter.toDetailVOList(details));
         
         return vo;
     }
 
     /**
-     * 将明细实体对象转换为VO对象
+     * 批量将实体对象转换为VO对象
+     * 整页凭证的明细通过一次IN查询加载后在内存中分组，避免逐条查询
      * 
-     * @param detail 明细实体
-     * @return 明细VO
+     * @param vouchers 凭证实体列表
+     * @param withDetails 是否加载明细
+     * @return 凭证VO列表
      */
-    private VoucherDetailVO convertDetailToVO(VoucherDetail detail) {
-        VoucherDetailVO vo = new VoucherDetailVO();
-        BeanUtils.copyProperties(detail, vo);
+    private List<VoucherVO> convertToVOList(List<Voucher> vouchers, boolean withDetails) {
+        if (vouchers.isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        // 设置方向名称
-        vo.setDirectionName(detail.getDirection() == 1 ? "借" : "贷");
+        Map<Long, List<VoucherDetail>> detailMap = Collections.emptyMap();
+        if (withDetails) {
+            detailMap = selectDetailMap(vouchers);
+        }
         
-        return vo;
+        List<VoucherVO> result = new ArrayList<>(vouchers.size());
+        for (Voucher voucher : vouchers) {
+            VoucherVO vo = VoucherConverter.toVO(voucher);
+            if (withDetails) {
+                vo.setDetails(VoucherConverter.toDetailVOList(detailMap.getOrDefault(voucher.getId(), Collections.emptyList())));
+            }
+            result.add(vo);
+        }
+        return result;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,510 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.domain.finance.entity.Account;
+import com.iobaf.domain.finance.entity.AccountBalance;
+import com.iobaf.domain.finance.entity.AccountBalanceSnapshot;
+import com.iobaf.domain.finance.entity.AccountingPeriod;
+import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.entity.VoucherDetail;
+import com.iobaf.domain.finance.repository.AccountBalanceRepository;
+import com.iobaf.domain.finance.repository.AccountBalanceSnapshotRepository;
+import com.iobaf.domain.finance.repository.AccountingPeriodRepository;
+import com.iobaf.domain.finance.repository.VoucherRepository;
+import com.iobaf.domain.finance.vo.AccountBalanceNodeVO;
+import com.iobaf.domain.finance.vo.AccountBalanceVO;
+import com.iobaf.domain.finance.vo.TrialBalanceVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 总账领域服务
+ * 维护科目期间余额汇总表，凭证过账时按 (科目, 期间) 增量累加借贷发生额；
+ * 试算平衡表与总账查询只读取汇总表，不再扫描凭证明细；
+ * 期间结账后冻结余额快照，后续期间的期初余额由最近快照加其后发生额得出
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+public class LedgerDomainService {
+
+    /**
+     * 会计期间格式
+     */
+    public static final DateTimeFormatter PERIOD_FORMATTER = DateTimeFormatter.ofPattern("uuuuMM");
+
+    /**
+     * 余额方向：借
+     */
+    private static final int DIRECTION_DEBIT = 1;
+
+    /**
+     * 余额方向：贷
+     */
+    private static final int DIRECTION_CREDIT = 2;
+
+    /**
+     * 凭证状态：草稿
+     */
+    private static final int STATUS_DRAFT = 1;
+
+    /**
+     * 凭证状态：已审核
+     */
+    private static final int STATUS_AUDITED = 2;
+
+    /**
+     * 会计期间状态：已结账
+     */
+    private static final int PERIOD_STATUS_CLOSED = 2;
+
+    @Autowired
+    private AccountTreeCache accountTreeCache;
+
+    @Autowired
+    private AccountBalanceRepository accountBalanceRepository;
+
+    @Autowired
+    private AccountingPeriodRepository accountingPeriodRepository;
+
+    @Autowired
+    private AccountBalanceSnapshotRepository accountBalanceSnapshotRepository;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    /**
+     * 快照批量写入时每条多行INSERT的行数
+     */
+    @Value("${iobaf.finance.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 将过账凭证的明细计入科目期间余额
+     * 同一批次内先按 (科目, 期间) 在内存中合并，再以一条多行累加语句写入；
+     * 合并结果按科目、期间排序写入，保证并发过账时加锁顺序一致
+     * 
+     * @param vouchers 已过账凭证
+     * @param detailsByVoucher 凭证ID到明细列表的映射
+     */
+    @Transactional
+    public void postToLedger(List<Voucher> vouchers, Map<Long, List<VoucherDetail>> detailsByVoucher) {
+        Map<String, BalanceDelta> deltas = new HashMap<>();
+        for (Voucher voucher : vouchers) {
+            String period = toPeriod(voucher.getVoucherDate());
+            for (VoucherDetail detail : detailsByVoucher.getOrDefault(voucher.getId(), Collections.emptyList())) {
+                String key = detail.getAccountId() + ":" + period;
+                BalanceDelta delta = deltas.computeIfAbsent(key, k -> new BalanceDelta(detail.getAccountId(), period));
+                if (detail.getDirection() == DIRECTION_DEBIT) {
+                    delta.debit.add(detail.getAmount());
+                } else {
+                    delta.credit.add(detail.getAmount());
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<AccountBalance> balances = new ArrayList<>(deltas.size());
+        for (BalanceDelta delta : deltas.values()) {
+            balances.add(delta.toBalance());
+        }
+        balances.sort(Comparator.comparing(AccountBalance::getAccountId).thenComparing(AccountBalance::getPeriod));
+        accountBalanceRepository.batchAccumulate(balances);
+        log.debug("凭证过账计入总账，凭证数={}，科目期间数={}", vouchers.size(), deltas.size());
+    }
+
+    /**
+     * 查询试算平衡表
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @return 试算平衡表
+     */
+    public TrialBalanceVO getTrialBalance(String period) {
+        validatePeriod(period);
+        
+        Map<Long, AccountBalance> openings;
+        Map<Long, AccountBalance> currents;
+        if (accountingPeriodRepository.countClosed(period) > 0) {
+            // 已结账期间直接读取快照
+            openings = new HashMap<>();
+            currents = new HashMap<>();
+            for (AccountBalanceSnapshot snapshot : accountBalanceSnapshotRepository.selectByPeriod(period, null)) {
+                openings.put(snapshot.getAccountId(), toBalance(snapshot.getAccountId(), null,
+                        snapshot.getOpeningDebitAmount(), snapshot.getOpeningCreditAmount()));
+                currents.put(snapshot.getAccountId(), toBalance(snapshot.getAccountId(), period,
+                        snapshot.getDebitAmount(), snapshot.getCreditAmount()));
+            }
+        } else {
+            openings = toAccountMap(sumOpening(period, null));
+            currents = toAccountMap(accountBalanceRepository.selectByPeriod(period));
+        }
+        
+        AccountTree tree = accountTreeCache.getTree();
+        List<AccountBalanceVO> rows = new ArrayList<>();
+        MoneySum totalDebit = new MoneySum();
+        MoneySum totalCredit = new MoneySum();
+        for (int i = 0; i < tree.size(); i++) {
+            Account account = tree.getAccount(i);
+            AccountBalance opening = openings.get(account.getId());
+            AccountBalance current = currents.get(account.getId());
+            if (opening == null && current == null) {
+                continue;
+            }
+            AccountBalanceVO row = buildBalanceVO(account, period, signedBalance(account, opening), current);
+            totalDebit.add(row.getDebitAmount());
+            totalCredit.add(row.getCreditAmount());
+            rows.add(row);
+        }
+        
+        TrialBalanceVO result = new TrialBalanceVO();
+        result.setPeriod(period);
+        result.setAccounts(rows);
+        result.setTotalDebitAmount(totalDebit.toBigDecimal());
+        result.setTotalCreditAmount(totalCredit.toBigDecimal());
+        result.setBalanced(totalDebit.compareTo(totalCredit) == 0);
+        return result;
+    }
+
+    /**
+     * 查询科目总账：逐期间列示期初、借贷发生额与期末余额
+     * 
+     * @param accountId 科目ID
+     * @param startPeriod 开始期间（含），格式yyyyMM
+     * @param endPeriod 结束期间（含），格式yyyyMM
+     * @return 各期间余额，科目不存在时返回null
+     */
+    public List<AccountBalanceVO> getGeneralLedger(Long accountId, String startPeriod, String endPeriod) {
+        validatePeriod(startPeriod);
+        validatePeriod(endPeriod);
+        AccountTree tree = accountTreeCache.getTree();
+        int index = tree.indexOf(accountId);
+        if (index < 0) {
+            return null;
+        }
+        Account account = tree.getAccount(index);
+        
+        List<AccountBalance> openings = sumOpening(startPeriod, accountId);
+        BigDecimal balance = signedBalance(account, openings.isEmpty() ? null : openings.get(0));
+        
+        List<AccountBalanceVO> result = new ArrayList<>();
+        for (AccountBalance current : accountBalanceRepository.selectByAccountAndPeriodRange(accountId, startPeriod, endPeriod)) {
+            AccountBalanceVO row = buildBalanceVO(account, current.getPeriod(), balance, current);
+            balance = row.getClosingBalance();
+            result.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * 查询科目余额树
+     * 各科目自身的期初与本期发生额沿父链汇总到全部上级科目，每个科目的汇总代价为树深度；
+     * 整棵子树都没有发生额的科目不出现在结果中
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @return 一级科目节点列表
+     */
+    public List<AccountBalanceNodeVO> getBalanceReport(String period) {
+        validatePeriod(period);
+        AccountTree tree = accountTreeCache.getTree();
+        int size = tree.size();
+        MoneySum[] openingDebits = new MoneySum[size];
+        MoneySum[] openingCredits = new MoneySum[size];
+        MoneySum[] debits = new MoneySum[size];
+        MoneySum[] credits = new MoneySum[size];
+        
+        for (AccountBalance opening : sumOpening(period, null)) {
+            int index = tree.indexOf(opening.getAccountId());
+            if (index >= 0) {
+                tree.rollUp(openingDebits, index, opening.getDebitAmount());
+                tree.rollUp(openingCredits, index, opening.getCreditAmount());
+            }
+        }
+        for (AccountBalance current : accountBalanceRepository.selectByPeriod(period)) {
+            int index = tree.indexOf(current.getAccountId());
+            if (index >= 0) {
+                tree.rollUp(debits, index, current.getDebitAmount());
+                tree.rollUp(credits, index, current.getCreditAmount());
+            }
+        }
+        
+        return buildBalanceNodes(tree, tree.getRootIndexes(), period, openingDebits, openingCredits, debits, credits);
+    }
+
+    /**
+     * 期间结账
+     * 只能逐月按顺序结账：须为最近已结账期间的下一个月，尚未结账过时须为最早凭证所在月份；
+     * 只能结账已结束的月份，且截至该期间末不能有未过账凭证。
+     * 结账时以上一快照加其后发生额计算各科目期初，叠加本期发生额后写入本期快照；
+     * 结账后该期间及之前的期间不再接受过账
+     * 
+     * @param period 会计期间，格式yyyyMM
+     * @param closeUserId 结账人ID
+     * @return 已结账期间
+     * @throws IllegalArgumentException 期间格式不正确
+     * @throws IllegalStateException 期间已结账、不是下一个待结账期间、尚未结束或存在未过账凭证
+     */
+    @Transactional
+    public AccountingPeriod closePeriod(String period, Long closeUserId) {
+        validatePeriod(period);
+        String closedThrough = accountingPeriodRepository.selectLatestClosedPeriodForUpdate();
+        if (closedThrough != null && period.compareTo(closedThrough) <= 0) {
+            throw new IllegalStateException("会计期间" + period + "已结账，最近结账期间为" + closedThrough);
+        }
+        // 跳过的期间不会生成快照，其后期间的期初将缺少这些月份的发生额
+        String expected;
+        if (closedThrough != null) {
+            expected = YearMonth.parse(closedThrough, PERIOD_FORMATTER).plusMonths(1).format(PERIOD_FORMATTER);
+        } else {
+            LocalDate firstVoucherDate = voucherRepository.selectMinVoucherDate();
+            if (firstVoucherDate == null) {
+                throw new IllegalStateException("尚无凭证，不能结账");
+            }
+            expected = YearMonth.from(firstVoucherDate).format(PERIOD_FORMATTER);
+        }
+        if (!period.equals(expected)) {
+            throw new IllegalStateException("会计期间须按顺序结账，下一个待结账期间为" + expected);
+        }
+        LocalDate periodEndDate = YearMonth.parse(period, PERIOD_FORMATTER).atEndOfMonth();
+        if (!periodEndDate.isBefore(LocalDate.now())) {
+            throw new IllegalStateException("会计期间" + period + "尚未结束，不能结账");
+        }
+        String periodEnd = periodEndDate.toString();
+        for (int status = STATUS_DRAFT; status <= STATUS_AUDITED; status++) {
+            Long pending = voucherRepository.countVoucher(null, null, null, null, status, null, periodEnd);
+            if (pending != null && pending > 0) {
+                throw new IllegalStateException("截至" + periodEnd + "尚有" + pending + "张未过账凭证，不能结账");
+            }
+        }
+        
+        // 先登记结账期间：持有共享锁的过账事务提交前本语句会等待，之后的过账会被拒绝
+        AccountingPeriod accountingPeriod = new AccountingPeriod();
+        accountingPeriod.setPeriod(period);
+        accountingPeriod.setStatus(PERIOD_STATUS_CLOSED);
+        accountingPeriod.setCloseUserId(closeUserId);
+        accountingPeriod.setCloseTime(LocalDateTime.now());
+        accountingPeriodRepository.insert(accountingPeriod);
+        
+        Map<Long, AccountBalance> openings = toAccountMap(sumOpening(period, null));
+        Map<Long, AccountBalance> currents = toAccountMap(accountBalanceRepository.selectByPeriod(period));
+        Set<Long> accountIds = new TreeSet<>(openings.keySet());
+        accountIds.addAll(currents.keySet());
+        
+        List<AccountBalanceSnapshot> snapshots = new ArrayList<>(accountIds.size());
+        for (Long accountId : accountIds) {
+            AccountBalance opening = openings.get(accountId);
+            AccountBalance current = currents.get(accountId);
+            BigDecimal openingDebit = opening == null ? BigDecimal.ZERO : opening.getDebitAmount();
+            BigDecimal openingCredit = opening == null ? BigDecimal.ZERO : opening.getCreditAmount();
+            BigDecimal debit = current == null ? BigDecimal.ZERO : current.getDebitAmount();
+            BigDecimal credit = current == null ? BigDecimal.ZERO : current.getCreditAmount();
+            
+            AccountBalanceSnapshot snapshot = new AccountBalanceSnapshot();
+            snapshot.setPeriod(period);
+            snapshot.setAccountId(accountId);
+            snapshot.setOpeningDebitAmount(openingDebit);
+            snapshot.setOpeningCreditAmount(openingCredit);
+            snapshot.setDebitAmount(debit);
+            snapshot.setCreditAmount(credit);
+            snapshot.setClosingDebitAmount(openingDebit.add(debit));
+            snapshot.setClosingCreditAmount(openingCredit.add(credit));
+            snapshot.setCreateTime(accountingPeriod.getCloseTime());
+            snapshots.add(snapshot);
+        }
+        for (int from = 0; from < snapshots.size(); from += batchSize) {
+            accountBalanceSnapshotRepository.batchInsert(snapshots.subList(from, Math.min(from + batchSize, snapshots.size())));
+        }
+        
+        log.info("会计期间结账完成，期间={}，快照科目数={}", period, snapshots.size());
+        return accountingPeriod;
+    }
+
+    /**
+     * 查询最近已结账期间并加共享锁，过账前在同一事务中调用，防止与结账交错
+     * 
+     * @return 最近已结账期间，没有时为空
+     */
+    public String lockClosedThrough() {
+        return accountingPeriodRepository.selectLatestClosedPeriodForShare();
+    }
+
+    /**
+     * 计算凭证日期所属会计期间
+     * 
+     * @param voucherDate 凭证日期
+     * @return 会计期间，格式yyyyMM
+     */
+    public static String toPeriod(LocalDate voucherDate) {
+        return voucherDate.format(PERIOD_FORMATTER);
+    }
+
+    /**
+     * 校验会计期间格式
+     * 
+     * @param period 会计期间
+     * @throws IllegalArgumentException 格式不是yyyyMM
+     */
+    public static void validatePeriod(String period) {
+        try {
+            YearMonth.parse(period, PERIOD_FORMATTER);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("会计期间格式应为yyyyMM：" + period);
+        }
+    }
+
+    /**
+     * 汇总指定期间之前各科目的累计发生额
+     * 存在更早的已结账期间时，以其快照的期末累计加上快照之后的发生额计算，
+     * 只需汇总最近一次结账之后的期间
+     * 
+     * @param period 会计期间
+     * @param accountId 科目ID，为空时汇总全部科目
+     * @return 各科目累计发生额（period 字段为空）
+     */
+    private List<AccountBalance> sumOpening(String period, Long accountId) {
+        String snapshotPeriod = accountingPeriodRepository.selectLatestClosedBefore(period);
+        if (snapshotPeriod == null) {
+            return accountBalanceRepository.sumBeforePeriod(period, null, accountId);
+        }
+        
+        Map<Long, BalanceDelta> totals = new HashMap<>();
+        for (AccountBalanceSnapshot snapshot : accountBalanceSnapshotRepository.selectByPeriod(snapshotPeriod, accountId)) {
+            BalanceDelta total = totals.computeIfAbsent(snapshot.getAccountId(), id -> new BalanceDelta(id, null));
+            total.debit.add(snapshot.getClosingDebitAmount());
+            total.credit.add(snapshot.getClosingCreditAmount());
+        }
+        for (AccountBalance balance : accountBalanceRepository.sumBeforePeriod(period, snapshotPeriod, accountId)) {
+            BalanceDelta total = totals.computeIfAbsent(balance.getAccountId(), id -> new BalanceDelta(id, null));
+            total.debit.add(balance.getDebitAmount());
+            total.credit.add(balance.getCreditAmount());
+        }
+        
+        List<AccountBalance> result = new ArrayList<>(totals.size());
+        for (BalanceDelta total : totals.values()) {
+            result.add(total.toBalance());
+        }
+        return result;
+    }
+
+    private List<AccountBalanceNodeVO> buildBalanceNodes(AccountTree tree, int[] indexes, String period,
+                                                         MoneySum[] openingDebits, MoneySum[] openingCredits,
+                                                         MoneySum[] debits, MoneySum[] credits) {
+        List<AccountBalanceNodeVO> nodes = new ArrayList<>();
+        for (int index : indexes) {
+            if (openingDebits[index] == null && debits[index] == null) {
+                continue;
+            }
+            Account account = tree.getAccount(index);
+            BigDecimal debit = MoneySum.toBigDecimal(debits[index]);
+            BigDecimal credit = MoneySum.toBigDecimal(credits[index]);
+            BigDecimal opening = signedAmount(account, MoneySum.toBigDecimal(openingDebits[index]),
+                    MoneySum.toBigDecimal(openingCredits[index]));
+            
+            AccountBalanceNodeVO node = new AccountBalanceNodeVO();
+            node.setAccountId(account.getId());
+            node.setParentId(account.getParentId());
+            node.setAccountCode(account.getAccountCode());
+            node.setAccountName(account.getAccountName());
+            node.setDirection(account.getDirection());
+            node.setPeriod(period);
+            node.setOpeningBalance(opening);
+            node.setDebitAmount(debit);
+            node.setCreditAmount(credit);
+            node.setClosingBalance(opening.add(signedAmount(account, debit, credit)));
+            node.setChildren(buildBalanceNodes(tree, tree.getChildIndexes(index), period,
+                    openingDebits, openingCredits, debits, credits));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private AccountBalanceVO buildBalanceVO(Account account, String period, BigDecimal openingBalance, AccountBalance current) {
+        BigDecimal debit = current == null ? BigDecimal.ZERO : current.getDebitAmount();
+        BigDecimal credit = current == null ? BigDecimal.ZERO : current.getCreditAmount();
+        
+        AccountBalanceVO vo = new AccountBalanceVO();
+        vo.setAccountId(account.getId());
+        vo.setAccountCode(account.getAccountCode());
+        vo.setAccountName(account.getAccountName());
+        vo.setDirection(account.getDirection());
+        vo.setPeriod(period);
+        vo.setOpeningBalance(openingBalance);
+        vo.setDebitAmount(debit);
+        vo.setCreditAmount(credit);
+        vo.setClosingBalance(openingBalance.add(signedAmount(account, debit, credit)));
+        return vo;
+    }
+
+    private static BigDecimal signedBalance(Account account, AccountBalance balance) {
+        if (balance == null) {
+            return BigDecimal.ZERO;
+        }
+        return signedAmount(account, balance.getDebitAmount(), balance.getCreditAmount());
+    }
+
+    private static BigDecimal signedAmount(Account account, BigDecimal debit, BigDecimal credit) {
+        return Integer.valueOf(DIRECTION_CREDIT).equals(account.getDirection())
+                ? credit.subtract(debit)
+                : debit.subtract(credit);
+    }
+
+    private static Map<Long, AccountBalance> toAccountMap(List<AccountBalance> balances) {
+        Map<Long, AccountBalance> map = new HashMap<>(balances.size() * 2);
+        for (AccountBalance balance : balances) {
+            map.put(balance.getAccountId(), balance);
+        }
+        return map;
+    }
+
+    private static AccountBalance toBalance(Long accountId, String period, BigDecimal debit, BigDecimal credit) {
+        AccountBalance balance = new AccountBalance();
+        balance.setAccountId(accountId);
+        balance.setPeriod(period);
+        balance.setDebitAmount(debit);
+        balance.setCreditAmount(credit);
+        return balance;
+    }
+
+    /**
+     * 过账批次内单个 (科目, 期间) 的借贷发生额
+     */
+    private static class BalanceDelta {
+
+        private final Long accountId;
+
+        private final String period;
+
+        private final MoneySum debit = new MoneySum();
+
+        private final MoneySum credit = new MoneySum();
+
+        BalanceDelta(Long accountId, String period) {
+            this.accountId = accountId;
+            this.period = period;
+        }
+
+        AccountBalance toBalance() {
+            return LedgerDomainService.toBalance(accountId, period, debit.toBigDecimal(), credit.toBigDecimal());
+        }
+    }
+}
\ No newline at end of file
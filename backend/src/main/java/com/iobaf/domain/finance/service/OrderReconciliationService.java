@@ -0,0 +1,327 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.domain.ecommerce.entity.Order;
+import com.iobaf.domain.ecommerce.repository.OrderRepository;
+import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.event.AutoVoucherSource;
+import com.iobaf.domain.finance.repository.VoucherRepository;
+import com.iobaf.domain.finance.vo.OrderReconciliationIssueVO;
+import com.iobaf.domain.finance.vo.OrderReconciliationPartitionVO;
+import com.iobaf.domain.finance.vo.OrderReconciliationReportVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 电商订单与收款凭证月末对账服务
+ * 订单收款凭证由自动凭证队列生成，凭证号为 AUTO-ORD-{订单ID}，据此与订单一一关联。
+ * 对账时两侧各流式读取一次：凭证按订单ID建立索引，订单按支付日期、平台分区；
+ * 各分区在 fork-join 线程池中并行比对，匹配到的凭证从索引中移除，剩余凭证即为无对应订单的凭证
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+public class OrderReconciliationService {
+
+    /**
+     * 报告中列出的差异数上限
+     */
+    private static final int MAX_REPORTED_ISSUES = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    /**
+     * 并行比对线程数
+     */
+    @Value("${iobaf.finance.reconcile.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 凭证日期允许晚于订单支付日期的天数，期末最后几天的订单凭证可能落在下月初
+     */
+    @Value("${iobaf.finance.reconcile.voucher-lag-days:3}")
+    private int voucherLagDays;
+
+    /**
+     * 对账指定期间
+     *
+     * @param period 会计期间，格式yyyyMM
+     * @return 对账报告
+     * @throws IllegalArgumentException 期间格式错误
+     */
+    public OrderReconciliationReportVO reconcile(String period) {
+        LedgerDomainService.validatePeriod(period);
+        long start = System.currentTimeMillis();
+        YearMonth month = YearMonth.parse(period, LedgerDomainService.PERIOD_FORMATTER);
+        LocalDate firstDay = month.atDay(1);
+        LocalDate lastDay = month.atEndOfMonth();
+
+        Map<String, Long> issueCounts = new LinkedHashMap<>();
+        List<OrderReconciliationIssueVO> voucherIssues = new ArrayList<>();
+
+        // 1. 凭证按订单ID建立索引
+        Map<Long, Voucher> vouchers = new ConcurrentHashMap<>();
+        MoneySum voucherAmount = new MoneySum();
+        long[] voucherCount = new long[1];
+        voucherRepository.selectByVoucherNoPrefix(AutoVoucherEvent.voucherNoPrefix(AutoVoucherSource.ORDER_PAYMENT),
+                firstDay, lastDay.plusDays(voucherLagDays), context -> {
+                    Voucher voucher = context.getResultObject();
+                    if (!voucher.getVoucherDate().isAfter(lastDay)) {
+                        voucherCount[0]++;
+                        voucherAmount.add(voucher.getTotalAmount());
+                    }
+                    Long orderId = AutoVoucherEvent.parseSourceId(AutoVoucherSource.ORDER_PAYMENT, voucher.getVoucherNo());
+                    if (orderId == null) {
+                        return;
+                    }
+                    Voucher previous = vouchers.putIfAbsent(orderId, voucher);
+                    if (previous != null) {
+                        addIssue(voucherIssues, issueCounts, voucherIssue(OrderReconciliationIssueVO.TYPE_DUPLICATE_VOUCHER,
+                                orderId, voucher));
+                    }
+                });
+
+        // 2. 订单按支付日期、平台分区
+        TreeMap<LocalDate, TreeMap<String, List<Order>>> grouped = new TreeMap<>();
+        orderRepository.selectPaidOrdersForReconcile(firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay(), context -> {
+            Order order = context.getResultObject();
+            grouped.computeIfAbsent(order.getPaymentTime().toLocalDate(),
+                            day -> new TreeMap<>(Comparator.nullsFirst(Comparator.<String>naturalOrder())))
+                    .computeIfAbsent(order.getPlatformType(), platform -> new ArrayList<>())
+                    .add(order);
+        });
+        List<Partition> partitions = new ArrayList<>();
+        grouped.forEach((day, byPlatform) -> byPlatform.forEach(
+                (platform, orders) -> partitions.add(new Partition(day, platform, orders))));
+        grouped.clear();
+
+        // 3. 并行比对
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new MatchTask(partitions, vouchers, 0, partitions.size()));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 4. 按分区顺序合并结果
+        OrderReconciliationReportVO report = new OrderReconciliationReportVO();
+        report.setPeriod(period);
+        report.setPartitions(new ArrayList<>(partitions.size()));
+        report.setIssues(new ArrayList<>());
+        report.setTruncated(false);
+        long orderCount = 0;
+        long matchedCount = 0;
+        MoneySum orderAmount = new MoneySum();
+        for (Partition partition : partitions) {
+            report.getPartitions().add(partition.summary);
+            orderCount += partition.summary.getOrderCount();
+            matchedCount += partition.summary.getMatchedCount();
+            orderAmount.add(partition.summary.getOrderAmount());
+            partition.issueCounts.forEach((type, count) -> issueCounts.merge(type, count, Long::sum));
+            appendIssues(report, partition.issues);
+        }
+
+        // 5. 未被匹配的本期凭证
+        List<OrderReconciliationIssueVO> orphanIssues = new ArrayList<>();
+        vouchers.forEach((orderId, voucher) -> {
+            if (!voucher.getVoucherDate().isAfter(lastDay)) {
+                addIssue(orphanIssues, issueCounts, voucherIssue(OrderReconciliationIssueVO.TYPE_ORPHAN_VOUCHER,
+                        orderId, voucher));
+            }
+        });
+        orphanIssues.sort(Comparator.comparing(OrderReconciliationIssueVO::getOrderId));
+        appendIssues(report, voucherIssues);
+        appendIssues(report, orphanIssues);
+        if (issueCounts.values().stream().mapToLong(Long::longValue).sum() > report.getIssues().size()) {
+            report.setTruncated(true);
+        }
+
+        report.setOrderCount(orderCount);
+        report.setOrderAmount(orderAmount.toBigDecimal());
+        report.setVoucherCount(voucherCount[0]);
+        report.setVoucherAmount(voucherAmount.toBigDecimal());
+        report.setMatchedCount(matchedCount);
+        report.setIssueCounts(issueCounts);
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("订单凭证对账完成，期间={}，订单数={}，凭证数={}，一致数={}，差异={}，耗时={}ms",
+                period, orderCount, voucherCount[0], matchedCount, issueCounts, report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 比对一个分区内的订单与凭证
+     */
+    private static void match(Partition partition, Map<Long, Voucher> vouchers) {
+        MoneySum orderAmount = new MoneySum();
+        MoneySum voucherAmount = new MoneySum();
+        int matched = 0;
+        int mismatched = 0;
+        for (Order order : partition.orders) {
+            BigDecimal paidAmount = order.getPaidAmount() == null ? BigDecimal.ZERO : order.getPaidAmount();
+            orderAmount.add(paidAmount);
+            // 匹配后移除，剩余即为无对应订单的凭证
+            Voucher voucher = vouchers.remove(order.getId());
+            if (voucher == null) {
+                addIssue(partition.issues, partition.issueCounts,
+                        orderIssue(OrderReconciliationIssueVO.TYPE_MISSING_VOUCHER, partition, order, null));
+                mismatched++;
+                continue;
+            }
+            voucherAmount.add(voucher.getTotalAmount());
+            boolean consistent = true;
+            if (voucher.getTotalAmount() == null || paidAmount.compareTo(voucher.getTotalAmount()) != 0) {
+                addIssue(partition.issues, partition.issueCounts,
+                        orderIssue(OrderReconciliationIssueVO.TYPE_AMOUNT_MISMATCH, partition, order, voucher));
+                consistent = false;
+            }
+            if (!partition.paymentDate.equals(voucher.getVoucherDate())) {
+                addIssue(partition.issues, partition.issueCounts,
+                        orderIssue(OrderReconciliationIssueVO.TYPE_DATE_MISMATCH, partition, order, voucher));
+                consistent = false;
+            }
+            if (consistent) {
+                matched++;
+            } else {
+                mismatched++;
+            }
+        }
+
+        OrderReconciliationPartitionVO summary = new OrderReconciliationPartitionVO();
+        summary.setPaymentDate(partition.paymentDate);
+        summary.setPlatformType(partition.platformType);
+        summary.setOrderCount(partition.orders.size());
+        summary.setOrderAmount(orderAmount.toBigDecimal());
+        summary.setVoucherAmount(voucherAmount.toBigDecimal());
+        summary.setMatchedCount(matched);
+        summary.setMismatchCount(mismatched);
+        partition.summary = summary;
+    }
+
+    /**
+     * 记录差异，明细只保留前 MAX_REPORTED_ISSUES 条，计数不受限制
+     */
+    private static void addIssue(List<OrderReconciliationIssueVO> issues, Map<String, Long> issueCounts,
+                                 OrderReconciliationIssueVO issue) {
+        issueCounts.merge(issue.getType(), 1L, Long::sum);
+        if (issues.size() < MAX_REPORTED_ISSUES) {
+            issues.add(issue);
+        }
+    }
+
+    private static void appendIssues(OrderReconciliationReportVO report, List<OrderReconciliationIssueVO> issues) {
+        int room = MAX_REPORTED_ISSUES - report.getIssues().size();
+        if (room > 0) {
+            report.getIssues().addAll(issues.size() > room ? issues.subList(0, room) : issues);
+        }
+    }
+
+    private static OrderReconciliationIssueVO orderIssue(String type, Partition partition, Order order, Voucher voucher) {
+        OrderReconciliationIssueVO issue = new OrderReconciliationIssueVO();
+        issue.setType(type);
+        issue.setOrderId(order.getId());
+        issue.setOrderNo(order.getOrderNo());
+        issue.setPlatformType(partition.platformType);
+        issue.setPaymentDate(partition.paymentDate);
+        issue.setOrderAmount(order.getPaidAmount());
+        if (voucher != null) {
+            issue.setVoucherId(voucher.getId());
+            issue.setVoucherNo(voucher.getVoucherNo());
+            issue.setVoucherDate(voucher.getVoucherDate());
+            issue.setVoucherAmount(voucher.getTotalAmount());
+        }
+        return issue;
+    }
+
+    private static OrderReconciliationIssueVO voucherIssue(String type, Long orderId, Voucher voucher) {
+        OrderReconciliationIssueVO issue = new OrderReconciliationIssueVO();
+        issue.setType(type);
+        issue.setOrderId(orderId);
+        issue.setVoucherId(voucher.getId());
+        issue.setVoucherNo(voucher.getVoucherNo());
+        issue.setVoucherDate(voucher.getVoucherDate());
+        issue.setVoucherAmount(voucher.getTotalAmount());
+        return issue;
+    }
+
+    /**
+     * 对账分区：同一支付日期、同一平台的订单
+     * 比对结果由处理该分区的线程写入，fork-join 的 join 保证对合并线程可见
+     */
+    private static class Partition {
+
+        private final LocalDate paymentDate;
+
+        private final String platformType;
+
+        private final List<Order> orders;
+
+        private final List<OrderReconciliationIssueVO> issues = new ArrayList<>();
+
+        private final Map<String, Long> issueCounts = new LinkedHashMap<>();
+
+        private OrderReconciliationPartitionVO summary;
+
+        Partition(LocalDate paymentDate, String platformType, List<Order> orders) {
+            this.paymentDate = paymentDate;
+            this.platformType = platformType;
+            this.orders = orders;
+        }
+    }
+
+    /**
+     * 分区比对任务，按分区下标区间二分，直到只剩一个分区
+     */
+    private static class MatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Partition> partitions;
+
+        private final Map<Long, Voucher> vouchers;
+
+        private final int from;
+
+        private final int to;
+
+        MatchTask(List<Partition> partitions, Map<Long, Voucher> vouchers, int from, int to) {
+            this.partitions = partitions;
+            this.vouchers = vouchers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    match(partitions.get(from), vouchers);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MatchTask(partitions, vouchers, from, mid), new MatchTask(partitions, vouchers, mid, to));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.domain.finance.entity.VoucherDetail;
+import com.iobaf.domain.finance.vo.VoucherDetailVO;
+import com.iobaf.domain.finance.vo.VoucherVO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 凭证借贷平衡校验器
+ * 单次遍历明细，以定点 long 精确累加借贷合计（见 MoneySum），校验：明细非空、科目与方向有效、
+ * 金额为正、借贷合计相等、凭证总金额等于借方合计。
+ * 校验结果以错误信息返回而非抛出异常，批量复核时不产生异常开销
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class VoucherBalanceValidator {
+
+    private static final int DIRECTION_DEBIT = 1;
+
+    private static final int DIRECTION_CREDIT = 2;
+
+    private VoucherBalanceValidator() {
+    }
+
+    /**
+     * 校验待保存的凭证，总金额为空时以借方合计补齐
+     *
+     * @param voucherVO 凭证信息
+     * @throws IllegalArgumentException 校验不通过
+     */
+    public static void validate(VoucherVO voucherVO) {
+        List<VoucherDetailVO> details = voucherVO.getDetails();
+        if (details == null || details.isEmpty()) {
+            throw new IllegalArgumentException("凭证明细不能为空");
+        }
+        MoneySum debit = new MoneySum();
+        MoneySum credit = new MoneySum();
+        for (int i = 0; i < details.size(); i++) {
+            VoucherDetailVO detail = details.get(i);
+            String error = checkLine(detail.getAccountId(), detail.getDirection(), detail.getAmount());
+            if (error != null) {
+                throw new IllegalArgumentException("第" + (i + 1) + "行明细" + error);
+            }
+            if (detail.getDirection() == DIRECTION_DEBIT) {
+                debit.add(detail.getAmount());
+            } else {
+                credit.add(detail.getAmount());
+            }
+        }
+        if (voucherVO.getTotalAmount() == null) {
+            voucherVO.setTotalAmount(debit.toBigDecimal());
+        }
+        String error = checkTotals(voucherVO.getTotalAmount(), debit, credit);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    /**
+     * 校验已保存的凭证
+     *
+     * @param totalAmount 凭证总金额
+     * @param details 凭证明细
+     * @return 错误信息，校验通过时返回null
+     */
+    public static String check(BigDecimal totalAmount, List<VoucherDetail> details) {
+        if (details.isEmpty()) {
+            return "凭证明细不能为空";
+        }
+        MoneySum debit = new MoneySum();
+        MoneySum credit = new MoneySum();
+        for (int i = 0; i < details.size(); i++) {
+            VoucherDetail detail = details.get(i);
+            String error = checkLine(detail.getAccountId(), detail.getDirection(), detail.getAmount());
+            if (error != null) {
+                return "明细" + detail.getId() + error;
+            }
+            if (detail.getDirection() == DIRECTION_DEBIT) {
+                debit.add(detail.getAmount());
+            } else {
+                credit.add(detail.getAmount());
+            }
+        }
+        return checkTotals(totalAmount, debit, credit);
+    }
+
+    private static String checkLine(Long accountId, Integer direction, BigDecimal amount) {
+        if (accountId == null) {
+            return "未指定科目";
+        }
+        if (direction == null || (direction != DIRECTION_DEBIT && direction != DIRECTION_CREDIT)) {
+            return "借贷方向无效";
+        }
+        if (amount == null || amount.signum() <= 0) {
+            return "金额必须大于0";
+        }
+        return null;
+    }
+
+    private static String checkTotals(BigDecimal totalAmount, MoneySum debit, MoneySum credit) {
+        if (debit.compareTo(credit) != 0) {
+            return "借贷不平衡，借方合计" + debit + "，贷方合计" + credit;
+        }
+        if (totalAmount == null || totalAmount.compareTo(debit.toBigDecimal()) != 0) {
+            return "凭证金额" + (totalAmount == null ? "为空" : totalAmount.toPlainString())
+                    + "与借方合计" + debit + "不一致";
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.entity.VoucherDetail;
+import com.iobaf.domain.finance.vo.VoucherDetailVO;
+import com.iobaf.domain.finance.vo.VoucherVO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 凭证实体与VO转换器
+ * 逐字段赋值，不使用反射；类型、状态、方向名称按编码从常量表中取值
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+public final class VoucherConverter {
+
+    /**
+     * 凭证类型名称，下标为凭证类型编码
+     */
+    private static final String[] VOUCHER_TYPE_NAMES = {null, "收款", "付款", "转账", "其他"};
+
+    /**
+     * 凭证状态名称，下标为状态编码
+     */
+    private static final String[] STATUS_NAMES = {null, "草稿", "已审核", "已过账"};
+
+    /**
+     * 借贷方向名称，下标为方向编码
+     */
+    private static final String[] DIRECTION_NAMES = {null, "借", "贷"};
+
+    private static final String UNKNOWN_NAME = "未知";
+
+    private VoucherConverter() {
+    }
+
+    /**
+     * 凭证实体转换为VO，不含明细
+     *
+     * @param voucher 凭证实体
+     * @return 凭证VO
+     */
+    public static VoucherVO toVO(Voucher voucher) {
+        VoucherVO vo = new VoucherVO();
+        vo.setId(voucher.getId());
+        vo.setVoucherNo(voucher.getVoucherNo());
+        vo.setVoucherDate(voucher.getVoucherDate());
+        vo.setSummary(voucher.getSummary());
+        vo.setTotalAmount(voucher.getTotalAmount());
+        vo.setVoucherType(voucher.getVoucherType());
+        vo.setVoucherTypeName(voucherTypeName(voucher.getVoucherType()));
+        vo.setStatus(voucher.getStatus());
+        vo.setStatusName(statusName(voucher.getStatus()));
+        vo.setCreateUserId(voucher.getCreateUserId());
+        vo.setAuditUserId(voucher.getAuditUserId());
+        vo.setCreateTime(voucher.getCreateTime());
+        vo.setAuditTime(voucher.getAuditTime());
+        return vo;
+    }
+
+    /**
+     * 明细实体转换为VO
+     *
+     * @param detail 明细实体
+     * @return 明细VO
+     */
+    public static VoucherDetailVO toDetailVO(VoucherDetail detail) {
+        VoucherDetailVO vo = new VoucherDetailVO();
+        vo.setId(detail.getId());
+        vo.setVoucherId(detail.getVoucherId());
+        vo.setAccountId(detail.getAccountId());
+        vo.setDirection(detail.getDirection());
+        vo.setDirectionName(directionName(detail.getDirection()));
+        vo.setAmount(detail.getAmount());
+        vo.setSummary(detail.getSummary());
+        return vo;
+    }
+
+    /**
+     * 明细实体列表转换为VO列表
+     *
+     * @param details 明细实体列表
+     * @return 明细VO列表
+     */
+    public static List<VoucherDetailVO> toDetailVOList(List<VoucherDetail> details) {
+        List<VoucherDetailVO> result = new ArrayList<>(details.size());
+        for (VoucherDetail detail : details) {
+            result.add(toDetailVO(detail));
+        }
+        return result;
+    }
+
+    /**
+     * 凭证VO转换为实体，不含明细
+     *
+     * @param vo 凭证VO
+     * @return 凭证实体
+     */
+    public static Voucher toEntity(VoucherVO vo) {
+        Voucher voucher = new Voucher();
+        voucher.setId(vo.getId());
+        voucher.setVoucherNo(vo.getVoucherNo());
+        voucher.setVoucherDate(vo.getVoucherDate());
+        voucher.setSummary(vo.getSummary());
+        voucher.setTotalAmount(vo.getTotalAmount());
+        voucher.setVoucherType(vo.getVoucherType());
+        voucher.setStatus(vo.getStatus());
+        voucher.setCreateUserId(vo.getCreateUserId());
+        voucher.setAuditUserId(vo.getAuditUserId());
+        voucher.setCreateTime(vo.getCreateTime());
+        voucher.setAuditTime(vo.getAuditTime());
+        return voucher;
+    }
+
+    /**
+     * 明细VO转换为实体
+     *
+     * @param vo 明细VO
+     * @return 明细实体
+     */
+    public static VoucherDetail toDetailEntity(VoucherDetailVO vo) {
+        VoucherDetail detail = new VoucherDetail();
+        detail.setId(vo.getId());
+        detail.setVoucherId(vo.getVoucherId());
+        detail.setAccountId(vo.getAccountId());
+        detail.setDirection(vo.getDirection());
+        detail.setAmount(vo.getAmount());
+        detail.setSummary(vo.getSummary());
+        return detail;
+    }
+
+    /**
+     * 凭证类型名称
+     *
+     * @param voucherType 凭证类型：1-收款，2-付款，3-转账，4-其他
+     * @return 类型名称
+     */
+    public static String voucherTypeName(Integer voucherType) {
+        return lookup(VOUCHER_TYPE_NAMES, voucherType);
+    }
+
+    /**
+     * 凭证状态名称
+     *
+     * @param status 状态：1-草稿，2-已审核，3-已过账
+     * @return 状态名称
+     */
+    public static String statusName(Integer status) {
+        return lookup(STATUS_NAMES, status);
+    }
+
+    /**
+     * 借贷方向名称
+     *
+     * @param direction 方向：1-借，2-贷
+     * @return 方向名称
+     */
+    public static String directionName(Integer direction) {
+        return lookup(DIRECTION_NAMES, direction);
+    }
+
+    private static String lookup(String[] names, Integer code) {
+        if (code == null || code < 0 || code >= names.length || names[code] == null) {
+            return UNKNOWN_NAME;
+        }
+        return names[code];
+    }
+}
\ No newline at end of file
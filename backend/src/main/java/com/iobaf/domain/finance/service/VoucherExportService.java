@@ -0,0 +1,167 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.domain.finance.entity.Account;
+import com.iobaf.domain.finance.repository.VoucherRepository;
+import com.iobaf.domain.finance.vo.VoucherExportRowVO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 凭证导出服务
+ * 通过流式结果集逐行读取凭证及明细并直接写入输出流，内存占用与导出行数无关。
+ * 输出按凭证ID、明细ID升序，同一凭证的明细连续输出；每行以凭证ID、明细ID唯一定位，
+ * 中断后以最后收到的完整一行的凭证ID和明细ID续传，不会遗漏中断凭证的其余明细
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+public class VoucherExportService {
+
+    private static final String[] HEADERS = {
+            "凭证ID", "凭证号", "凭证日期", "凭证类型", "状态", "凭证摘要", "凭证金额",
+            "制单人ID", "审核人ID", "创建时间", "审核时间",
+            "明细ID", "科目编码", "科目名称", "借贷方向", "明细金额", "明细摘要"
+    };
+
+    /**
+     * 写出缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private AccountTreeCache accountTreeCache;
+
+    /**
+     * 导出凭证及明细为CSV
+     * 从头导出时输出UTF-8 BOM与表头，便于Excel直接打开；续传时只输出数据行，可直接追加到已下载的文件
+     *
+     * @param voucherType 凭证类型
+     * @param status 状态
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param afterId 续传起点凭证ID，即最后收到的完整一行的凭证ID，为空时从头导出
+     * @param afterDetailId 续传起点明细ID，即该行的明细ID；该行没有明细时为空，从下一个凭证开始导出
+     * @param out 输出流，由调用方负责关闭
+     * @return 导出行数
+     * @throws IOException 写出失败
+     * @throws IllegalArgumentException 指定了续传起点明细ID但未指定凭证ID
+     */
+    public long exportCsv(Integer voucherType, Integer status, String startDate, String endDate,
+                          Long afterId, Long afterDetailId, OutputStream out) throws IOException {
+        if (afterId == null && afterDetailId != null) {
+            throw new IllegalArgumentException("续传起点明细ID须与凭证ID同时指定");
+        }
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (afterId == null) {
+            writer.write('\uFEFF');
+            writeHeader(writer);
+        }
+
+        AccountTree tree = accountTreeCache.getTree();
+        StringBuilder line = new StringBuilder(256);
+        long[] rows = new long[1];
+        ResultHandler<VoucherExportRowVO> handler = context -> {
+            line.setLength(0);
+            appendRow(line, context.getResultObject(), tree);
+            try {
+                writer.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        };
+        try {
+            voucherRepository.selectExportRows(voucherType, status, startDate, endDate, afterId, afterDetailId, handler);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+
+        log.info("凭证导出完成，行数={}，续传起点={}/{}，耗时={}ms", rows[0], afterId, afterDetailId,
+                System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private void writeHeader(Writer writer) throws IOException {
+        for (int i = 0; i < HEADERS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(HEADERS[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    private void appendRow(StringBuilder line, VoucherExportRowVO row, AccountTree tree) {
+        line.append(row.getVoucherId()).append(',');
+        appendText(line, row.getVoucherNo()).append(',');
+        appendValue(line, row.getVoucherDate()).append(',');
+        line.append(VoucherConverter.voucherTypeName(row.getVoucherType())).append(',');
+        line.append(VoucherConverter.statusName(row.getStatus())).append(',');
+        appendText(line, row.getVoucherSummary()).append(',');
+        appendValue(line, row.getTotalAmount() == null ? null : row.getTotalAmount().toPlainString()).append(',');
+        appendValue(line, row.getCreateUserId()).append(',');
+        appendValue(line, row.getAuditUserId()).append(',');
+        appendValue(line, row.getCreateTime()).append(',');
+        appendValue(line, row.getAuditTime()).append(',');
+        if (row.getDetailId() != null) {
+            int index = tree.indexOf(row.getAccountId());
+            Account account = index < 0 ? null : tree.getAccount(index);
+            line.append(row.getDetailId()).append(',');
+            appendText(line, account == null ? String.valueOf(row.getAccountId()) : account.getAccountCode()).append(',');
+            appendText(line, account == null ? null : account.getAccountName()).append(',');
+            line.append(VoucherConverter.directionName(row.getDirection())).append(',');
+            appendValue(line, row.getAmount() == null ? null : row.getAmount().toPlainString()).append(',');
+            appendText(line, row.getDetailSummary());
+        } else {
+            line.append(",,,,,");
+        }
+        line.append("\r\n");
+    }
+
+    private static StringBuilder appendValue(StringBuilder line, Object value) {
+        return value == null ? line : line.append(value);
+    }
+
+    /**
+     * 按RFC 4180写出文本字段，包含逗号、引号或换行时加引号并转义引号
+     */
+    private static StringBuilder appendText(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
\ No newline at end of file
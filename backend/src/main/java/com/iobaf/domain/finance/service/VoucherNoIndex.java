@@ -0,0 +1,217 @@
+package com.iobaf.domain.finance.service;
+
+import com.iobaf.domain.finance.entity.Voucher;
+import com.iobaf.domain.finance.repository.VoucherRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 凭证号内存倒排索引
+ * 以凭证号的三字符片段（trigram）建立倒排表，子串查询取最短的倒排表逐个校验，
+ * 避免 LIKE '%xx%' 全表扫描。启动时全量加载，凭证增删改在事务提交后增量刷新。
+ * 索引为单实例内存结构，未加载完成前调用方应回退到数据库查询。
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class VoucherNoIndex {
+
+    /**
+     * 片段长度，短于该长度的查询无法通过索引回答
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    private final Map<Long, String> voucherNos = new HashMap<>();
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    /**
+     * 应用启动完成后全量加载索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            voucherNos.clear();
+            postings.clear();
+            voucherRepository.selectVoucherNoEntries(context -> {
+                Voucher voucher = context.getResultObject();
+                add(voucher.getId(), voucher.getVoucherNo());
+            });
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("凭证号索引加载完成，凭证数={}，片段数={}，耗时={}ms",
+                voucherNos.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 索引是否可用
+     *
+     * @return 是否已加载完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 子串查询
+     *
+     * @param keyword 凭证号关键字
+     * @param maxResults 最多返回的凭证数
+     * @return 命中的凭证ID；索引不可用、关键字过短或命中数超过上限时返回null，由调用方回退到数据库查询
+     */
+    public List<Long> search(String keyword, int maxResults) {
+        if (!ready || keyword == null) {
+            return null;
+        }
+        // 按去除首尾空白后的长度判断，否则不足一个片段的关键字没有候选集
+        String normalized = normalize(keyword);
+        if (normalized.length() < GRAM_LENGTH) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            // 选取最短的倒排表作为候选集
+            Set<Long> candidates = null;
+            for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+                Set<Long> posting = postings.get(normalized.substring(i, i + GRAM_LENGTH));
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                if (candidates == null || posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+
+            List<Long> result = new ArrayList<>();
+            for (Long id : candidates) {
+                String voucherNo = voucherNos.get(id);
+                if (voucherNo != null && voucherNo.contains(normalized)) {
+                    if (result.size() >= maxResults) {
+                        return null;
+                    }
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或更新凭证号，存在事务时在提交后生效
+     *
+     * @param id 凭证ID
+     * @param voucherNo 凭证号
+     */
+    public void put(Long id, String voucherNo) {
+        if (id == null || voucherNo == null) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(id);
+                add(id, voucherNo);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 删除凭证号，存在事务时在提交后生效
+     *
+     * @param id 凭证ID
+     */
+    public void delete(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void add(Long id, String voucherNo) {
+        if (voucherNo == null) {
+            return;
+        }
+        String normalized = normalize(voucherNo);
+        voucherNos.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        String previous = voucherNos.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String voucherNo) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= voucherNo.length(); i++) {
+            grams.add(voucherNo.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String voucherNo) {
+        return voucherNo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * 科目余额树节点视图对象
+ * 上级科目的发生额与余额为自身及全部下级科目的汇总
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class AccountBalanceNodeVO extends AccountBalanceVO {
+
+    /**
+     * 父级科目ID
+     */
+    private Long parentId;
+
+    /**
+     * 下级科目
+     */
+    private List<AccountBalanceNodeVO> children;
+}
@@ -0,0 +1,61 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 科目余额视图对象
+ * 期初、期末余额按科目余额方向取正负：借方科目为借减贷，贷方科目为贷减借
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class AccountBalanceVO {
+
+    /**
+     * 科目ID
+     */
+    private Long accountId;
+
+    /**
+     * 科目编码
+     */
+    private String accountCode;
+
+    /**
+     * 科目名称
+     */
+    private String accountName;
+
+    /**
+     * 余额方向：1-借，2-贷
+     */
+    private Integer direction;
+
+    /**
+     * 会计期间，格式yyyyMM
+     */
+    private String period;
+
+    /**
+     * 期初余额
+     */
+    private BigDecimal openingBalance;
+
+    /**
+     * 本期借方发生额
+     */
+    private BigDecimal debitAmount;
+
+    /**
+     * 本期贷方发生额
+     */
+    private BigDecimal creditAmount;
+
+    /**
+     * 期末余额
+     */
+    private BigDecimal closingBalance;
+}
@@ -0,0 +1,91 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 订单与凭证对账差异视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class OrderReconciliationIssueVO {
+
+    /**
+     * 订单已支付但无对应凭证
+     */
+    public static final String TYPE_MISSING_VOUCHER = "MISSING_VOUCHER";
+
+    /**
+     * 订单实付金额与凭证金额不一致
+     */
+    public static final String TYPE_AMOUNT_MISMATCH = "AMOUNT_MISMATCH";
+
+    /**
+     * 凭证日期与订单支付日期不一致
+     */
+    public static final String TYPE_DATE_MISMATCH = "DATE_MISMATCH";
+
+    /**
+     * 凭证无对应的本期已支付订单
+     */
+    public static final String TYPE_ORPHAN_VOUCHER = "ORPHAN_VOUCHER";
+
+    /**
+     * 同一订单存在多张凭证
+     */
+    public static final String TYPE_DUPLICATE_VOUCHER = "DUPLICATE_VOUCHER";
+
+    /**
+     * 差异类型
+     */
+    private String type;
+
+    /**
+     * 订单ID
+     */
+    private Long orderId;
+
+    /**
+     * 订单编号
+     */
+    private String orderNo;
+
+    /**
+     * 平台类型
+     */
+    private String platformType;
+
+    /**
+     * 支付日期
+     */
+    private LocalDate paymentDate;
+
+    /**
+     * 订单实付金额
+     */
+    private BigDecimal orderAmount;
+
+    /**
+     * 凭证ID
+     */
+    private Long voucherId;
+
+    /**
+     * 凭证号
+     */
+    private String voucherNo;
+
+    /**
+     * 凭证日期
+     */
+    private LocalDate voucherDate;
+
+    /**
+     * 凭证金额
+     */
+    private BigDecimal voucherAmount;
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 订单与凭证对账分区汇总视图对象（按支付日期、平台）
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class OrderReconciliationPartitionVO {
+
+    /**
+     * 支付日期
+     */
+    private LocalDate paymentDate;
+
+    /**
+     * 平台类型
+     */
+    private String platformType;
+
+    /**
+     * 订单数
+     */
+    private Integer orderCount;
+
+    /**
+     * 订单实付金额合计
+     */
+    private BigDecimal orderAmount;
+
+    /**
+     * 已匹配凭证金额合计
+     */
+    private BigDecimal voucherAmount;
+
+    /**
+     * 完全一致的订单数
+     */
+    private Integer matchedCount;
+
+    /**
+     * 存在差异的订单数
+     */
+    private Integer mismatchCount;
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单与凭证对账报告视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class OrderReconciliationReportVO {
+
+    /**
+     * 对账期间，格式yyyyMM
+     */
+    private String period;
+
+    /**
+     * 本期已支付订单数
+     */
+    private Long orderCount;
+
+    /**
+     * 本期订单实付金额合计
+     */
+    private BigDecimal orderAmount;
+
+    /**
+     * 本期订单收款凭证数
+     */
+    private Long voucherCount;
+
+    /**
+     * 本期订单收款凭证金额合计
+     */
+    private BigDecimal voucherAmount;
+
+    /**
+     * 完全一致的订单数
+     */
+    private Long matchedCount;
+
+    /**
+     * 各差异类型的数量
+     */
+    private Map<String, Long> issueCounts;
+
+    /**
+     * 按支付日期、平台汇总的分区结果，按日期、平台排序
+     */
+    private List<OrderReconciliationPartitionVO> partitions;
+
+    /**
+     * 差异明细，超过上限的部分只计数不列出
+     */
+    private List<OrderReconciliationIssueVO> issues;
+
+    /**
+     * 差异明细是否被截断
+     */
+    private Boolean truncated;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private Long elapsedMillis;
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 试算平衡表视图对象
+ * 
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class TrialBalanceVO {
+
+    /**
+     * 会计期间，格式yyyyMM
+     */
+    private String period;
+
+    /**
+     * 各科目余额
+     */
+    private List<AccountBalanceVO> accounts;
+
+    /**
+     * 本期借方发生额合计
+     */
+    private BigDecimal totalDebitAmount;
+
+    /**
+     * 本期贷方发生额合计
+     */
+    private BigDecimal totalCreditAmount;
+
+    /**
+     * 借贷是否平衡
+     */
+    private Boolean balanced;
+}
@@ -0,0 +1,55 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 凭证批量审核/过账结果视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class VoucherBatchResultVO {
+
+    /**
+     * 处理结果：成功
+     */
+    public static final String OUTCOME_SUCCESS = "SUCCESS";
+
+    /**
+     * 处理结果：凭证不存在
+     */
+    public static final String OUTCOME_NOT_FOUND = "NOT_FOUND";
+
+    /**
+     * 处理结果：凭证当前状态不允许该操作
+     */
+    public static final String OUTCOME_INVALID_STATUS = "INVALID_STATUS";
+
+    /**
+     * 处理结果：凭证所属会计期间已结账
+     */
+    public static final String OUTCOME_PERIOD_CLOSED = "PERIOD_CLOSED";
+
+    /**
+     * 请求的凭证数量（去重后）
+     */
+    private Integer total;
+
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 失败数量
+     */
+    private Integer failureCount;
+
+    /**
+     * 每张凭证的处理结果，按请求顺序排列
+     */
+    private Map<Long, String> outcomes;
+}
\ No newline at end of file
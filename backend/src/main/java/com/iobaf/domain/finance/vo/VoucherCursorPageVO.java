@@ -0,0 +1,40 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 凭证游标分页视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class VoucherCursorPageVO {
+
+    /**
+     * 当前页凭证列表
+     */
+    private List<VoucherVO> records;
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+
+    /**
+     * 每页大小
+     */
+    private Long size;
+
+    /**
+     * 总记录数，仅在请求统计总数时返回
+     */
+    private Long total;
+}
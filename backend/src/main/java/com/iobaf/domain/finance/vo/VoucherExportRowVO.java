@@ -0,0 +1,98 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 凭证导出行视图对象
+ * 凭证表头与明细关联后的一行，没有明细的凭证明细字段为空
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class VoucherExportRowVO {
+
+    /**
+     * 凭证ID
+     */
+    private Long voucherId;
+
+    /**
+     * 凭证号
+     */
+    private String voucherNo;
+
+    /**
+     * 凭证日期
+     */
+    private LocalDate voucherDate;
+
+    /**
+     * 凭证类型
+     */
+    private Integer voucherType;
+
+    /**
+     * 状态
+     */
+    private Integer status;
+
+    /**
+     * 凭证摘要
+     */
+    private String voucherSummary;
+
+    /**
+     * 凭证总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 制单人ID
+     */
+    private Long createUserId;
+
+    /**
+     * 审核人ID
+     */
+    private Long auditUserId;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 审核时间
+     */
+    private LocalDateTime auditTime;
+
+    /**
+     * 明细ID
+     */
+    private Long detailId;
+
+    /**
+     * 科目ID
+     */
+    private Long accountId;
+
+    /**
+     * 借贷方向
+     */
+    private Integer direction;
+
+    /**
+     * 明细金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 明细摘要
+     */
+    private String detailSummary;
+}
\ No newline at end of file
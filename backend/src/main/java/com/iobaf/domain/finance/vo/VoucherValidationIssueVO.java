@@ -0,0 +1,28 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+/**
+ * 凭证校验问题视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class VoucherValidationIssueVO {
+
+    /**
+     * 凭证ID
+     */
+    private Long voucherId;
+
+    /**
+     * 凭证号
+     */
+    private String voucherNo;
+
+    /**
+     * 问题描述
+     */
+    private String message;
+}
\ No newline at end of file
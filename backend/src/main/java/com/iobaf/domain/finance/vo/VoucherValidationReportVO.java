@@ -0,0 +1,40 @@
+package com.iobaf.domain.finance.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 凭证批量复核报告视图对象
+ *
+ * @author IOBAF Team
+ * @since 2024-01-01
+ */
+@Data
+public class VoucherValidationReportVO {
+
+    /**
+     * 已复核凭证数
+     */
+    private Long checkedCount;
+
+    /**
+     * 不通过凭证数
+     */
+    private Long invalidCount;
+
+    /**
+     * 问题明细，按凭证ID升序，超过上限的部分只计数不列出
+     */
+    private List<VoucherValidationIssueVO> issues;
+
+    /**
+     * 问题明细是否被截断
+     */
+    private Boolean truncated;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private Long elapsedMillis;
+}
\ No newline at end of file
@@ -2,14 +2,20 @@ package com.iobaf.domain.promotion.service.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.iobaf.domain.finance.event.AutoVoucherCreatedEvent;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.event.AutoVoucherSource;
+import com.iobaf.domain.finance.service.AutoVoucherQueue;
 import com.iobaf.domain.promotion.entity.PromotionAllocation;
 import com.iobaf.domain.promotion.repository.PromotionAllocationRepository;
 import com.iobaf.domain.promotion.service.PromotionAllocationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +34,9 @@ public class PromotionAllocationServiceImpl implements PromotionAllocationServic
     @Autowired
     private PromotionAllocationRepository promotionAllocationRepository;
 
+    @Autowired
+    private AutoVoucherQueue autoVoucherQueue;
+
     @Override
     public IPage<PromotionAllocation> getAllocationPage(Page<PromotionAllocation> page,
                                                        Long promotionId,
@@ -68,6 +77,12 @@ public class PromotionAllocationServiceImpl implements PromotionAllocationServic
             int result = promotionAllocationRepository.insert(allocation);
             
             if (result > 0) {
+                if (allocation.getAllocatedAmount() != null
+                        && allocation.getAllocatedAmount().compareTo(BigDecimal.ZERO) > 0) {
+                    autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.PROMOTION_ALLOCATION,
+                            allocation.getId(), null, allocation.getAllocatedAmount(), null,
+                            "促销费用分摊-" + allocation.getAllocationBatchNo()));
+                }
                 log.info("分摊记录创建成功，allocationId={}", allocation.getId());
                 return true;
             } else {
@@ -268,4 +283,21 @@ public class PromotionAllocationServiceImpl implements PromotionAllocationServic
             throw new RuntimeException("获取分摊统计信息失败", e);
         }
     }
+
+    /**
+     * 自动凭证生成后回写分摊记录的凭证ID
+     *
+     * @param event 凭证生成完成事件
+     */
+    @EventListener
+    public void onAutoVoucherCreated(AutoVoucherCreatedEvent event) {
+        if (event.getSource() != AutoVoucherSource.PROMOTION_ALLOCATION) {
+            return;
+        }
+        PromotionAllocation allocation = new PromotionAllocation();
+        allocation.setId(event.getSourceId());
+        allocation.setVoucherId(event.getVoucherId());
+        promotionAllocationRepository.updateById(allocation);
+        log.info("分摊记录关联凭证，allocationId={}，voucherId={}", event.getSourceId(), event.getVoucherId());
+    }
 } 
\ No newline at end of file
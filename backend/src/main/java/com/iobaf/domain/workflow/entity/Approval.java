@@ -36,17 +36,22 @@ public class Approval {
     private Long businessId;
 
     /**
-     * 审批人ID
+     * 审批人ID，委托审批时为代理人ID
      */
     private Long approverId;
 
+    /**
+     * 委托人ID：审批任务由委托人转给代理人时记录原审批人，否则为空
+     */
+    private Long delegatorId;
+
     /**
      * 审批级别：1（一级审批）、2（二级审批）、3（三级审批）
      */
     private Integer approvalLevel;
 
     /**
-     * 审批结果：APPROVED（通过）、REJECTED（拒绝）
+     * 审批结果：PENDING（待审批）、APPROVED（通过）、REJECTED（拒绝）、SKIPPED（无需审批：同级他人已通过或流程已被拒绝）
      */
     private String result;
 
@@ -56,7 +61,7 @@ public class Approval {
     private String comments;
 
     /**
-     * 审批时间
+     * 审批时间，待审批时为空
      */
     private LocalDateTime approvedAt;
 
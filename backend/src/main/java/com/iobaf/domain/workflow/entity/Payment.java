@@ -0,0 +1,90 @@
+package com.iobaf.domain.workflow.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 收款实体类
+ * 一笔客户收款，可核销到多张发票，核销明细见 {@link PaymentAllocation}
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("payments")
+public class Payment {
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 收款编号
+     */
+    private String paymentNo;
+
+    /**
+     * 客户ID
+     */
+    private Long customerId;
+
+    /**
+     * 收款金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 已核销金额
+     */
+    private BigDecimal allocatedAmount;
+
+    /**
+     * 收款日期
+     */
+    private LocalDate paymentDate;
+
+    /**
+     * 收款方式
+     */
+    private String paymentMethod;
+
+    /**
+     * 银行流水号，同一流水号只入账一次（需要 uk_bank_reference(bank_reference) 唯一索引）
+     */
+    private String bankReference;
+
+    /**
+     * 核销状态：UNALLOCATED（未核销）、PARTIAL（部分核销）、ALLOCATED（已核销）
+     */
+    private String status;
+
+    /**
+     * 创建人ID
+     */
+    private Long createdBy;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * 备注
+     */
+    private String remarks;
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.iobaf.domain.workflow.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 收款核销明细实体类
+ * 一笔收款核销到一张发票的金额，只增不改
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("payment_allocations")
+public class PaymentAllocation {
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 收款ID
+     */
+    private Long paymentId;
+
+    /**
+     * 发票ID
+     */
+    private Long invoiceId;
+
+    /**
+     * 核销金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.iobaf.domain.workflow.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 业务流程单据状态转换事件
+ * 每次状态转换完成后由执行转换的线程同步发布，此时单据修改尚未写入数据库；
+ * 耗时的处理应在监听器中异步执行
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+@AllArgsConstructor
+public class WorkflowTransitionEvent {
+
+    /**
+     * 状态机名称，如 contract、contract.approval
+     */
+    private String machine;
+
+    /**
+     * 单据ID
+     */
+    private Long documentId;
+
+    /**
+     * 原状态
+     */
+    private String fromState;
+
+    /**
+     * 事件
+     */
+    private String event;
+
+    /**
+     * 目标状态
+     */
+    private String toState;
+}
\ No newline at end of file
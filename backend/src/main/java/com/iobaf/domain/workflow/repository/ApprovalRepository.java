@@ -0,0 +1,15 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.Approval;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 审批记录数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface ApprovalRepository extends BaseMapper<Approval> {
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.ExpenseRequest;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 费用报销申请数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface ExpenseRequestRepository extends BaseMapper<ExpenseRequest> {
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.Invoice;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发票数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface InvoiceRepository extends BaseMapper<Invoice> {
+
+    /**
+     * 按客户、发票日期汇总未收款金额，用于启动时初始化应收账龄
+     *
+     * @return 每行含 customerId、invoiceDay、amount
+     */
+    List<Map<String, Object>> selectOutstandingByCustomerAndDay();
+
+    /**
+     * 按客户、发票日期汇总指定日期以来的开票金额，用于启动时初始化应收账款周转天数
+     *
+     * @param since 起始日期（含）
+     * @return 每行含 customerId、invoiceDay、amount
+     */
+    List<Map<String, Object>> selectInvoicedByCustomerAndDay(@Param("since") LocalDate since);
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.PaymentAllocation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 收款核销明细数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface PaymentAllocationRepository extends BaseMapper<PaymentAllocation> {
+
+    /**
+     * 批量插入核销明细（多行 INSERT，ID 已预先分配）
+     *
+     * @param allocations 核销明细列表
+     * @return 插入数量
+     */
+    int batchInsert(@Param("allocations") List<PaymentAllocation> allocations);
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.Payment;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 收款数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface PaymentRepository extends BaseMapper<Payment> {
+
+    /**
+     * 批量插入收款（多行 INSERT，ID 已预先分配）
+     *
+     * @param payments 收款列表
+     * @return 插入数量
+     */
+    int batchInsert(@Param("payments") List<Payment> payments);
+
+    /**
+     * 查询已入账的银行流水号
+     *
+     * @param bankReferences 银行流水号
+     * @return 其中已存在的流水号
+     */
+    List<String> selectExistingBankReferences(@Param("bankReferences") Collection<String> bankReferences);
+}
\ No newline at end of file
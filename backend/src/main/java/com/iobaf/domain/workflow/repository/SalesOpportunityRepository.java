@@ -0,0 +1,15 @@
+package com.iobaf.domain.workflow.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iobaf.domain.workflow.entity.SalesOpportunity;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 销售机会数据访问层
+ * 
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Mapper
+public interface SalesOpportunityRepository extends BaseMapper<SalesOpportunity> {
+}
\ No newline at end of file
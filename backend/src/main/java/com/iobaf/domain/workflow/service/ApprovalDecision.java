@@ -0,0 +1,30 @@
+package com.iobaf.domain.workflow.service;
+
+/**
+ * 一次审批操作后审批流程的状态
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum ApprovalDecision {
+
+    /**
+     * 本级尚有其他审批人未审批（全部通过方式）
+     */
+    PENDING,
+
+    /**
+     * 本级通过，流程进入下一级
+     */
+    LEVEL_APPROVED,
+
+    /**
+     * 最后一级通过，审批流程完成
+     */
+    APPROVED,
+
+    /**
+     * 审批被拒绝，流程结束
+     */
+    REJECTED
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.iobaf.domain.workflow.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 审批路由配置（iobaf.workflow.approval）
+ * 由 {@link ApprovalRouter} 在启动时编译为按级别排序的审批步骤
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "iobaf.workflow.approval")
+public class ApprovalRouteProperties {
+
+    /**
+     * 各业务类型的审批步骤，键为业务类型的小写连字符形式（如 expense-request），未配置的类型使用默认路由
+     */
+    private Map<String, List<Step>> routes = new HashMap<>();
+
+    /**
+     * 审批委托：审批人ID到代理人ID的映射
+     */
+    private Map<Long, Long> delegations = new HashMap<>();
+
+    /**
+     * 审批步骤
+     */
+    @Data
+    public static class Step {
+
+        /**
+         * 审批级别，同一业务类型内不可重复
+         */
+        private int level;
+
+        /**
+         * 起始金额，单据金额低于该值时跳过本级，为空表示不限
+         */
+        private BigDecimal minAmount;
+
+        /**
+         * 审批人ID，为空表示任意审批人均可审批本级
+         */
+        private List<Long> approvers = new ArrayList<>();
+
+        /**
+         * 会签方式
+         */
+        private Mode mode = Mode.ANY;
+    }
+
+    /**
+     * 会签方式
+     */
+    public enum Mode {
+
+        /**
+         * 任一审批人通过即本级通过
+         */
+        ANY,
+
+        /**
+         * 全部审批人通过才本级通过
+         */
+        ALL
+    }
+}
\ No newline at end of file
@@ -0,0 +1,366 @@
+package com.iobaf.domain.workflow.service;
+
+import com.iobaf.common.cache.WriteBehindCache;
+import com.iobaf.common.sequence.DocumentNumberGenerator;
+import com.iobaf.domain.workflow.entity.Approval;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 审批路由
+ * 按业务类型把配置编译为按级别排序的审批步骤：每级可按金额起点跳过、指定审批人及会签方式（任一/全部），
+ * 审批人可委托给代理人。进入某一级时为该级每个审批人生成待审批记录，审批人的待办经
+ * {@link WorkflowStore#findPendingApprovals} 按索引查询。
+ * 流程进度不单独保存，每次由该单据的审批记录推出；调用方须持有单据的缓存锁，保证同一单据的审批串行
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class ApprovalRouter {
+
+    /**
+     * 审批记录ID序列
+     */
+    public static final String SEQ_APPROVAL = "workflow.approval";
+
+    public static final String RESULT_PENDING = "PENDING";
+    public static final String RESULT_APPROVED = "APPROVED";
+    public static final String RESULT_REJECTED = "REJECTED";
+    public static final String RESULT_SKIPPED = "SKIPPED";
+
+    /**
+     * 未配置路由时的默认级数：与原有流程一致，费用报销经部门经理、财务、CEO三级，其余一级，均不限审批人
+     */
+    private static final Map<String, Integer> DEFAULT_LEVELS = Map.of(
+            "contract", 1,
+            "purchase-request", 1,
+            "expense-request", 3);
+
+    @Autowired
+    private ApprovalRouteProperties properties;
+
+    @Autowired
+    private WorkflowStore workflowStore;
+
+    @Autowired
+    private DocumentNumberGenerator documentNumberGenerator;
+
+    private Map<String, Step[]> routes;
+
+    private Map<Long, Long> delegates;
+
+    /**
+     * 编译审批路由与委托关系，配置错误时启动失败
+     */
+    @PostConstruct
+    public void compile() {
+        Map<String, Step[]> compiled = new HashMap<>();
+        DEFAULT_LEVELS.forEach((key, levels) -> {
+            Step[] steps = new Step[levels];
+            for (int i = 0; i < levels; i++) {
+                steps[i] = new Step(i + 1, null, new long[0], false);
+            }
+            compiled.put(key, steps);
+        });
+        properties.getRoutes().forEach((key, configured) -> {
+            List<Step> steps = new ArrayList<>(configured.size());
+            for (ApprovalRouteProperties.Step step : configured) {
+                long[] approvers = step.getApprovers().stream().mapToLong(Long::longValue).toArray();
+                steps.add(new Step(step.getLevel(), step.getMinAmount(), approvers,
+                        step.getMode() == ApprovalRouteProperties.Mode.ALL));
+            }
+            steps.sort((a, b) -> Integer.compare(a.level, b.level));
+            for (int i = 1; i < steps.size(); i++) {
+                if (steps.get(i).level == steps.get(i - 1).level) {
+                    throw new IllegalStateException("审批路由" + key + "存在重复的级别：" + steps.get(i).level);
+                }
+            }
+            compiled.put(key, steps.toArray(new Step[0]));
+        });
+
+        // 委托关系按链条解析到最终代理人
+        Map<Long, Long> resolved = new HashMap<>();
+        Map<Long, Long> delegations = properties.getDelegations();
+        for (Long approverId : delegations.keySet()) {
+            Long delegate = approverId;
+            for (int hops = 0; delegations.containsKey(delegate); hops++) {
+                if (hops >= delegations.size()) {
+                    throw new IllegalStateException("审批委托存在循环：" + approverId);
+                }
+                delegate = delegations.get(delegate);
+            }
+            resolved.put(approverId, delegate);
+        }
+
+        routes = compiled;
+        delegates = resolved;
+        log.info("审批路由编译完成，业务类型数={}，委托数={}", routes.size(), delegates.size());
+    }
+
+    /**
+     * 单据进入审批：为第一个适用级别的审批人生成待审批记录
+     *
+     * @param businessType 业务类型
+     * @param businessId 业务ID
+     * @param amount 单据金额
+     */
+    public void start(String businessType, Long businessId, BigDecimal amount) {
+        Step[] steps = route(businessType);
+        Step first = nextStep(steps, -1, amount);
+        if (first != null) {
+            activate(first, businessType, businessId);
+        }
+    }
+
+    /**
+     * 审批人对单据当前级别作出审批
+     *
+     * @param businessType 业务类型
+     * @param businessId 业务ID
+     * @param amount 单据金额
+     * @param level 调用方预期的审批级别，为空表示当前级别
+     * @param approverId 审批人ID，可以是待审批记录的审批人或其委托人
+     * @param approved 是否通过
+     * @param comments 审批意见
+     * @return 审批后的流程状态
+     */
+    public ApprovalDecision decide(String businessType, Long businessId, BigDecimal amount, Integer level,
+                                   Long approverId, boolean approved, String comments) {
+        Step[] steps = route(businessType);
+        List<Approval> records = new ArrayList<>(workflowStore.findApprovals(businessType, businessId));
+        int current = currentStep(steps, records, amount);
+        if (current < 0) {
+            throw new IllegalStateException("审批流程已结束：" + businessType + " " + businessId);
+        }
+        Step step = steps[current];
+        if (level != null && level != step.level) {
+            throw new IllegalStateException("当前待审批级别为" + step.level + "，不是" + level);
+        }
+        if (!step.isOpen() && !hasRecords(records, step.level)) {
+            // 路由启用前已存在的单据，进入当前级别时补生成待审批记录
+            records.addAll(activate(step, businessType, businessId));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String result = approved ? RESULT_APPROVED : RESULT_REJECTED;
+        if (step.isOpen()) {
+            Approval approval = newApproval(businessType, businessId, step.level, approverId, null, result, now);
+            approval.setComments(comments);
+            approval.setApprovedAt(now);
+            workflowStore.getApprovals().insert(approval);
+        } else {
+            Approval task = findTask(records, step.level, approverId);
+            if (task == null) {
+                throw new IllegalStateException("审批人" + approverId + "没有该单据第" + step.level + "级的待审批记录");
+            }
+            try (WriteBehindCache.Handle<Approval> handle = workflowStore.getApprovals().lock(task.getId())) {
+                Approval approval = handle.get();
+                approval.setResult(result);
+                approval.setComments(comments);
+                approval.setApprovedAt(now);
+                approval.setUpdatedAt(now);
+                // 句柄中是工作副本，替换查询结果中的原实例，后续判断才能看到本次审批
+                records.set(records.indexOf(task), approval);
+            }
+        }
+
+        if (!approved) {
+            skipPending(records, null, now);
+            return ApprovalDecision.REJECTED;
+        }
+        if (step.all && hasPending(records, step.level)) {
+            return ApprovalDecision.PENDING;
+        }
+        skipPending(records, step.level, now);
+        Step next = nextStep(steps, current, amount);
+        if (next == null) {
+            return ApprovalDecision.APPROVED;
+        }
+        activate(next, businessType, businessId);
+        return ApprovalDecision.LEVEL_APPROVED;
+    }
+
+    /**
+     * 查询单据当前待审批的级别，跳过金额未达起点的级别
+     *
+     * @param businessType 业务类型
+     * @param businessId 业务ID
+     * @param amount 单据金额
+     * @return 当前级别，审批流程已通过或已被拒绝时返回null
+     */
+    public Integer currentLevel(String businessType, Long businessId, BigDecimal amount) {
+        Step[] steps = route(businessType);
+        int current = currentStep(steps, workflowStore.findApprovals(businessType, businessId), amount);
+        return current < 0 ? null : steps[current].level;
+    }
+
+    private Step[] route(String businessType) {
+        Step[] steps = routes.get(businessType.toLowerCase(Locale.ROOT).replace('_', '-'));
+        if (steps == null) {
+            throw new IllegalStateException("未配置审批路由：" + businessType);
+        }
+        return steps;
+    }
+
+    /**
+     * 由审批记录推出当前待审批的步骤下标，流程已通过或已被拒绝时返回-1
+     */
+    private static int currentStep(Step[] steps, List<Approval> records, BigDecimal amount) {
+        for (Approval record : records) {
+            if (RESULT_REJECTED.equals(record.getResult())) {
+                return -1;
+            }
+        }
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            if (!step.applies(amount)) {
+                continue;
+            }
+            boolean anyApproved = false;
+            boolean anyPending = false;
+            for (Approval record : records) {
+                if (record.getApprovalLevel() != null && record.getApprovalLevel() == step.level) {
+                    anyApproved |= RESULT_APPROVED.equals(record.getResult());
+                    anyPending |= RESULT_PENDING.equals(record.getResult());
+                }
+            }
+            boolean done = step.all ? anyApproved && !anyPending : anyApproved;
+            if (!done) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Step nextStep(Step[] steps, int after, BigDecimal amount) {
+        for (int i = after + 1; i < steps.length; i++) {
+            if (steps[i].applies(amount)) {
+                return steps[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为步骤的每个审批人生成待审批记录，已委托的审批人由代理人审批；不限审批人的步骤不生成记录
+     */
+    private List<Approval> activate(Step step, String businessType, Long businessId) {
+        if (step.isOpen()) {
+            return Collections.emptyList();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Approval> created = new ArrayList<>(step.approvers.length);
+        for (long approverId : step.approvers) {
+            Long delegate = delegates.getOrDefault(approverId, approverId);
+            Approval task = newApproval(businessType, businessId, step.level, delegate,
+                    delegate == approverId ? null : approverId, RESULT_PENDING, now);
+            workflowStore.getApprovals().insert(task);
+            created.add(task);
+        }
+        return created;
+    }
+
+    private Approval newApproval(String businessType, Long businessId, int level, Long approverId, Long delegatorId,
+                                 String result, LocalDateTime now) {
+        Approval approval = new Approval();
+        approval.setId(documentNumberGenerator.nextId(SEQ_APPROVAL));
+        approval.setBusinessType(businessType);
+        approval.setBusinessId(businessId);
+        approval.setApproverId(approverId);
+        approval.setDelegatorId(delegatorId);
+        approval.setApprovalLevel(level);
+        approval.setResult(result);
+        approval.setCreatedAt(now);
+        approval.setUpdatedAt(now);
+        return approval;
+    }
+
+    private static Approval findTask(List<Approval> records, int level, Long approverId) {
+        for (Approval record : records) {
+            if (RESULT_PENDING.equals(record.getResult()) && record.getApprovalLevel() == level
+                    && (approverId.equals(record.getApproverId()) || approverId.equals(record.getDelegatorId()))) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasRecords(List<Approval> records, int level) {
+        for (Approval record : records) {
+            if (record.getApprovalLevel() != null && record.getApprovalLevel() == level) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPending(List<Approval> records, int level) {
+        for (Approval record : records) {
+            if (RESULT_PENDING.equals(record.getResult()) && record.getApprovalLevel() == level) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将仍待审批的记录标记为无需审批，level 为空时处理全部级别
+     */
+    private void skipPending(List<Approval> records, Integer level, LocalDateTime now) {
+        for (Approval record : records) {
+            if (!RESULT_PENDING.equals(record.getResult())
+                    || level != null && record.getApprovalLevel() != level.intValue()) {
+                continue;
+            }
+            try (WriteBehindCache.Handle<Approval> handle = workflowStore.getApprovals().lock(record.getId())) {
+                Approval approval = handle.get();
+                if (approval != null && RESULT_PENDING.equals(approval.getResult())) {
+                    approval.setResult(RESULT_SKIPPED);
+                    approval.setUpdatedAt(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * 编译后的审批步骤
+     */
+    private static final class Step {
+
+        private final int level;
+
+        private final BigDecimal minAmount;
+
+        private final long[] approvers;
+
+        private final boolean all;
+
+        private Step(int level, BigDecimal minAmount, long[] approvers, boolean all) {
+            this.level = level;
+            this.minAmount = minAmount;
+            this.approvers = approvers;
+            this.all = all;
+        }
+
+        private boolean isOpen() {
+            return approvers.length == 0;
+        }
+
+        private boolean applies(BigDecimal amount) {
+            return minAmount == null || amount != null && amount.compareTo(minAmount) >= 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.iobaf.domain.workflow.service;
+
+import com.iobaf.domain.workflow.vo.BankReceiptVO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 银行流水文件解析
+ * UTF-8 编码的逗号分隔文本，每行一笔收款，列依次为：
+ * 银行流水号,客户ID,收款金额,收款日期(yyyy-MM-dd)[,发票编号(多个以;分隔)[,备注]]
+ * 以 bank_reference 开头的首行视为表头，空行忽略；字段不支持引号转义，备注可包含逗号
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public final class BankStatementParser {
+
+    private static final String HEADER_PREFIX = "bank_reference";
+
+    private static final int MIN_COLUMNS = 4;
+
+    private static final int MAX_COLUMNS = 6;
+
+    private BankStatementParser() {
+    }
+
+    /**
+     * 解析银行流水文件，任一行格式错误时整个文件不予接受
+     *
+     * @param in 文件内容，由调用方关闭
+     * @return 收款列表，按文件顺序
+     * @throws IOException 读取失败
+     * @throws IllegalArgumentException 格式错误，信息中含行号
+     */
+    public static List<BankReceiptVO> parse(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<BankReceiptVO> receipts = new ArrayList<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (lineNo == 1 && !line.isEmpty() && line.charAt(0) == '﻿') {
+                line = line.substring(1);
+            }
+            if (line.trim().isEmpty() || lineNo == 1 && line.startsWith(HEADER_PREFIX)) {
+                continue;
+            }
+            receipts.add(parseLine(line, lineNo));
+        }
+        return receipts;
+    }
+
+    private static BankReceiptVO parseLine(String line, int lineNo) {
+        String[] columns = line.split(",", MAX_COLUMNS);
+        if (columns.length < MIN_COLUMNS) {
+            throw new IllegalArgumentException("银行流水第" + lineNo + "行列数不足：" + line);
+        }
+        BankReceiptVO receipt = new BankReceiptVO();
+        try {
+            receipt.setBankReference(required(columns[0], "银行流水号", lineNo));
+            receipt.setCustomerId(Long.valueOf(required(columns[1], "客户ID", lineNo)));
+            receipt.setAmount(new BigDecimal(required(columns[2], "收款金额", lineNo)));
+            receipt.setPaymentDate(LocalDate.parse(required(columns[3], "收款日期", lineNo)));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("银行流水第" + lineNo + "行格式错误：" + line, e);
+        }
+        if (columns.length > 4 && !columns[4].trim().isEmpty()) {
+            List<String> invoiceNos = new ArrayList<>();
+            for (String invoiceNo : Arrays.asList(columns[4].split(";"))) {
+                if (!invoiceNo.trim().isEmpty()) {
+                    invoiceNos.add(invoiceNo.trim());
+                }
+            }
+            receipt.setInvoiceNos(invoiceNos);
+        }
+        if (columns.length > 5 && !columns[5].trim().isEmpty()) {
+            receipt.setRemarks(columns[5].trim());
+        }
+        return receipt;
+    }
+
+    private static String required(String value, String name, int lineNo) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("银行流水第" + lineNo + "行缺少" + name);
+        }
+        return trimmed;
+    }
+}
\ No newline at end of file
@@ -10,7 +10,12 @@ import com.iobaf.domain.workflow.entity.Supplier;
 import com.iobaf.domain.workflow.entity.Receipt;
 import com.iobaf.domain.workflow.entity.ExpenseRequest;
 import com.iobaf.domain.workflow.entity.Approval;
+import com.iobaf.domain.workflow.entity.PaymentAllocation;
+import com.iobaf.domain.workflow.vo.BankReceiptVO;
+import com.iobaf.domain.workflow.vo.PaymentApplicationResultVO;
+import com.iobaf.domain.workflow.vo.ReceivableAgingVO;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -99,6 +104,42 @@ public interface BusinessWorkflowService {
      */
     boolean confirmPayment(Long invoiceId, BigDecimal paymentAmount, String paymentMethod);
 
+    /**
+     * 批量收款入账并核销到发票
+     * 指定发票的收款按给出的顺序核销，未指定的按发票日期先后核销到该客户的未结清发票，剩余金额留作预收；
+     * 银行流水号已入账的收款跳过，整批在一个事务中入账
+     * 
+     * @param receipts 收款列表
+     * @param paymentMethod 收款方式
+     * @return 核销结果
+     */
+    PaymentApplicationResultVO applyReceipts(List<BankReceiptVO> receipts, String paymentMethod);
+
+    /**
+     * 导入银行流水文件，收款入账并核销到发票
+     * 
+     * @param statement 银行流水文件内容，格式见 {@link BankStatementParser}
+     * @param paymentMethod 收款方式
+     * @return 核销结果
+     */
+    PaymentApplicationResultVO applyBankStatement(InputStream statement, String paymentMethod);
+
+    /**
+     * 获取客户的收款记录，按收款日期降序
+     * 
+     * @param customerId 客户ID
+     * @return 收款记录列表
+     */
+    List<Payment> getPayments(Long customerId);
+
+    /**
+     * 获取发票的核销明细
+     * 
+     * @param invoiceId 发票ID
+     * @return 核销明细列表
+     */
+    List<PaymentAllocation> getPaymentAllocations(Long invoiceId);
+
     /**
      * 执行完整的销售到收款流程
      * 
@@ -339,6 +380,38 @@ public interface BusinessWorkflowService {
      */
     List<Approval> getApprovals(String businessType, Long businessId);
 
+    /**
+     * 获取审批人的待审批记录（待办），按创建先后排序
+     * 
+     * @param approverId 审批人ID
+     * @param limit 最多返回条数
+     * @return 待审批记录列表
+     */
+    List<Approval> getPendingApprovals(Long approverId, int limit);
+
+    /**
+     * 统计审批人的待审批记录数
+     * 
+     * @param approverId 审批人ID
+     * @return 待审批记录数
+     */
+    int countPendingApprovals(Long approverId);
+
+    /**
+     * 获取应收账龄及应收账款周转天数（DSO）
+     * 
+     * @param customerId 客户ID，为空时汇总全部客户
+     * @return 应收账龄
+     */
+    ReceivableAgingVO getReceivableAging(Long customerId);
+
+    /**
+     * 获取各客户的应收账龄，按未收款合计降序
+     * 
+     * @return 各客户的应收账龄
+     */
+    List<ReceivableAgingVO> getReceivableAgingByCustomer();
+
     /**
      * 获取流程统计信息
      * 
@@ -0,0 +1,415 @@
+package com.iobaf.domain.workflow.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.iobaf.common.cache.WriteBehindCache;
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.common.sequence.DocumentNumberFormatter;
+import com.iobaf.common.sequence.DocumentNumberGenerator;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.event.AutoVoucherSource;
+import com.iobaf.domain.finance.service.AutoVoucherQueue;
+import com.iobaf.domain.workflow.entity.Invoice;
+import com.iobaf.domain.workflow.entity.Payment;
+import com.iobaf.domain.workflow.entity.PaymentAllocation;
+import com.iobaf.domain.workflow.repository.PaymentAllocationRepository;
+import com.iobaf.domain.workflow.repository.PaymentRepository;
+import com.iobaf.domain.workflow.state.InvoiceStatus;
+import com.iobaf.domain.workflow.state.PaymentStatus;
+import com.iobaf.domain.workflow.state.WorkflowStateMachines;
+import com.iobaf.domain.workflow.vo.BankReceiptVO;
+import com.iobaf.domain.workflow.vo.PaymentApplicationResultVO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 收款核销
+ * 每笔收款入账为一条收款记录，核销到发票的金额逐条记录为核销明细。
+ * 指定发票的收款按给出的顺序核销，未指定的按发票日期先后核销到该客户的未结清发票（经未结清发票索引查找）；
+ * 每张发票最多核销到结清，剩余金额留在收款上作为客户预收。
+ * 一批收款先在持有发票锁的情况下算出全部核销明细，再以多行 INSERT 分批写入收款与核销明细，最后更新发票；
+ * 调用方须在事务中调用，使一批收款整体入账或整体回滚：发票的修改在缓存的工作副本上进行，发票锁持有到事务结束，
+ * 提交后修改才生效，应收账龄在提交后计入，收款凭证在提交后生成；回滚时三者均不发生。
+ * 可能锁定多张发票的核销互斥执行，避免批次之间交叉加锁
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class PaymentAllocator {
+
+    public static final String SEQ_PAYMENT = "workflow.payment";
+    public static final String SEQ_PAYMENT_ALLOCATION = "workflow.payment-allocation";
+
+    public static final String STATUS_UNALLOCATED = "UNALLOCATED";
+    public static final String STATUS_PARTIAL = "PARTIAL";
+    public static final String STATUS_ALLOCATED = "ALLOCATED";
+
+    private static final int DOCUMENT_NO_WIDTH = 6;
+
+    @Autowired
+    private WorkflowStore workflowStore;
+
+    @Autowired
+    private WorkflowStateMachines stateMachines;
+
+    @Autowired
+    private ReceivableAgingEngine receivableAgingEngine;
+
+    @Autowired
+    private AutoVoucherQueue autoVoucherQueue;
+
+    @Autowired
+    private DocumentNumberGenerator documentNumberGenerator;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentAllocationRepository paymentAllocationRepository;
+
+    /**
+     * 多行 INSERT 每批行数
+     */
+    @Value("${iobaf.workflow.payment.batch-size:500}")
+    private int batchSize;
+
+    private final ReentrantLock exclusiveLock = new ReentrantLock();
+
+    /**
+     * 按数据库中已有的最大ID推进收款及核销明细ID序列
+     */
+    @PostConstruct
+    public void restoreSequences() {
+        documentNumberGenerator.advanceTo(SEQ_PAYMENT, WorkflowStore.maxId(paymentRepository));
+        documentNumberGenerator.advanceTo(SEQ_PAYMENT_ALLOCATION, WorkflowStore.maxId(paymentAllocationRepository));
+    }
+
+    /**
+     * 收款入账并核销到发票
+     *
+     * @param receipts 收款列表
+     * @param paymentMethod 收款方式
+     * @return 核销结果
+     * @throws IllegalArgumentException 收款数据无效或指定的发票不存在、不属于该客户
+     * @throws IllegalStateException 指定的发票当前状态不允许收款
+     */
+    public PaymentApplicationResultVO apply(List<BankReceiptVO> receipts, String paymentMethod) {
+        long start = System.nanoTime();
+        Set<String> references = new LinkedHashSet<>();
+        Set<String> invoiceNos = new LinkedHashSet<>();
+        for (int i = 0; i < receipts.size(); i++) {
+            BankReceiptVO receipt = receipts.get(i);
+            if (receipt.getAmount() == null || receipt.getAmount().signum() <= 0) {
+                throw new IllegalArgumentException("第" + (i + 1) + "笔收款金额必须大于0");
+            }
+            if (receipt.getCustomerId() == null && isEmpty(receipt.getInvoiceIds()) && isEmpty(receipt.getInvoiceNos())) {
+                throw new IllegalArgumentException("第" + (i + 1) + "笔收款未指定客户或发票");
+            }
+            if (receipt.getBankReference() != null) {
+                references.add(receipt.getBankReference());
+            }
+            if (receipt.getInvoiceNos() != null) {
+                invoiceNos.addAll(receipt.getInvoiceNos());
+            }
+        }
+
+        // 跳过已入账的流水号及同一批中重复的流水号
+        Set<String> seen = existingBankReferences(references);
+        List<BankReceiptVO> accepted = new ArrayList<>(receipts.size());
+        for (BankReceiptVO receipt : receipts) {
+            if (receipt.getBankReference() == null || seen.add(receipt.getBankReference())) {
+                accepted.add(receipt);
+            }
+        }
+        Map<String, Long> invoiceIdsByNo = workflowStore.findInvoiceIdsByNo(invoiceNos);
+        for (String invoiceNo : invoiceNos) {
+            if (!invoiceIdsByNo.containsKey(invoiceNo)) {
+                throw new IllegalArgumentException("发票不存在：" + invoiceNo);
+            }
+        }
+
+        boolean exclusive = accepted.size() > 1
+                || accepted.size() == 1 && explicitInvoices(accepted.get(0), invoiceIdsByNo).size() != 1;
+        if (exclusive) {
+            exclusiveLock.lock();
+        }
+        Plan plan = new Plan();
+        try {
+            for (BankReceiptVO receipt : accepted) {
+                allocate(plan, receipt, explicitInvoices(receipt, invoiceIdsByNo), paymentMethod);
+            }
+            for (int from = 0; from < plan.payments.size(); from += batchSize) {
+                paymentRepository.batchInsert(plan.payments.subList(from, Math.min(from + batchSize, plan.payments.size())));
+            }
+            for (int from = 0; from < plan.allocations.size(); from += batchSize) {
+                paymentAllocationRepository.batchInsert(
+                        plan.allocations.subList(from, Math.min(from + batchSize, plan.allocations.size())));
+            }
+            int settled = 0;
+            for (PaymentAllocation allocation : plan.allocations) {
+                if (applyToInvoice(plan.handles.get(allocation.getInvoiceId()).get(), allocation.getAmount())) {
+                    settled++;
+                }
+            }
+
+            PaymentApplicationResultVO result = plan.toResult();
+            result.setReceiptCount(receipts.size());
+            result.setDuplicateCount(receipts.size() - accepted.size());
+            result.setSettledInvoiceCount(settled);
+            result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+            log.info("收款核销完成，收款{}笔，跳过重复{}笔，核销明细{}条，结清发票{}张，耗时{}ms", result.getPaymentCount(),
+                    result.getDuplicateCount(), result.getAllocationCount(), settled, result.getElapsedMillis());
+            return result;
+        } finally {
+            plan.unlock();
+            if (exclusive) {
+                exclusiveLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 查询客户的收款记录，按收款日期降序
+     */
+    public List<Payment> findPayments(Long customerId) {
+        return paymentRepository.selectList(new LambdaQueryWrapper<Payment>()
+                .eq(Payment::getCustomerId, customerId)
+                .orderByDesc(Payment::getPaymentDate)
+                .orderByDesc(Payment::getId));
+    }
+
+    /**
+     * 查询发票的核销明细，按核销先后排序
+     */
+    public List<PaymentAllocation> findAllocations(Long invoiceId) {
+        return paymentAllocationRepository.selectList(new LambdaQueryWrapper<PaymentAllocation>()
+                .eq(PaymentAllocation::getInvoiceId, invoiceId)
+                .orderByAsc(PaymentAllocation::getId));
+    }
+
+    /**
+     * 为一笔收款生成收款记录和核销明细，核销金额从计划中发票的未收款中扣除
+     */
+    private void allocate(Plan plan, BankReceiptVO receipt, List<Long> explicit, String paymentMethod) {
+        LocalDateTime now = LocalDateTime.now();
+        Payment payment = new Payment();
+        payment.setId(documentNumberGenerator.nextId(SEQ_PAYMENT));
+        payment.setPaymentNo(DocumentNumberFormatter.format("PAY", payment.getId(), DOCUMENT_NO_WIDTH));
+        payment.setCustomerId(receipt.getCustomerId());
+        payment.setAmount(receipt.getAmount());
+        payment.setPaymentDate(receipt.getPaymentDate() == null ? LocalDate.now() : receipt.getPaymentDate());
+        payment.setPaymentMethod(paymentMethod);
+        payment.setBankReference(receipt.getBankReference());
+        payment.setRemarks(receipt.getRemarks());
+        payment.setCreatedAt(now);
+        payment.setUpdatedAt(now);
+
+        BigDecimal left = receipt.getAmount();
+        if (!explicit.isEmpty()) {
+            for (Long invoiceId : explicit) {
+                Invoice invoice = plan.lock(invoiceId);
+                if (!isOpen(invoice)) {
+                    throw new IllegalStateException("发票当前状态不允许收款：" + invoice.getInvoiceNo() + " "
+                            + invoice.getStatus() + "/" + invoice.getPaymentStatus());
+                }
+                if (receipt.getCustomerId() != null && invoice.getCustomerId() != null
+                        && !receipt.getCustomerId().equals(invoice.getCustomerId())) {
+                    throw new IllegalArgumentException("发票" + invoice.getInvoiceNo() + "不属于客户" + receipt.getCustomerId());
+                }
+                if (payment.getCustomerId() == null) {
+                    payment.setCustomerId(invoice.getCustomerId());
+                }
+                left = left.subtract(plan.allocate(payment, invoiceId, left, now));
+                if (left.signum() == 0) {
+                    break;
+                }
+            }
+        } else {
+            List<Invoice> open = plan.openInvoices(receipt.getCustomerId());
+            int cursor = plan.cursor(receipt.getCustomerId());
+            while (left.signum() > 0 && cursor < open.size()) {
+                Long invoiceId = open.get(cursor).getId();
+                plan.lock(invoiceId);
+                left = left.subtract(plan.allocate(payment, invoiceId, left, now));
+                if (plan.remaining(invoiceId).signum() == 0) {
+                    cursor++;
+                }
+            }
+            plan.cursors.put(receipt.getCustomerId(), cursor);
+        }
+
+        BigDecimal allocated = receipt.getAmount().subtract(left);
+        payment.setAllocatedAmount(allocated);
+        payment.setStatus(allocated.signum() == 0 ? STATUS_UNALLOCATED
+                : left.signum() == 0 ? STATUS_ALLOCATED : STATUS_PARTIAL);
+        plan.payments.add(payment);
+    }
+
+    /**
+     * 把核销金额计入发票：更新已收款金额和状态，并在事务提交后计入应收账龄、生成收款凭证
+     *
+     * @return 发票是否因此结清
+     */
+    private boolean applyToInvoice(Invoice invoice, BigDecimal amount) {
+        BigDecimal newReceivedAmount = invoice.getReceivedAmount().add(amount);
+        boolean settled = newReceivedAmount.compareTo(invoice.getAmount()) >= 0;
+        invoice.setReceivedAmount(newReceivedAmount);
+        invoice.setUpdatedAt(LocalDateTime.now());
+        stateMachines.invoicePayments().fire(invoice, settled ? PaymentStatus.Event.SETTLE : PaymentStatus.Event.RECEIVE);
+        if (settled) {
+            stateMachines.invoices().fire(invoice, InvoiceStatus.Event.PAY);
+        }
+        receivableAgingEngine.onReceipt(invoice, amount);
+        // 以累计收款额区分同一发票的多次收款
+        autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.RECEIPT, invoice.getId(),
+                newReceivedAmount.toPlainString(), amount, null, "收款-" + invoice.getInvoiceNo()));
+        return settled;
+    }
+
+    private boolean isOpen(Invoice invoice) {
+        return stateMachines.invoices().canFire(invoice, InvoiceStatus.Event.PAY)
+                && stateMachines.invoicePayments().canFire(invoice, PaymentStatus.Event.SETTLE)
+                && invoice.getAmount().compareTo(invoice.getReceivedAmount()) > 0;
+    }
+
+    private Set<String> existingBankReferences(Set<String> references) {
+        Set<String> existing = new HashSet<>();
+        List<String> all = new ArrayList<>(references);
+        for (int from = 0; from < all.size(); from += batchSize) {
+            existing.addAll(paymentRepository.selectExistingBankReferences(
+                    all.subList(from, Math.min(from + batchSize, all.size()))));
+        }
+        return existing;
+    }
+
+    private static List<Long> explicitInvoices(BankReceiptVO receipt, Map<String, Long> invoiceIdsByNo) {
+        if (!isEmpty(receipt.getInvoiceIds())) {
+            return receipt.getInvoiceIds();
+        }
+        if (isEmpty(receipt.getInvoiceNos())) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(receipt.getInvoiceNos().size());
+        for (String invoiceNo : receipt.getInvoiceNos()) {
+            ids.add(invoiceIdsByNo.get(invoiceNo));
+        }
+        return ids;
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    /**
+     * 一批收款的核销计划：已锁定的发票及其计划中的剩余未收款、各客户按先后顺序的未结清发票
+     */
+    private final class Plan {
+
+        private final Map<Long, WriteBehindCache.Handle<Invoice>> handles = new LinkedHashMap<>();
+
+        private final Map<Long, BigDecimal> remaining = new HashMap<>();
+
+        private final Map<Long, List<Invoice>> openInvoices = new HashMap<>();
+
+        private final Map<Long, Integer> cursors = new HashMap<>();
+
+        private final List<Payment> payments = new ArrayList<>();
+
+        private final List<PaymentAllocation> allocations = new ArrayList<>();
+
+        /**
+         * 锁定发票直到本批结束，首次锁定时记录其未收款（不可收款的发票记为0）
+         */
+        private Invoice lock(Long invoiceId) {
+            WriteBehindCache.Handle<Invoice> handle = handles.get(invoiceId);
+            if (handle == null) {
+                handle = workflowStore.getInvoices().lock(invoiceId);
+                if (handle.get() == null) {
+                    handle.close();
+                    throw new IllegalArgumentException("发票不存在：" + invoiceId);
+                }
+                handles.put(invoiceId, handle);
+                Invoice invoice = handle.get();
+                remaining.put(invoiceId, isOpen(invoice)
+                        ? invoice.getAmount().subtract(invoice.getReceivedAmount()) : BigDecimal.ZERO);
+            }
+            return handle.get();
+        }
+
+        private BigDecimal remaining(Long invoiceId) {
+            return remaining.get(invoiceId);
+        }
+
+        /**
+         * 从发票剩余未收款中核销不超过 amount 的金额
+         *
+         * @return 实际核销金额
+         */
+        private BigDecimal allocate(Payment payment, Long invoiceId, BigDecimal amount, LocalDateTime now) {
+            BigDecimal applied = amount.min(remaining.get(invoiceId));
+            if (applied.signum() <= 0) {
+                return BigDecimal.ZERO;
+            }
+            remaining.put(invoiceId, remaining.get(invoiceId).subtract(applied));
+            PaymentAllocation allocation = new PaymentAllocation();
+            allocation.setId(documentNumberGenerator.nextId(SEQ_PAYMENT_ALLOCATION));
+            allocation.setPaymentId(payment.getId());
+            allocation.setInvoiceId(invoiceId);
+            allocation.setAmount(applied);
+            allocation.setCreatedAt(now);
+            allocations.add(allocation);
+            return applied;
+        }
+
+        private List<Invoice> openInvoices(Long customerId) {
+            return openInvoices.computeIfAbsent(customerId, workflowStore::findOpenInvoices);
+        }
+
+        private int cursor(Long customerId) {
+            return cursors.getOrDefault(customerId, 0);
+        }
+
+        private void unlock() {
+            for (WriteBehindCache.Handle<Invoice> handle : handles.values()) {
+                handle.close();
+            }
+        }
+
+        private PaymentApplicationResultVO toResult() {
+            MoneySum total = new MoneySum();
+            MoneySum allocated = new MoneySum();
+            List<Long> paymentIds = new ArrayList<>(payments.size());
+            for (Payment payment : payments) {
+                total.add(payment.getAmount());
+                allocated.add(payment.getAllocatedAmount());
+                paymentIds.add(payment.getId());
+            }
+            PaymentApplicationResultVO result = new PaymentApplicationResultVO();
+            result.setPaymentCount(payments.size());
+            result.setAllocationCount(allocations.size());
+            result.setTotalAmount(total.toBigDecimal());
+            result.setAllocatedAmount(allocated.toBigDecimal());
+            result.setUnallocatedAmount(total.toBigDecimal().subtract(allocated.toBigDecimal()));
+            result.setPaymentIds(paymentIds);
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,443 @@
+package com.iobaf.domain.workflow.service;
+
+import com.iobaf.common.money.MoneySum;
+import com.iobaf.domain.workflow.entity.Contract;
+import com.iobaf.domain.workflow.entity.Invoice;
+import com.iobaf.domain.workflow.entity.Project;
+import com.iobaf.domain.workflow.event.WorkflowTransitionEvent;
+import com.iobaf.domain.workflow.repository.InvoiceRepository;
+import com.iobaf.domain.workflow.state.InvoiceStatus;
+import com.iobaf.domain.workflow.vo.ReceivableAgingVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应收账龄引擎
+ * 按客户维护各账龄段的未收款合计及按发票日期的未收款明细，开票、收款、发票开具与作废时增量更新，查询时不扫描发票。
+ * 日期变化时只需把发票日期恰好跨过30、60、90天边界的金额移到下一账龄段，每个客户每天最多三次查找；
+ * 后台任务每天完成一次滚动，查询和更新前也会先把该客户滚动到当天。
+ * 同时按客户保留统计期内每天的开票金额，用于计算应收账款周转天数（DSO）。
+ * 在事务中发生的变动按当时的发票状态算出金额，事务提交后才计入，回滚时不计入。
+ * 前提是发票只经业务流程服务修改
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class ReceivableAgingEngine {
+
+    /**
+     * 各账龄段的天数上限，最后一段无上限
+     */
+    private static final int[] BUCKET_LIMITS = {30, 60, 90};
+
+    /**
+     * 无法确定客户的发票计入的客户ID
+     */
+    public static final long UNKNOWN_CUSTOMER = 0L;
+
+    /**
+     * 检查日期变化的间隔（分钟）
+     */
+    private static final long ROLL_CHECK_MINUTES = 1;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    /**
+     * 注入存储保证启动时缓存中的修改已写入数据库，再从数据库初始化
+     */
+    @Autowired
+    private WorkflowStore workflowStore;
+
+    /**
+     * DSO统计期天数
+     */
+    @Value("${iobaf.workflow.receivable.dso-days:90}")
+    private int dsoDays;
+
+    private final ConcurrentMap<Long, CustomerAging> customers = new ConcurrentHashMap<>();
+
+    private volatile long rolledTo;
+
+    private ScheduledExecutorService roller;
+
+    @PostConstruct
+    public void start() {
+        long today = LocalDate.now().toEpochDay();
+        int rows = 0;
+        for (Map<String, Object> row : invoiceRepository.selectOutstandingByCustomerAndDay()) {
+            customer(((Number) row.get("customerId")).longValue(), today)
+                    .addOutstanding(toEpochDay(row.get("invoiceDay")), (BigDecimal) row.get("amount"), today);
+            rows++;
+        }
+        LocalDate since = LocalDate.ofEpochDay(today - dsoDays + 1);
+        for (Map<String, Object> row : invoiceRepository.selectInvoicedByCustomerAndDay(since)) {
+            customer(((Number) row.get("customerId")).longValue(), today)
+                    .addInvoiced(toEpochDay(row.get("invoiceDay")), (BigDecimal) row.get("amount"), today);
+            rows++;
+        }
+        rolledTo = today;
+        log.info("应收账龄初始化完成，客户数={}，汇总行数={}", customers.size(), rows);
+
+        roller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receivable-aging-roller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        roller.scheduleWithFixedDelay(this::rollForwardQuietly, ROLL_CHECK_MINUTES, ROLL_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        roller.shutdownNow();
+    }
+
+    /**
+     * 发票开具：未收款金额计入发票日期所在账龄段，开票金额计入DSO统计
+     *
+     * @param invoice 已开具的发票
+     */
+    public void onInvoiceIssued(Invoice invoice) {
+        apply(customerOf(invoice), invoiceDay(invoice), outstanding(invoice), invoice.getAmount());
+    }
+
+    /**
+     * 发票收款：从发票日期所在账龄段扣除冲抵应收的金额
+     *
+     * @param invoice 发票
+     * @param applied 冲抵应收的金额，不含超出未收款部分
+     */
+    public void onReceipt(Invoice invoice, BigDecimal applied) {
+        if (applied == null || applied.signum() <= 0) {
+            return;
+        }
+        apply(customerOf(invoice), invoiceDay(invoice), applied.negate(), null);
+    }
+
+    /**
+     * 草稿发票开具、发票作废时更新账龄；状态转换在持有发票锁时同步发布，此时发票已是转换后的状态
+     */
+    @EventListener
+    public void onTransition(WorkflowTransitionEvent event) {
+        if (!"invoice".equals(event.getMachine())) {
+            return;
+        }
+        boolean issued = InvoiceStatus.Event.ISSUE.name().equals(event.getEvent());
+        boolean cancelled = InvoiceStatus.Event.CANCEL.name().equals(event.getEvent())
+                && !InvoiceStatus.DRAFT.name().equals(event.getFromState());
+        if (!issued && !cancelled) {
+            return;
+        }
+        Invoice invoice = workflowStore.getInvoices().get(event.getDocumentId());
+        if (invoice == null) {
+            return;
+        }
+        if (issued) {
+            onInvoiceIssued(invoice);
+        } else {
+            apply(customerOf(invoice), invoiceDay(invoice), outstanding(invoice).negate(), invoice.getAmount().negate());
+        }
+    }
+
+    /**
+     * 查询客户的应收账龄
+     *
+     * @param customerId 客户ID，为空时汇总全部客户
+     * @return 应收账龄
+     */
+    public ReceivableAgingVO getAging(Long customerId) {
+        long today = LocalDate.now().toEpochDay();
+        if (customerId != null) {
+            CustomerAging aging = customers.get(customerId);
+            Totals totals = new Totals();
+            if (aging != null) {
+                aging.collect(totals, today);
+            }
+            return totals.toVO(customerId, today);
+        }
+        Totals totals = new Totals();
+        for (CustomerAging aging : customers.values()) {
+            aging.collect(totals, today);
+        }
+        return totals.toVO(null, today);
+    }
+
+    /**
+     * 查询各客户的应收账龄，按未收款合计降序，不含已无未收款的客户
+     *
+     * @return 各客户的应收账龄
+     */
+    public List<ReceivableAgingVO> getAgingByCustomer() {
+        long today = LocalDate.now().toEpochDay();
+        List<ReceivableAgingVO> result = new ArrayList<>(customers.size());
+        for (Map.Entry<Long, CustomerAging> entry : customers.entrySet()) {
+            Totals totals = new Totals();
+            entry.getValue().collect(totals, today);
+            if (totals.outstanding().signum() != 0) {
+                result.add(totals.toVO(entry.getKey(), today));
+            }
+        }
+        result.sort(Comparator.comparing(ReceivableAgingVO::getTotalOutstanding).reversed());
+        return result;
+    }
+
+    /**
+     * 把全部客户滚动到当天，每天只执行一次
+     */
+    public void rollForward() {
+        long today = LocalDate.now().toEpochDay();
+        if (today <= rolledTo) {
+            return;
+        }
+        for (CustomerAging aging : customers.values()) {
+            aging.rollTo(today);
+        }
+        rolledTo = today;
+        log.info("应收账龄已滚动到{}，客户数={}", LocalDate.ofEpochDay(today), customers.size());
+    }
+
+    private void rollForwardQuietly() {
+        try {
+            rollForward();
+        } catch (RuntimeException e) {
+            log.error("应收账龄滚动失败", e);
+        }
+    }
+
+    /**
+     * 计入未收款及开票金额的变动，存在事务时在提交后计入
+     *
+     * @param invoiced 开票金额变动，为空时不变
+     */
+    private void apply(long customerId, long day, BigDecimal outstanding, BigDecimal invoiced) {
+        Runnable action = () -> {
+            long today = LocalDate.now().toEpochDay();
+            CustomerAging aging = customer(customerId, today);
+            aging.addOutstanding(day, outstanding, today);
+            if (invoiced != null) {
+                aging.addInvoiced(day, invoiced, today);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private CustomerAging customer(long customerId, long today) {
+        CustomerAging aging = customers.get(customerId);
+        if (aging == null) {
+            aging = customers.computeIfAbsent(customerId, id -> new CustomerAging(today, dsoDays));
+        }
+        return aging;
+    }
+
+    /**
+     * 发票所属客户：未记录客户的发票经项目、合同取得
+     */
+    private long customerOf(Invoice invoice) {
+        if (invoice.getCustomerId() != null) {
+            return invoice.getCustomerId();
+        }
+        Project project = invoice.getProjectId() == null ? null : workflowStore.getProjects().get(invoice.getProjectId());
+        Contract contract = project == null || project.getContractId() == null ? null
+                : workflowStore.getContracts().get(project.getContractId());
+        return contract == null || contract.getCustomerId() == null ? UNKNOWN_CUSTOMER : contract.getCustomerId();
+    }
+
+    private static long invoiceDay(Invoice invoice) {
+        if (invoice.getInvoiceDate() != null) {
+            return invoice.getInvoiceDate().toEpochDay();
+        }
+        return (invoice.getCreatedAt() == null ? LocalDate.now() : invoice.getCreatedAt().toLocalDate()).toEpochDay();
+    }
+
+    private static BigDecimal outstanding(Invoice invoice) {
+        BigDecimal received = invoice.getReceivedAmount() == null ? BigDecimal.ZERO : invoice.getReceivedAmount();
+        return invoice.getAmount().subtract(received);
+    }
+
+    private static long toEpochDay(Object day) {
+        LocalDate date = day instanceof java.sql.Date ? ((java.sql.Date) day).toLocalDate()
+                : day instanceof LocalDate ? (LocalDate) day : LocalDate.parse(day.toString());
+        return date.toEpochDay();
+    }
+
+    private static int bucketOf(long age) {
+        for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+            if (age <= BUCKET_LIMITS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_LIMITS.length;
+    }
+
+    /**
+     * 单个客户的账龄数据，所有方法在客户对象上同步
+     */
+    private static final class CustomerAging {
+
+        private final int dsoDays;
+
+        private final MoneySum[] buckets = new MoneySum[BUCKET_LIMITS.length + 1];
+
+        /**
+         * 发票日期（epoch day）到未收款金额
+         */
+        private final Map<Long, MoneySum> outstandingByDay = new HashMap<>();
+
+        /**
+         * 发票日期（epoch day）到开票金额，只保留统计期内的日期
+         */
+        private final Map<Long, MoneySum> invoicedByDay = new HashMap<>();
+
+        /**
+         * 账龄段对应的日期（epoch day）
+         */
+        private long asOf;
+
+        private CustomerAging(long today, int dsoDays) {
+            this.asOf = today;
+            this.dsoDays = dsoDays;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new MoneySum();
+            }
+        }
+
+        private synchronized void addOutstanding(long day, BigDecimal amount, long today) {
+            rollTo(today);
+            MoneySum sum = outstandingByDay.computeIfAbsent(day, d -> new MoneySum());
+            sum.add(amount);
+            if (sum.signum() == 0) {
+                outstandingByDay.remove(day);
+            }
+            buckets[bucketOf(today - day)].add(amount);
+        }
+
+        private synchronized void addInvoiced(long day, BigDecimal amount, long today) {
+            rollTo(today);
+            if (day > today - dsoDays) {
+                invoicedByDay.computeIfAbsent(day, d -> new MoneySum()).add(amount);
+            }
+        }
+
+        /**
+         * 滚动到指定日期：逐日把发票日期跨过账龄段边界的金额移到下一段；相隔超过最长账龄段时直接重算
+         */
+        private synchronized void rollTo(long today) {
+            if (today <= asOf) {
+                return;
+            }
+            if (today - asOf > BUCKET_LIMITS[BUCKET_LIMITS.length - 1]) {
+                for (int i = 0; i < buckets.length; i++) {
+                    buckets[i] = new MoneySum();
+                }
+                for (Map.Entry<Long, MoneySum> entry : outstandingByDay.entrySet()) {
+                    buckets[bucketOf(today - entry.getKey())].add(entry.getValue());
+                }
+            } else {
+                for (long day = asOf + 1; day <= today; day++) {
+                    for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+                        MoneySum crossing = outstandingByDay.get(day - BUCKET_LIMITS[i] - 1);
+                        if (crossing != null) {
+                            BigDecimal amount = crossing.toBigDecimal();
+                            buckets[i].subtract(amount);
+                            buckets[i + 1].add(amount);
+                        }
+                    }
+                }
+            }
+            Iterator<Long> days = invoicedByDay.keySet().iterator();
+            while (days.hasNext()) {
+                if (days.next() <= today - dsoDays) {
+                    days.remove();
+                }
+            }
+            asOf = today;
+        }
+
+        private synchronized void collect(Totals totals, long today) {
+            rollTo(today);
+            for (int i = 0; i < buckets.length; i++) {
+                totals.buckets[i].add(buckets[i]);
+            }
+            for (MoneySum sum : invoicedByDay.values()) {
+                totals.invoiced.add(sum);
+            }
+        }
+    }
+
+    /**
+     * 查询时的汇总结果
+     */
+    private final class Totals {
+
+        private final MoneySum[] buckets = new MoneySum[BUCKET_LIMITS.length + 1];
+
+        private final MoneySum invoiced = new MoneySum();
+
+        private Totals() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new MoneySum();
+            }
+        }
+
+        private BigDecimal outstanding() {
+            MoneySum total = new MoneySum();
+            for (MoneySum bucket : buckets) {
+                total.add(bucket);
+            }
+            return total.toBigDecimal();
+        }
+
+        private ReceivableAgingVO toVO(Long customerId, long today) {
+            ReceivableAgingVO vo = new ReceivableAgingVO();
+            vo.setCustomerId(customerId);
+            vo.setAsOf(LocalDate.ofEpochDay(today));
+            vo.setDays0To30(buckets[0].toBigDecimal());
+            vo.setDays31To60(buckets[1].toBigDecimal());
+            vo.setDays61To90(buckets[2].toBigDecimal());
+            vo.setOver90Days(buckets[3].toBigDecimal());
+            BigDecimal outstanding = outstanding();
+            BigDecimal periodInvoiced = invoiced.toBigDecimal();
+            vo.setTotalOutstanding(outstanding);
+            vo.setPeriodInvoiced(periodInvoiced);
+            vo.setPeriodDays(dsoDays);
+            if (periodInvoiced.signum() > 0) {
+                vo.setDso(outstanding.multiply(BigDecimal.valueOf(dsoDays))
+                        .divide(periodInvoiced, 1, RoundingMode.HALF_UP));
+            }
+            return vo;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.iobaf.domain.workflow.service;
+
+import com.iobaf.domain.workflow.vo.ExpenseReimbursementParamVO;
+import com.iobaf.domain.workflow.vo.PurchaseToPaymentParamVO;
+import com.iobaf.domain.workflow.vo.SalesToReceiptParamVO;
+import com.iobaf.domain.workflow.vo.WorkflowBulkItemVO;
+import com.iobaf.domain.workflow.vo.WorkflowBulkResultVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 业务流程批量执行器
+ * 用于数据迁移和压测时批量执行端到端流程：每个流程作为独立任务提交，经业务流程服务的代理调用，
+ * 各自在独立事务中执行，单个流程失败（含 Error）时其数据库写入和缓存中的修改随事务回滚，只记录在其结果中，不影响其他流程。
+ * 同时执行的流程数由信号量限制在 concurrency 以内；运行环境支持虚拟线程时每个流程使用一个虚拟线程，
+ * 否则使用固定大小的线程池。每个流程在事务内占用一个数据库连接，concurrency 不应超过连接池大小
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+public class WorkflowBulkExecutor {
+
+    @Autowired
+    private BusinessWorkflowService businessWorkflowService;
+
+    /**
+     * 最大并发流程数
+     */
+    @Value("${iobaf.workflow.bulk.concurrency:8}")
+    private int concurrency;
+
+    /**
+     * 运行环境支持时是否使用虚拟线程
+     */
+    @Value("${iobaf.workflow.bulk.virtual-threads:true}")
+    private boolean virtualThreadsEnabled;
+
+    private ExecutorService executor;
+
+    private boolean virtualThreads;
+
+    @PostConstruct
+    public void start() {
+        executor = virtualThreadsEnabled ? newVirtualThreadExecutor() : null;
+        virtualThreads = executor != null;
+        if (executor == null) {
+            AtomicInteger sequence = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "workflow-bulk-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("流程批量执行器已启动，并发数={}，虚拟线程={}", concurrency, virtualThreads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 批量执行销售到收款流程
+     *
+     * @param params 流程参数列表
+     * @return 批量执行结果
+     */
+    public WorkflowBulkResultVO executeSalesToReceipt(List<SalesToReceiptParamVO> params) {
+        return execute("sales-to-receipt", params, p -> businessWorkflowService.executeSalesToReceiptWorkflow(
+                p.getCustomerId(), p.getOpportunityAmount(), p.getContractAmount()));
+    }
+
+    /**
+     * 批量执行采购到付款流程
+     *
+     * @param params 流程参数列表
+     * @return 批量执行结果
+     */
+    public WorkflowBulkResultVO executePurchaseToPayment(List<PurchaseToPaymentParamVO> params) {
+        return execute("purchase-to-payment", params, p -> businessWorkflowService.executePurchaseToPaymentWorkflow(
+                p.getDepartmentId(), p.getItemName(), p.getQuantity(), p.getEstimatedAmount()));
+    }
+
+    /**
+     * 批量执行费用报销流程
+     *
+     * @param params 流程参数列表
+     * @return 批量执行结果
+     */
+    public WorkflowBulkResultVO executeExpenseReimbursement(List<ExpenseReimbursementParamVO> params) {
+        return execute("expense-reimbursement", params, p -> businessWorkflowService.executeExpenseReimbursementWorkflow(
+                p.getEmployeeId(), p.getExpenseType(), p.getAmount(), p.getDescription()));
+    }
+
+    /**
+     * 并发执行一批流程，全部完成后汇总结果
+     *
+     * @param workflow 流程名称
+     * @param inputs 流程参数列表
+     * @param runner 执行单个流程
+     * @return 批量执行结果
+     * @throws IllegalStateException 等待过程中线程被中断
+     */
+    public <T> WorkflowBulkResultVO execute(String workflow, List<T> inputs, Function<T, Map<String, Object>> runner) {
+        int total = inputs.size();
+        log.info("开始批量执行流程，流程={}，数量={}", workflow, total);
+        WorkflowBulkItemVO[] items = new WorkflowBulkItemVO[total];
+        long[] latencies = new long[total];
+        Semaphore permits = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(total);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                T input = inputs.get(i);
+                permits.acquire();
+                try {
+                    executor.execute(() -> {
+                        long taskStart = System.nanoTime();
+                        WorkflowBulkItemVO item = new WorkflowBulkItemVO();
+                        item.setIndex(index);
+                        item.setSuccess(false);
+                        try {
+                            item.setResult(runner.apply(input));
+                            item.setSuccess(true);
+                        } catch (Throwable e) {
+                            item.setError(rootMessage(e));
+                        } finally {
+                            latencies[index] = System.nanoTime() - taskStart;
+                            item.setLatencyMillis(latencies[index] / 1_000_000.0);
+                            items[index] = item;
+                            permits.release();
+                            done.countDown();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 执行器已停止（如应用关闭中），本流程记为失败，不再等待
+                    WorkflowBulkItemVO item = new WorkflowBulkItemVO();
+                    item.setIndex(index);
+                    item.setSuccess(false);
+                    item.setError("执行器拒绝任务：" + rootMessage(e));
+                    item.setLatencyMillis(0.0);
+                    items[index] = item;
+                    permits.release();
+                    done.countDown();
+                }
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量执行流程被中断：" + workflow, e);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        WorkflowBulkResultVO result = new WorkflowBulkResultVO();
+        result.setWorkflow(workflow);
+        result.setTotal(total);
+        result.setConcurrency(concurrency);
+        result.setVirtualThreads(virtualThreads);
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setThroughputPerSecond(elapsedNanos == 0 ? 0.0 : total * 1_000_000_000.0 / elapsedNanos);
+        int successCount = 0;
+        List<WorkflowBulkItemVO> itemList = new ArrayList<>(total);
+        for (WorkflowBulkItemVO item : items) {
+            itemList.add(item);
+            if (item.getSuccess()) {
+                successCount++;
+            }
+        }
+        result.setSuccessCount(successCount);
+        result.setFailureCount(total - successCount);
+        result.setItems(itemList);
+
+        if (total > 0) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long latency : sorted) {
+                sum += latency;
+            }
+            result.setMinLatencyMillis(sorted[0] / 1_000_000.0);
+            result.setAvgLatencyMillis(sum / (double) total / 1_000_000.0);
+            result.setP50LatencyMillis(percentile(sorted, 0.50));
+            result.setP95LatencyMillis(percentile(sorted, 0.95));
+            result.setP99LatencyMillis(percentile(sorted, 0.99));
+            result.setMaxLatencyMillis(sorted[total - 1] / 1_000_000.0);
+        }
+        log.info("批量执行流程完成，流程={}，成功={}，失败={}，耗时={}ms，吞吐量={}/s", workflow, successCount,
+                total - successCount, result.getElapsedMillis(), String.format("%.1f", result.getThroughputPerSecond()));
+        return result;
+    }
+
+    /**
+     * 最近秩法计算分位数
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+
+    /**
+     * 业务流程服务把异常包装为"执行...失败"，取最内层原因作为失败原因
+     */
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    /**
+     * 运行环境支持虚拟线程（JDK 21+）时创建每任务一个虚拟线程的执行器，否则返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package com.iobaf.domain.workflow.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iobaf.common.cache.WriteBehindCache;
+import com.iobaf.common.journal.SegmentedJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 业务流程变更日志
+ * 每次新增或修改流程单据，都把修改后的完整单据按顺序追加到本地分段日志，日志按固定间隔批量 fsync；
+ * 写回式缓存只把日志已落盘的修改写入数据库。
+ * 刷写写入了全部修改后记录快照点，快照点之前的段被删除（或归档保留，作为审计记录）。
+ * 启动时从快照点开始重放日志，把异常退出时尚未写入数据库的修改恢复到缓存，随后写入数据库；
+ * 异常退出时最多丢失一个 fsync 间隔内的修改，不再受刷写间隔影响
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class WorkflowJournal {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 是否启用变更日志
+     */
+    @Value("${iobaf.workflow.journal.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 日志目录
+     */
+    @Value("${iobaf.workflow.journal.dir:data/workflow-journal}")
+    private String directory;
+
+    /**
+     * 段文件大小上限（字节）
+     */
+    @Value("${iobaf.workflow.journal.segment-size:67108864}")
+    private long segmentSize;
+
+    /**
+     * fsync 间隔（毫秒）
+     */
+    @Value("${iobaf.workflow.journal.sync-interval-ms:20}")
+    private long syncIntervalMillis;
+
+    /**
+     * 快照间隔（毫秒）
+     */
+    @Value("${iobaf.workflow.journal.snapshot-interval-ms:60000}")
+    private long snapshotIntervalMillis;
+
+    /**
+     * 快照后不再需要的段是否归档保留
+     */
+    @Value("${iobaf.workflow.journal.archive-compacted:false}")
+    private boolean archiveCompacted;
+
+    private final Map<String, Registration<?>> registrations = new LinkedHashMap<>();
+
+    private SegmentedJournal journal;
+
+    private ScheduledExecutorService syncer;
+
+    private volatile long lastSnapshotNanos = System.nanoTime();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            log.info("业务流程变更日志未启用");
+            return;
+        }
+        journal = new SegmentedJournal(Paths.get(directory), segmentSize, archiveCompacted);
+        journal.open();
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        syncer.shutdown();
+        syncer.awaitTermination(10, TimeUnit.SECONDS);
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记一类单据，须在 {@link #recover()} 之前调用
+     *
+     * @param type 单据类型，写入日志记录，登记后不应再修改
+     * @param cache 单据缓存
+     * @param entityType 单据实体类型
+     * @param idGetter 单据ID读取函数
+     */
+    public <T> void register(String type, WriteBehindCache<T> cache, Class<T> entityType, Function<T, Long> idGetter) {
+        registrations.put(type, new Registration<>(type, cache, entityType, idGetter));
+    }
+
+    /**
+     * 重放快照点之后的日志，把单据恢复到缓存，之后开始记录已登记缓存的变更
+     * 调用方随后应刷写缓存并调用 {@link #snapshot(long)}，使恢复的修改写入数据库
+     *
+     * @return 重放的记录数
+     */
+    public long recover() {
+        if (journal == null) {
+            return 0;
+        }
+        long replayed;
+        try {
+            replayed = journal.replay((sequence, payload) -> restore(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException("重放业务流程变更日志失败", e);
+        }
+        for (Registration<?> registration : registrations.values()) {
+            attach(registration);
+        }
+        log.info("业务流程变更日志重放完成，快照序号={}，重放记录数={}", journal.snapshotSequence(), replayed);
+        return replayed;
+    }
+
+    /**
+     * 将已追加的记录批量 fsync，刷写缓存前调用，使刷写不必等待下一次定时 fsync
+     */
+    public void sync() {
+        if (journal != null) {
+            syncQuietly();
+        }
+    }
+
+    /**
+     * @return 最新记录序号，未启用时返回0
+     */
+    public long lastSequence() {
+        return journal == null ? 0 : journal.lastSequence();
+    }
+
+    /**
+     * 记录快照点：调用方保证序号不大于 sequence 的记录所做的修改均已写入数据库
+     *
+     * @param sequence 快照序号，取刷写开始前的 {@link #lastSequence()}
+     */
+    public void snapshot(long sequence) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.snapshot(sequence);
+            lastSnapshotNanos = System.nanoTime();
+        } catch (IOException e) {
+            log.error("记录业务流程变更日志快照失败，序号={}", sequence, e);
+        }
+    }
+
+    /**
+     * 距上次快照已超过快照间隔时记录快照点，由刷写线程在每次刷写成功后调用
+     *
+     * @param sequence 快照序号，取刷写开始前的 {@link #lastSequence()}
+     */
+    public void snapshotIfDue(long sequence) {
+        if (System.nanoTime() - lastSnapshotNanos >= TimeUnit.MILLISECONDS.toNanos(snapshotIntervalMillis)) {
+            snapshot(sequence);
+        }
+    }
+
+    private <T> void attach(Registration<T> registration) {
+        registration.cache.setWriteAheadLog(entity -> {
+            Map<String, Object> record = new LinkedHashMap<>(4);
+            record.put("type", registration.type);
+            record.put("time", System.currentTimeMillis());
+            record.put("entity", entity);
+            try {
+                return journal.append(objectMapper.writeValueAsBytes(record));
+            } catch (IOException e) {
+                // 缓存中的修改无法撤销，记录失败时只报错，该修改仍会经刷写写入数据库
+                log.error("写入业务流程变更日志失败，类型={}，ID={}", registration.type,
+                        registration.idGetter.apply(entity), e);
+                return 0;
+            }
+        }, journal::syncedSequence);
+    }
+
+    private void restore(byte[] payload) {
+        try {
+            JsonNode record = objectMapper.readTree(payload);
+            Registration<?> registration = registrations.get(record.get("type").asText());
+            if (registration == null) {
+                log.warn("业务流程变更日志中存在未登记的单据类型：{}", record.get("type").asText());
+                return;
+            }
+            restore(registration, record.get("entity"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析业务流程变更日志记录失败", e);
+        }
+    }
+
+    /**
+     * 以日志中的单据状态覆盖缓存中的单据，缓存和数据库中都不存在时新增
+     */
+    private <T> void restore(Registration<T> registration, JsonNode node) throws IOException {
+        T state = objectMapper.treeToValue(node, registration.entityType);
+        Long id = registration.idGetter.apply(state);
+        if (registration.cache.get(id) == null) {
+            registration.cache.insert(state);
+            return;
+        }
+        try (WriteBehindCache.Handle<T> handle = registration.cache.lock(id)) {
+            BeanUtils.copyProperties(state, handle.get());
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            journal.sync();
+        } catch (IOException | RuntimeException e) {
+            log.error("业务流程变更日志 fsync 失败", e);
+        }
+    }
+
+    /**
+     * 已登记的单据类型
+     */
+    private static final class Registration<T> {
+
+        private final String type;
+
+        private final WriteBehindCache<T> cache;
+
+        private final Class<T> entityType;
+
+        private final Function<T, Long> idGetter;
+
+        private Registration(String type, WriteBehindCache<T> cache, Class<T> entityType, Function<T, Long> idGetter) {
+            this.type = type;
+            this.cache = cache;
+            this.entityType = entityType;
+            this.idGetter = idGetter;
+        }
+    }
+}
\ No newline at end of file
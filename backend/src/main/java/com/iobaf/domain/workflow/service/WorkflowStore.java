@@ -0,0 +1,544 @@
+package com.iobaf.domain.workflow.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.iobaf.common.cache.DailyCounter;
+import com.iobaf.common.cache.SecondaryIndex;
+import com.iobaf.common.cache.WriteBehindCache;
+import com.iobaf.domain.workflow.entity.*;
+import com.iobaf.domain.workflow.repository.*;
+import com.iobaf.domain.workflow.state.InvoiceStatus;
+import com.iobaf.domain.workflow.state.PaymentStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 业务流程数据存储
+ * 各类流程单据经写回式缓存读写，后台线程按固定间隔将修改批量写入数据库；
+ * 列表查询经二级索引（按所属对象、按状态，审批记录按业务类型+业务ID、按待审批人）定位实体ID，代价与结果数成正比；
+ * 无任何过滤条件的查询先刷写缓存，再直接查询数据库。
+ * 统计数据由同一组索引及按日新增计数器随每次变更维护，查询时不扫描数据。
+ * 启用 {@link WorkflowJournal} 时每次变更先写入变更日志，启动时重放日志恢复异常退出前未写入数据库的修改；
+ * 未启用时异常退出最多丢失一个刷写间隔内的修改。应用停止时完成最后一次刷写
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+public class WorkflowStore {
+
+    /**
+     * 启动时构建二级索引每次读取的行数
+     */
+    private static final int INDEX_LOAD_CHUNK_SIZE = 10000;
+
+    @Autowired
+    private SalesOpportunityRepository salesOpportunityRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PurchaseRequestRepository purchaseRequestRepository;
+
+    @Autowired
+    private ExpenseRequestRepository expenseRequestRepository;
+
+    @Autowired
+    private ApprovalRepository approvalRepository;
+
+    @Autowired
+    private WorkflowJournal workflowJournal;
+
+    /**
+     * 每类单据缓存的条目数上限
+     */
+    @Value("${iobaf.workflow.cache.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 刷写间隔（毫秒）
+     */
+    @Value("${iobaf.workflow.cache.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    /**
+     * 按日新增统计保留的天数
+     */
+    @Value("${iobaf.workflow.statistics.days:30}")
+    private int statisticsDays;
+
+    private WriteBehindCache<SalesOpportunity> salesOpportunities;
+    private WriteBehindCache<Contract> contracts;
+    private WriteBehindCache<Project> projects;
+    private WriteBehindCache<Invoice> invoices;
+    private WriteBehindCache<PurchaseRequest> purchaseRequests;
+    private WriteBehindCache<ExpenseRequest> expenseRequests;
+    private WriteBehindCache<Approval> approvals;
+
+    private SecondaryIndex<SalesOpportunity, Long> salesOpportunitiesByCustomer;
+    private SecondaryIndex<SalesOpportunity, String> salesOpportunitiesByStatus;
+    private SecondaryIndex<Contract, Long> contractsByCustomer;
+    private SecondaryIndex<Contract, String> contractsByStatus;
+    private SecondaryIndex<Project, Long> projectsByContract;
+    private SecondaryIndex<Project, String> projectsByStatus;
+    private SecondaryIndex<Invoice, Long> invoicesByProject;
+    private SecondaryIndex<Invoice, String> invoicesByStatus;
+    private SecondaryIndex<PurchaseRequest, Long> purchaseRequestsByDepartment;
+    private SecondaryIndex<PurchaseRequest, String> purchaseRequestsByStatus;
+    private SecondaryIndex<ExpenseRequest, Long> expenseRequestsByEmployee;
+    private SecondaryIndex<ExpenseRequest, String> expenseRequestsByStatus;
+    private SecondaryIndex<Approval, List<Object>> approvalsByBusiness;
+    private SecondaryIndex<Approval, String> approvalsByBusinessType;
+    private SecondaryIndex<Approval, Long> pendingApprovalsByApprover;
+    private SecondaryIndex<Contract, String> contractsByApprovalStatus;
+    private SecondaryIndex<Invoice, String> invoicesByPaymentStatus;
+    private SecondaryIndex<PurchaseRequest, String> purchaseRequestsByApprovalStatus;
+    private SecondaryIndex<Invoice, Long> openInvoicesByCustomer;
+    private SecondaryIndex<Invoice, String> invoicesByNo;
+
+    private final Map<String, DailyCounter> dailyCreated = new LinkedHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        salesOpportunities = new WriteBehindCache<>("销售机会", salesOpportunityRepository, SalesOpportunity::getId, maxSize);
+        contracts = new WriteBehindCache<>("合同", contractRepository, Contract::getId, maxSize);
+        projects = new WriteBehindCache<>("项目", projectRepository, Project::getId, maxSize);
+        invoices = new WriteBehindCache<>("发票", invoiceRepository, Invoice::getId, maxSize);
+        purchaseRequests = new WriteBehindCache<>("采购申请", purchaseRequestRepository, PurchaseRequest::getId, maxSize);
+        expenseRequests = new WriteBehindCache<>("费用报销申请", expenseRequestRepository, ExpenseRequest::getId, maxSize);
+        approvals = new WriteBehindCache<>("审批记录", approvalRepository, Approval::getId, maxSize);
+
+        salesOpportunitiesByCustomer = salesOpportunities.addIndex(SalesOpportunity::getCustomerId);
+        salesOpportunitiesByStatus = salesOpportunities.addIndex(SalesOpportunity::getStatus);
+        contractsByCustomer = contracts.addIndex(Contract::getCustomerId);
+        contractsByStatus = contracts.addIndex(Contract::getStatus);
+        projectsByContract = projects.addIndex(Project::getContractId);
+        projectsByStatus = projects.addIndex(Project::getStatus);
+        invoicesByProject = invoices.addIndex(Invoice::getProjectId);
+        invoicesByStatus = invoices.addIndex(Invoice::getStatus);
+        purchaseRequestsByDepartment = purchaseRequests.addIndex(PurchaseRequest::getDepartmentId);
+        purchaseRequestsByStatus = purchaseRequests.addIndex(PurchaseRequest::getStatus);
+        expenseRequestsByEmployee = expenseRequests.addIndex(ExpenseRequest::getEmployeeId);
+        expenseRequestsByStatus = expenseRequests.addIndex(ExpenseRequest::getStatus);
+        approvalsByBusiness = approvals.addIndex(WorkflowStore::businessKey);
+        approvalsByBusinessType = approvals.addIndex(Approval::getBusinessType);
+        pendingApprovalsByApprover = approvals.addIndex(
+                a -> ApprovalRouter.RESULT_PENDING.equals(a.getResult()) ? a.getApproverId() : null);
+        contractsByApprovalStatus = contracts.addIndex(Contract::getApprovalStatus);
+        invoicesByPaymentStatus = invoices.addIndex(Invoice::getPaymentStatus);
+        purchaseRequestsByApprovalStatus = purchaseRequests.addIndex(PurchaseRequest::getApprovalStatus);
+        openInvoicesByCustomer = invoices.addIndex(i -> isOpen(i) ? i.getCustomerId() : null);
+        invoicesByNo = invoices.addIndex(Invoice::getInvoiceNo);
+
+        salesOpportunities.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "customer_id", "status");
+        contracts.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "customer_id", "status", "approval_status");
+        projects.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "contract_id", "status");
+        invoices.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "project_id", "customer_id", "status", "payment_status",
+                "invoice_no");
+        purchaseRequests.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "department_id", "status", "approval_status");
+        expenseRequests.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "employee_id", "status");
+        approvals.rebuildIndexes(INDEX_LOAD_CHUNK_SIZE, "business_type", "business_id", "approver_id", "result");
+
+        registerDailyCounter("salesOpportunities", salesOpportunities, salesOpportunityRepository, SalesOpportunity::getCreatedAt);
+        registerDailyCounter("contracts", contracts, contractRepository, Contract::getCreatedAt);
+        registerDailyCounter("projects", projects, projectRepository, Project::getCreatedAt);
+        registerDailyCounter("invoices", invoices, invoiceRepository, Invoice::getCreatedAt);
+        registerDailyCounter("purchaseRequests", purchaseRequests, purchaseRequestRepository, PurchaseRequest::getCreatedAt);
+        registerDailyCounter("expenseRequests", expenseRequests, expenseRequestRepository, ExpenseRequest::getCreatedAt);
+        registerDailyCounter("approvals", approvals, approvalRepository, Approval::getCreatedAt);
+
+        // 索引与计数器就绪后重放变更日志，恢复的修改随即写入数据库
+        workflowJournal.register("salesOpportunities", salesOpportunities, SalesOpportunity.class, SalesOpportunity::getId);
+        workflowJournal.register("contracts", contracts, Contract.class, Contract::getId);
+        workflowJournal.register("projects", projects, Project.class, Project::getId);
+        workflowJournal.register("invoices", invoices, Invoice.class, Invoice::getId);
+        workflowJournal.register("purchaseRequests", purchaseRequests, PurchaseRequest.class, PurchaseRequest::getId);
+        workflowJournal.register("expenseRequests", expenseRequests, ExpenseRequest.class, ExpenseRequest::getId);
+        workflowJournal.register("approvals", approvals, Approval.class, Approval::getId);
+        workflowJournal.recover();
+        flushAndSnapshot(true);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flushAndSnapshot(true);
+    }
+
+    /**
+     * 将全部缓存中的修改写入数据库
+     *
+     * @return 写入的条目数
+     */
+    public int flushAll() {
+        int written = 0;
+        for (WriteBehindCache<?> cache : caches()) {
+            written += cache.flush();
+        }
+        return written;
+    }
+
+    /**
+     * 查询表中最大ID，用于启动时恢复单据编号序列
+     *
+     * @param mapper 数据访问层
+     * @return 最大ID，表为空时返回0
+     */
+    public static <T> long maxId(BaseMapper<T> mapper) {
+        List<Object> values = mapper.selectObjs(new QueryWrapper<T>().select("MAX(id)"));
+        if (values.isEmpty() || values.get(0) == null) {
+            return 0;
+        }
+        return ((Number) values.get(0)).longValue();
+    }
+
+    public List<SalesOpportunity> findSalesOpportunities(Long customerId, String status) {
+        return find(salesOpportunities,
+                o -> matches(customerId, o.getCustomerId()) && matches(status, o.getStatus()),
+                () -> salesOpportunityRepository.selectList(new LambdaQueryWrapper<SalesOpportunity>()
+                        .orderByAsc(SalesOpportunity::getId)),
+                customerId == null ? null : salesOpportunitiesByCustomer.get(customerId),
+                status == null ? null : salesOpportunitiesByStatus.get(status));
+    }
+
+    public List<Contract> findContracts(Long customerId, String status) {
+        return find(contracts,
+                c -> matches(customerId, c.getCustomerId()) && matches(status, c.getStatus()),
+                () -> contractRepository.selectList(new LambdaQueryWrapper<Contract>()
+                        .orderByAsc(Contract::getId)),
+                customerId == null ? null : contractsByCustomer.get(customerId),
+                status == null ? null : contractsByStatus.get(status));
+    }
+
+    public List<Project> findProjects(Long contractId, String status) {
+        return find(projects,
+                p -> matches(contractId, p.getContractId()) && matches(status, p.getStatus()),
+                () -> projectRepository.selectList(new LambdaQueryWrapper<Project>()
+                        .orderByAsc(Project::getId)),
+                contractId == null ? null : projectsByContract.get(contractId),
+                status == null ? null : projectsByStatus.get(status));
+    }
+
+    public List<Invoice> findInvoices(Long projectId, String status) {
+        return find(invoices,
+                i -> matches(projectId, i.getProjectId()) && matches(status, i.getStatus()),
+                () -> invoiceRepository.selectList(new LambdaQueryWrapper<Invoice>()
+                        .orderByAsc(Invoice::getId)),
+                projectId == null ? null : invoicesByProject.get(projectId),
+                status == null ? null : invoicesByStatus.get(status));
+    }
+
+    public List<PurchaseRequest> findPurchaseRequests(Long departmentId, String status) {
+        return find(purchaseRequests,
+                r -> matches(departmentId, r.getDepartmentId()) && matches(status, r.getStatus()),
+                () -> purchaseRequestRepository.selectList(new LambdaQueryWrapper<PurchaseRequest>()
+                        .orderByAsc(PurchaseRequest::getId)),
+                departmentId == null ? null : purchaseRequestsByDepartment.get(departmentId),
+                status == null ? null : purchaseRequestsByStatus.get(status));
+    }
+
+    public List<ExpenseRequest> findExpenseRequests(Long employeeId, String status) {
+        return find(expenseRequests,
+                r -> matches(employeeId, r.getEmployeeId()) && matches(status, r.getStatus()),
+                () -> expenseRequestRepository.selectList(new LambdaQueryWrapper<ExpenseRequest>()
+                        .orderByAsc(ExpenseRequest::getId)),
+                employeeId == null ? null : expenseRequestsByEmployee.get(employeeId),
+                status == null ? null : expenseRequestsByStatus.get(status));
+    }
+
+    /**
+     * 查询客户未结清的发票（已开具或已逾期且未付清），按发票日期先后、同日按ID排序
+     * 经未结清发票索引定位，代价与该客户的未结清发票数成正比；未记录客户的发票不在索引中
+     *
+     * @param customerId 客户ID
+     * @return 未结清的发票
+     */
+    public List<Invoice> findOpenInvoices(Long customerId) {
+        List<Invoice> open = invoices.findByIds(openInvoicesByCustomer.get(customerId),
+                i -> isOpen(i) && customerId.equals(i.getCustomerId()));
+        open.sort(Comparator.comparing((Invoice i) -> i.getInvoiceDate() == null ? LocalDate.MIN : i.getInvoiceDate())
+                .thenComparing(Invoice::getId));
+        return open;
+    }
+
+    /**
+     * 按发票编号查询发票ID，经发票编号索引定位，不刷写缓存，可在事务中调用
+     * 其他事务中尚未提交的发票不在结果中，本事务中新增的发票在结果中
+     *
+     * @param invoiceNos 发票编号
+     * @return 发票编号到发票ID，不存在的编号不在结果中
+     */
+    public Map<String, Long> findInvoiceIdsByNo(Collection<String> invoiceNos) {
+        Map<String, Long> ids = new HashMap<>(invoiceNos.size() * 2);
+        if (invoiceNos.isEmpty()) {
+            return ids;
+        }
+        Set<String> nos = new HashSet<>(invoiceNos);
+        Set<Long> candidates = new HashSet<>();
+        for (String invoiceNo : nos) {
+            candidates.addAll(invoicesByNo.get(invoiceNo));
+        }
+        for (Invoice invoice : invoices.findByIds(candidates, i -> nos.contains(i.getInvoiceNo()))) {
+            ids.put(invoice.getInvoiceNo(), invoice.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 查询审批记录，业务类型与业务ID同时给出时使用组合索引；只给出业务ID时查询数据库
+     */
+    public List<Approval> findApprovals(String businessType, Long businessId) {
+        Set<Long> candidates = null;
+        if (businessType != null && businessId != null) {
+            candidates = approvalsByBusiness.get(Arrays.asList(businessType, businessId));
+        } else if (businessType != null) {
+            candidates = approvalsByBusinessType.get(businessType);
+        }
+        return find(approvals,
+                a -> matches(businessType, a.getBusinessType()) && matches(businessId, a.getBusinessId()),
+                () -> approvalRepository.selectList(new LambdaQueryWrapper<Approval>()
+                        .eq(businessId != null, Approval::getBusinessId, businessId)
+                        .orderByAsc(Approval::getId)),
+                candidates);
+    }
+
+    /**
+     * 查询审批人的待审批记录，按创建先后（ID升序）返回
+     * 经待办索引定位，代价与该审批人的待办数成正比，与审批记录总数无关
+     *
+     * @param approverId 审批人ID
+     * @param limit 最多返回条数
+     * @return 待审批记录
+     */
+    public List<Approval> findPendingApprovals(Long approverId, int limit) {
+        List<Long> ids = new ArrayList<>(pendingApprovalsByApprover.get(approverId));
+        ids.sort(null);
+        if (ids.size() > limit) {
+            ids = ids.subList(0, limit);
+        }
+        return approvals.findByIds(ids,
+                a -> ApprovalRouter.RESULT_PENDING.equals(a.getResult()) && approverId.equals(a.getApproverId()));
+    }
+
+    /**
+     * 统计审批人的待审批记录数
+     *
+     * @param approverId 审批人ID
+     * @return 待审批记录数
+     */
+    public int countPendingApprovals(Long approverId) {
+        return pendingApprovalsByApprover.count(approverId);
+    }
+
+    /**
+     * 查询统计数据：各类单据总数、按状态分布及最近若干天的每日新增数
+     * 全部来自随变更维护的计数，代价与状态个数、天数成正比，与单据数量无关
+     *
+     * @return 按单据类型组织的统计数据
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("salesOpportunities", typeStatistics("salesOpportunities", salesOpportunities,
+                "byStatus", salesOpportunitiesByStatus));
+        statistics.put("contracts", typeStatistics("contracts", contracts,
+                "byStatus", contractsByStatus, "byApprovalStatus", contractsByApprovalStatus));
+        statistics.put("projects", typeStatistics("projects", projects,
+                "byStatus", projectsByStatus));
+        statistics.put("invoices", typeStatistics("invoices", invoices,
+                "byStatus", invoicesByStatus, "byPaymentStatus", invoicesByPaymentStatus));
+        statistics.put("purchaseRequests", typeStatistics("purchaseRequests", purchaseRequests,
+                "byStatus", purchaseRequestsByStatus, "byApprovalStatus", purchaseRequestsByApprovalStatus));
+        statistics.put("expenseRequests", typeStatistics("expenseRequests", expenseRequests,
+                "byStatus", expenseRequestsByStatus));
+        statistics.put("approvals", typeStatistics("approvals", approvals,
+                "byBusinessType", approvalsByBusinessType));
+        return statistics;
+    }
+
+    public WriteBehindCache<SalesOpportunity> getSalesOpportunities() {
+        return salesOpportunities;
+    }
+
+    public WriteBehindCache<Contract> getContracts() {
+        return contracts;
+    }
+
+    public WriteBehindCache<Project> getProjects() {
+        return projects;
+    }
+
+    public WriteBehindCache<Invoice> getInvoices() {
+        return invoices;
+    }
+
+    public WriteBehindCache<PurchaseRequest> getPurchaseRequests() {
+        return purchaseRequests;
+    }
+
+    public WriteBehindCache<ExpenseRequest> getExpenseRequests() {
+        return expenseRequests;
+    }
+
+    public WriteBehindCache<Approval> getApprovals() {
+        return approvals;
+    }
+
+    private List<WriteBehindCache<?>> caches() {
+        return Arrays.asList(salesOpportunities, contracts, projects, invoices,
+                purchaseRequests, expenseRequests, approvals);
+    }
+
+    /**
+     * 从给出的候选ID集合中选最小的一个取回实体并过滤；没有候选集合时刷写缓存后全表查询，因此不能在事务中调用
+     */
+    @SafeVarargs
+    private static <T> List<T> find(WriteBehindCache<T> cache, Predicate<T> filter, Supplier<List<T>> fullScan,
+                                    Set<Long>... candidates) {
+        Set<Long> smallest = null;
+        for (Set<Long> ids : candidates) {
+            if (ids != null && (smallest == null || ids.size() < smallest.size())) {
+                smallest = ids;
+            }
+        }
+        if (smallest == null) {
+            cache.flush();
+            return cache.resolve(fullScan.get());
+        }
+        return cache.findByIds(smallest, filter);
+    }
+
+    private Map<String, Object> typeStatistics(String name, WriteBehindCache<?> cache, Object... breakdowns) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("total", cache.count());
+        for (int i = 0; i < breakdowns.length; i += 2) {
+            item.put((String) breakdowns[i], ((SecondaryIndex<?, ?>) breakdowns[i + 1]).counts());
+        }
+        item.put("dailyCreated", dailyCreated.get(name).lastDays(statisticsDays));
+        return item;
+    }
+
+    /**
+     * 创建按日新增计数器：从数据库按创建日期汇总最近若干天的数量作为初值，之后随新增累加
+     */
+    private <T> void registerDailyCounter(String name, WriteBehindCache<T> cache, BaseMapper<T> mapper,
+                                          Function<T, LocalDateTime> createdAt) {
+        DailyCounter counter = new DailyCounter(statisticsDays);
+        LocalDate since = LocalDate.now().minusDays(statisticsDays - 1L);
+        List<Map<String, Object>> rows = mapper.selectMaps(new QueryWrapper<T>()
+                .select("DATE(created_at) AS day", "COUNT(*) AS cnt")
+                .ge("created_at", since.atStartOfDay())
+                .groupBy("DATE(created_at)"));
+        for (Map<String, Object> row : rows) {
+            Object day = row.get("day");
+            if (day != null) {
+                LocalDate date = day instanceof java.sql.Date ? ((java.sql.Date) day).toLocalDate()
+                        : LocalDate.parse(day.toString());
+                counter.add(date, ((Number) row.get("cnt")).longValue());
+            }
+        }
+        cache.addInsertListener(entity -> {
+            LocalDateTime time = createdAt.apply(entity);
+            counter.increment(time == null ? null : time.toLocalDate());
+        });
+        dailyCreated.put(name, counter);
+    }
+
+    /**
+     * 发票是否未结清：已开具或已逾期，且收款未达发票金额
+     */
+    private static boolean isOpen(Invoice invoice) {
+        String status = invoice.getStatus();
+        return (InvoiceStatus.ISSUED.name().equals(status) || InvoiceStatus.OVERDUE.name().equals(status))
+                && !PaymentStatus.PAID.name().equals(invoice.getPaymentStatus());
+    }
+
+    private static boolean matches(Object expected, Object actual) {
+        return expected == null || expected.equals(actual);
+    }
+
+    private static List<Object> businessKey(Approval approval) {
+        if (approval.getBusinessType() == null || approval.getBusinessId() == null) {
+            return null;
+        }
+        return Arrays.asList(approval.getBusinessType(), approval.getBusinessId());
+    }
+
+    /**
+     * 刷写全部缓存，刷写前变更日志中的修改全部写入数据库时记录快照点
+     *
+     * @param force 是否不论快照间隔立即记录快照点
+     */
+    private void flushAndSnapshot(boolean force) {
+        long sequence = workflowJournal.lastSequence();
+        workflowJournal.sync();
+        long skipped = flushSkippedCount();
+        flushAll();
+        if (flushSkippedCount() != skipped) {
+            return;
+        }
+        if (force) {
+            workflowJournal.snapshot(sequence);
+        } else {
+            workflowJournal.snapshotIfDue(sequence);
+        }
+    }
+
+    private long flushSkippedCount() {
+        long count = 0;
+        for (WriteBehindCache<?> cache : caches()) {
+            count += cache.flushSkippedCount();
+        }
+        return count;
+    }
+
+    private void flushQuietly() {
+        try {
+            flushAndSnapshot(false);
+            dailyCreated.values().forEach(DailyCounter::prune);
+        } catch (RuntimeException e) {
+            log.error("业务流程数据刷写失败", e);
+        }
+    }
+}
\ No newline at end of file
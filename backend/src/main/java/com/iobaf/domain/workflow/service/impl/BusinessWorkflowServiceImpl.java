@@ -1,12 +1,33 @@
 package com.iobaf.domain.workflow.service.impl;
 
+import com.iobaf.common.sequence.DocumentNumberFormatter;
+import com.iobaf.common.sequence.DocumentNumberGenerator;
+import com.iobaf.domain.finance.event.AutoVoucherEvent;
+import com.iobaf.domain.finance.event.AutoVoucherSource;
+import com.iobaf.domain.finance.service.AutoVoucherQueue;
+import com.iobaf.common.cache.WriteBehindCache;
 import com.iobaf.domain.workflow.entity.*;
+import com.iobaf.domain.workflow.repository.*;
+import com.iobaf.domain.workflow.service.ApprovalDecision;
+import com.iobaf.domain.workflow.service.ApprovalRouter;
+import com.iobaf.domain.workflow.service.BankStatementParser;
 import com.iobaf.domain.workflow.service.BusinessWorkflowService;
+import com.iobaf.domain.workflow.service.PaymentAllocator;
+import com.iobaf.domain.workflow.service.ReceivableAgingEngine;
+import com.iobaf.domain.workflow.service.WorkflowStore;
+import com.iobaf.domain.workflow.state.*;
+import com.iobaf.domain.workflow.vo.BankReceiptVO;
+import com.iobaf.domain.workflow.vo.PaymentApplicationResultVO;
+import com.iobaf.domain.workflow.vo.ReceivableAgingVO;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -21,22 +42,80 @@ import java.util.*;
 @Service
 public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
 
-    // 模拟数据存储，实际项目中应该使用数据库
-    private final Map<Long, SalesOpportunity> salesOpportunities = new HashMap<>();
-    private final Map<Long, Contract> contracts = new HashMap<>();
-    private final Map<Long, Project> projects = new HashMap<>();
-    private final Map<Long, Invoice> invoices = new HashMap<>();
-    private final Map<Long, PurchaseRequest> purchaseRequests = new HashMap<>();
-    private final Map<Long, ExpenseRequest> expenseRequests = new HashMap<>();
-    private final Map<Long, Approval> approvals = new HashMap<>();
-
-    private long salesOpportunityIdCounter = 1;
-    private long contractIdCounter = 1;
-    private long projectIdCounter = 1;
-    private long invoiceIdCounter = 1;
-    private long purchaseRequestIdCounter = 1;
-    private long expenseRequestIdCounter = 1;
-    private long approvalIdCounter = 1;
+    @Autowired
+    private AutoVoucherQueue autoVoucherQueue;
+
+    @Autowired
+    private DocumentNumberGenerator documentNumberGenerator;
+
+    // 单据编号序列及编号数字部分位数
+    private static final String SEQ_OPPORTUNITY = "workflow.opportunity";
+    private static final String SEQ_CONTRACT = "workflow.contract";
+    private static final String SEQ_PROJECT = "workflow.project";
+    private static final String SEQ_INVOICE = "workflow.invoice";
+    private static final String SEQ_PURCHASE_REQUEST = "workflow.purchase-request";
+    private static final String SEQ_EXPENSE_REQUEST = "workflow.expense-request";
+    private static final String SEQ_APPROVAL = ApprovalRouter.SEQ_APPROVAL;
+    private static final int DOCUMENT_NO_WIDTH = 6;
+
+    // 单据读写、列表与统计查询经写回式缓存及其维护的索引、计数
+    @Autowired
+    private WorkflowStore workflowStore;
+
+    // 单据状态只经状态机转换
+    @Autowired
+    private WorkflowStateMachines stateMachines;
+
+    // 合同、采购申请、费用报销的审批级别与审批人由审批路由决定
+    @Autowired
+    private ApprovalRouter approvalRouter;
+
+    private static final String BUSINESS_CONTRACT = "CONTRACT";
+    private static final String BUSINESS_PURCHASE_REQUEST = "PURCHASE_REQUEST";
+    private static final String BUSINESS_EXPENSE_REQUEST = "EXPENSE_REQUEST";
+
+    // 应收账龄随开票、收款增量更新
+    @Autowired
+    private ReceivableAgingEngine receivableAgingEngine;
+
+    // 收款入账并核销到发票
+    @Autowired
+    private PaymentAllocator paymentAllocator;
+
+    @Autowired
+    private SalesOpportunityRepository salesOpportunityRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PurchaseRequestRepository purchaseRequestRepository;
+
+    @Autowired
+    private ExpenseRequestRepository expenseRequestRepository;
+
+    @Autowired
+    private ApprovalRepository approvalRepository;
+
+    /**
+     * 按数据库中已有的最大ID推进单据编号序列，避免重启后编号重复
+     */
+    @PostConstruct
+    public void restoreSequences() {
+        documentNumberGenerator.advanceTo(SEQ_OPPORTUNITY, WorkflowStore.maxId(salesOpportunityRepository));
+        documentNumberGenerator.advanceTo(SEQ_CONTRACT, WorkflowStore.maxId(contractRepository));
+        documentNumberGenerator.advanceTo(SEQ_PROJECT, WorkflowStore.maxId(projectRepository));
+        documentNumberGenerator.advanceTo(SEQ_INVOICE, WorkflowStore.maxId(invoiceRepository));
+        documentNumberGenerator.advanceTo(SEQ_PURCHASE_REQUEST, WorkflowStore.maxId(purchaseRequestRepository));
+        documentNumberGenerator.advanceTo(SEQ_EXPENSE_REQUEST, WorkflowStore.maxId(expenseRequestRepository));
+        documentNumberGenerator.advanceTo(SEQ_APPROVAL, WorkflowStore.maxId(approvalRepository));
+    }
 
     // ==================== 销售到收款流程 ====================
 
@@ -46,13 +125,13 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建销售机会，客户ID={}，金额={}", opportunity.getCustomerId(), opportunity.getAmount());
         
         try {
-            opportunity.setId(salesOpportunityIdCounter++);
-            opportunity.setOpportunityNo("OPP" + String.format("%06d", opportunity.getId()));
-            opportunity.setStatus("LEAD");
+            opportunity.setId(documentNumberGenerator.nextId(SEQ_OPPORTUNITY));
+            opportunity.setOpportunityNo(DocumentNumberFormatter.format("OPP", opportunity.getId(), DOCUMENT_NO_WIDTH));
+            stateMachines.salesOpportunities().initialize(opportunity);
             opportunity.setCreatedAt(LocalDateTime.now());
             opportunity.setUpdatedAt(LocalDateTime.now());
             
-            salesOpportunities.put(opportunity.getId(), opportunity);
+            workflowStore.getSalesOpportunities().insert(opportunity);
             
             log.info("销售机会创建成功，ID={}", opportunity.getId());
             return true;
@@ -68,14 +147,20 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("更新销售机会状态，ID={}，新状态={}", opportunityId, status);
         
         try {
-            SalesOpportunity opportunity = salesOpportunities.get(opportunityId);
-            if (opportunity == null) {
-                throw new RuntimeException("销售机会不存在");
+            try (WriteBehindCache.Handle<SalesOpportunity> handle = workflowStore.getSalesOpportunities().lock(opportunityId)) {
+                SalesOpportunity opportunity = handle.get();
+                if (opportunity == null) {
+                    throw new RuntimeException("销售机会不存在");
+                }
+                
+                OpportunityStatus target = stateMachines.salesOpportunities().parse(status);
+                if (target == null) {
+                    throw new RuntimeException("销售机会状态无效：" + status);
+                }
+                stateMachines.salesOpportunities().fireTo(opportunity, target);
+                opportunity.setUpdatedAt(LocalDateTime.now());
             }
             
-            opportunity.setStatus(status);
-            opportunity.setUpdatedAt(LocalDateTime.now());
-            
             log.info("销售机会状态更新成功");
             return true;
         } catch (Exception e) {
@@ -90,14 +175,15 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建合同，客户ID={}，金额={}", contract.getCustomerId(), contract.getAmount());
         
         try {
-            contract.setId(contractIdCounter++);
-            contract.setContractNo("CON" + String.format("%06d", contract.getId()));
-            contract.setStatus("DRAFT");
-            contract.setApprovalStatus("PENDING");
+            contract.setId(documentNumberGenerator.nextId(SEQ_CONTRACT));
+            contract.setContractNo(DocumentNumberFormatter.format("CON", contract.getId(), DOCUMENT_NO_WIDTH));
+            stateMachines.contracts().initialize(contract);
+            stateMachines.contractApprovals().initialize(contract);
             contract.setCreatedAt(LocalDateTime.now());
             contract.setUpdatedAt(LocalDateTime.now());
             
-            contracts.put(contract.getId(), contract);
+            workflowStore.getContracts().insert(contract);
+            approvalRouter.start(BUSINESS_CONTRACT, contract.getId(), contract.getAmount());
             
             log.info("合同创建成功，ID={}", contract.getId());
             return true;
@@ -113,32 +199,31 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("合同审批，合同ID={}，审批人ID={}，结果={}", contractId, approverId, approved);
         
         try {
-            Contract contract = contracts.get(contractId);
-            if (contract == null) {
-                throw new RuntimeException("合同不存在");
-            }
-            
-            // 创建审批记录
-            Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
-            approval.setBusinessType("CONTRACT");
-            approval.setBusinessId(contractId);
-            approval.setApproverId(approverId);
-            approval.setApprovalLevel(1);
-            approval.setResult(approved ? "APPROVED" : "REJECTED");
-            approval.setComments(comments);
-            approval.setApprovedAt(LocalDateTime.now());
-            approval.setCreatedAt(LocalDateTime.now());
-            approval.setUpdatedAt(LocalDateTime.now());
-            
-            approvals.put(approval.getId(), approval);
-            
-            // 更新合同状态
-            contract.setApprovalStatus(approved ? "APPROVED" : "REJECTED");
-            if (approved) {
-                contract.setStatus("APPROVED");
+            try (WriteBehindCache.Handle<Contract> handle = workflowStore.getContracts().lock(contractId)) {
+                Contract contract = handle.get();
+                if (contract == null) {
+                    throw new RuntimeException("合同不存在");
+                }
+                
+                // 先校验状态，状态不允许时不修改审批记录
+                if (!stateMachines.contractApprovals().canFire(contract,
+                        approved ? ApprovalStatus.Event.APPROVE : ApprovalStatus.Event.REJECT)
+                        || approved && !stateMachines.contracts().canFire(contract, ContractStatus.Event.APPROVE)) {
+                    throw new RuntimeException("合同当前状态不允许审批：" + contract.getStatus() + "/" + contract.getApprovalStatus());
+                }
+                ApprovalDecision decision = approvalRouter.decide(BUSINESS_CONTRACT, contractId, contract.getAmount(),
+                        null, approverId, approved, comments);
+                
+                // 审批流程结束时更新合同状态
+                if (decision == ApprovalDecision.REJECTED) {
+                    stateMachines.contractApprovals().fire(contract, ApprovalStatus.Event.REJECT);
+                } else if (decision == ApprovalDecision.APPROVED) {
+                    stateMachines.contractApprovals().fire(contract, ApprovalStatus.Event.APPROVE);
+                    stateMachines.contracts().fire(contract, ContractStatus.Event.APPROVE);
+                }
+                contract.setUpdatedAt(LocalDateTime.now());
+                log.info("合同审批流程状态={}", decision);
             }
-            contract.setUpdatedAt(LocalDateTime.now());
             
             log.info("合同审批完成，结果={}", approved);
             return true;
@@ -154,14 +239,14 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建项目，合同ID={}，预算={}", project.getContractId(), project.getBudget());
         
         try {
-            project.setId(projectIdCounter++);
-            project.setProjectNo("PRJ" + String.format("%06d", project.getId()));
-            project.setStatus("PLANNING");
+            project.setId(documentNumberGenerator.nextId(SEQ_PROJECT));
+            project.setProjectNo(DocumentNumberFormatter.format("PRJ", project.getId(), DOCUMENT_NO_WIDTH));
+            stateMachines.projects().initialize(project);
             project.setProgress(BigDecimal.ZERO);
             project.setCreatedAt(LocalDateTime.now());
             project.setUpdatedAt(LocalDateTime.now());
             
-            projects.put(project.getId(), project);
+            workflowStore.getProjects().insert(project);
             
             log.info("项目创建成功，ID={}", project.getId());
             return true;
@@ -177,19 +262,25 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("更新项目进度，项目ID={}，进度={}%", projectId, progress);
         
         try {
-            Project project = projects.get(projectId);
-            if (project == null) {
-                throw new RuntimeException("项目不存在");
-            }
-            
-            project.setProgress(progress);
-            project.setUpdatedAt(LocalDateTime.now());
-            
-            // 根据进度更新项目状态
-            if (progress.compareTo(BigDecimal.valueOf(100)) >= 0) {
-                project.setStatus("COMPLETED");
-            } else if (progress.compareTo(BigDecimal.valueOf(50)) >= 0) {
-                project.setStatus("EXECUTING");
+            try (WriteBehindCache.Handle<Project> handle = workflowStore.getProjects().lock(projectId)) {
+                Project project = handle.get();
+                if (project == null) {
+                    throw new RuntimeException("项目不存在");
+                }
+                
+                project.setProgress(progress);
+                project.setUpdatedAt(LocalDateTime.now());
+                
+                // 根据进度推进项目状态，已完成、已暂停或已取消的项目只更新进度
+                ProjectStatus.Event event = null;
+                if (progress.compareTo(BigDecimal.valueOf(100)) >= 0) {
+                    event = ProjectStatus.Event.COMPLETE;
+                } else if (progress.compareTo(BigDecimal.valueOf(50)) >= 0) {
+                    event = ProjectStatus.Event.START;
+                }
+                if (event != null && stateMachines.projects().canFire(project, event)) {
+                    stateMachines.projects().fire(project, event);
+                }
             }
             
             log.info("项目进度更新成功");
@@ -206,24 +297,32 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("生成发票，项目ID={}，金额={}", projectId, amount);
         
         try {
-            Project project = projects.get(projectId);
+            Project project = workflowStore.getProjects().get(projectId);
             if (project == null) {
                 throw new RuntimeException("项目不存在");
             }
             
+            Contract contract = project.getContractId() == null ? null
+                    : workflowStore.getContracts().get(project.getContractId());
+            
             Invoice invoice = new Invoice();
-            invoice.setId(invoiceIdCounter++);
-            invoice.setInvoiceNo("INV" + String.format("%06d", invoice.getId()));
+            invoice.setId(documentNumberGenerator.nextId(SEQ_INVOICE));
+            invoice.setInvoiceNo(DocumentNumberFormatter.format("INV", invoice.getId(), DOCUMENT_NO_WIDTH));
             invoice.setProjectId(projectId);
+            invoice.setCustomerId(contract == null ? null : contract.getCustomerId());
             invoice.setInvoiceType("SALES");
             invoice.setAmount(amount);
             invoice.setReceivedAmount(BigDecimal.ZERO);
-            invoice.setStatus("ISSUED");
-            invoice.setPaymentStatus("UNPAID");
+            invoice.setInvoiceDate(LocalDate.now());
+            stateMachines.invoices().initialize(invoice);
+            stateMachines.invoicePayments().initialize(invoice);
             invoice.setCreatedAt(LocalDateTime.now());
             invoice.setUpdatedAt(LocalDateTime.now());
             
-            invoices.put(invoice.getId(), invoice);
+            workflowStore.getInvoices().insert(invoice);
+            receivableAgingEngine.onInvoiceIssued(invoice);
+            autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.INVOICE, invoice.getId(), null,
+                    amount, null, "开具发票" + invoice.getInvoiceNo()));
             
             log.info("发票生成成功，ID={}", invoice.getId());
             return invoice;
@@ -239,22 +338,11 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("确认收款，发票ID={}，收款金额={}，收款方式={}", invoiceId, paymentAmount, paymentMethod);
         
         try {
-            Invoice invoice = invoices.get(invoiceId);
-            if (invoice == null) {
-                throw new RuntimeException("发票不存在");
-            }
-            
-            BigDecimal newReceivedAmount = invoice.getReceivedAmount().add(paymentAmount);
-            invoice.setReceivedAmount(newReceivedAmount);
-            invoice.setUpdatedAt(LocalDateTime.now());
-            
-            // 更新付款状态
-            if (newReceivedAmount.compareTo(invoice.getAmount()) >= 0) {
-                invoice.setPaymentStatus("PAID");
-                invoice.setStatus("PAID");
-            } else {
-                invoice.setPaymentStatus("PARTIAL");
-            }
+            BankReceiptVO receipt = new BankReceiptVO();
+            receipt.setAmount(paymentAmount);
+            receipt.setInvoiceIds(Collections.singletonList(invoiceId));
+            // 超出未收款的部分留在收款记录上作为预收，不计入发票
+            paymentAllocator.apply(Collections.singletonList(receipt), paymentMethod);
             
             log.info("收款确认成功");
             return true;
@@ -264,6 +352,44 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public PaymentApplicationResultVO applyReceipts(List<BankReceiptVO> receipts, String paymentMethod) {
+        log.info("批量收款核销，收款笔数={}，收款方式={}", receipts.size(), paymentMethod);
+        
+        try {
+            return paymentAllocator.apply(receipts, paymentMethod);
+        } catch (Exception e) {
+            log.error("批量收款核销失败", e);
+            throw new RuntimeException("批量收款核销失败", e);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public PaymentApplicationResultVO applyBankStatement(InputStream statement, String paymentMethod) {
+        log.info("导入银行流水，收款方式={}", paymentMethod);
+        
+        try {
+            List<BankReceiptVO> receipts = BankStatementParser.parse(statement);
+            log.info("银行流水解析完成，收款笔数={}", receipts.size());
+            return paymentAllocator.apply(receipts, paymentMethod);
+        } catch (Exception e) {
+            log.error("导入银行流水失败", e);
+            throw new RuntimeException("导入银行流水失败", e);
+        }
+    }
+
+    @Override
+    public List<Payment> getPayments(Long customerId) {
+        return paymentAllocator.findPayments(customerId);
+    }
+
+    @Override
+    public List<PaymentAllocation> getPaymentAllocations(Long invoiceId) {
+        return paymentAllocator.findAllocations(invoiceId);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> executeSalesToReceiptWorkflow(Long customerId, BigDecimal opportunityAmount, BigDecimal contractAmount) {
@@ -346,14 +472,15 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建采购申请，部门ID={}，物品名称={}，数量={}", request.getDepartmentId(), request.getItemName(), request.getQuantity());
         
         try {
-            request.setId(purchaseRequestIdCounter++);
-            request.setRequestNo("PR" + String.format("%06d", request.getId()));
-            request.setStatus("DRAFT");
-            request.setApprovalStatus("PENDING");
+            request.setId(documentNumberGenerator.nextId(SEQ_PURCHASE_REQUEST));
+            request.setRequestNo(DocumentNumberFormatter.format("PR", request.getId(), DOCUMENT_NO_WIDTH));
+            stateMachines.purchaseRequests().initialize(request);
+            stateMachines.purchaseRequestApprovals().initialize(request);
             request.setCreatedAt(LocalDateTime.now());
             request.setUpdatedAt(LocalDateTime.now());
             
-            purchaseRequests.put(request.getId(), request);
+            workflowStore.getPurchaseRequests().insert(request);
+            approvalRouter.start(BUSINESS_PURCHASE_REQUEST, request.getId(), request.getEstimatedTotalAmount());
             
             log.info("采购申请创建成功，ID={}", request.getId());
             return true;
@@ -369,32 +496,31 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("采购申请审批，申请ID={}，审批人ID={}，结果={}", requestId, approverId, approved);
         
         try {
-            PurchaseRequest request = purchaseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("采购申请不存在");
-            }
-            
-            // 创建审批记录
-            Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
-            approval.setBusinessType("PURCHASE_REQUEST");
-            approval.setBusinessId(requestId);
-            approval.setApproverId(approverId);
-            approval.setApprovalLevel(1);
-            approval.setResult(approved ? "APPROVED" : "REJECTED");
-            approval.setComments(comments);
-            approval.setApprovedAt(LocalDateTime.now());
-            approval.setCreatedAt(LocalDateTime.now());
-            approval.setUpdatedAt(LocalDateTime.now());
-            
-            approvals.put(approval.getId(), approval);
-            
-            // 更新申请状态
-            request.setApprovalStatus(approved ? "APPROVED" : "REJECTED");
-            if (approved) {
-                request.setStatus("APPROVED");
+            try (WriteBehindCache.Handle<PurchaseRequest> handle = workflowStore.getPurchaseRequests().lock(requestId)) {
+                PurchaseRequest request = handle.get();
+                if (request == null) {
+                    throw new RuntimeException("采购申请不存在");
+                }
+                
+                // 先校验状态，状态不允许时不修改审批记录
+                if (!stateMachines.purchaseRequestApprovals().canFire(request,
+                        approved ? ApprovalStatus.Event.APPROVE : ApprovalStatus.Event.REJECT)
+                        || approved && !stateMachines.purchaseRequests().canFire(request, PurchaseRequestStatus.Event.APPROVE)) {
+                    throw new RuntimeException("采购申请当前状态不允许审批：" + request.getStatus() + "/" + request.getApprovalStatus());
+                }
+                ApprovalDecision decision = approvalRouter.decide(BUSINESS_PURCHASE_REQUEST, requestId,
+                        request.getEstimatedTotalAmount(), null, approverId, approved, comments);
+                
+                // 审批流程结束时更新申请状态
+                if (decision == ApprovalDecision.REJECTED) {
+                    stateMachines.purchaseRequestApprovals().fire(request, ApprovalStatus.Event.REJECT);
+                } else if (decision == ApprovalDecision.APPROVED) {
+                    stateMachines.purchaseRequestApprovals().fire(request, ApprovalStatus.Event.APPROVE);
+                    stateMachines.purchaseRequests().fire(request, PurchaseRequestStatus.Event.APPROVE);
+                }
+                request.setUpdatedAt(LocalDateTime.now());
+                log.info("采购申请审批流程状态={}", decision);
             }
-            request.setUpdatedAt(LocalDateTime.now());
             
             log.info("采购申请审批完成，结果={}", approved);
             return true;
@@ -410,14 +536,16 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("选择供应商，申请ID={}，供应商ID={}，投标金额={}", requestId, supplierId, bidAmount);
         
         try {
-            PurchaseRequest request = purchaseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("采购申请不存在");
+            try (WriteBehindCache.Handle<PurchaseRequest> handle = workflowStore.getPurchaseRequests().lock(requestId)) {
+                PurchaseRequest request = handle.get();
+                if (request == null) {
+                    throw new RuntimeException("采购申请不存在");
+                }
+                
+                stateMachines.purchaseRequests().fire(request, PurchaseRequestStatus.Event.PROCESS);
+                request.setUpdatedAt(LocalDateTime.now());
             }
             
-            request.setStatus("PROCESSING");
-            request.setUpdatedAt(LocalDateTime.now());
-            
             log.info("供应商选择完成");
             return true;
         } catch (Exception e) {
@@ -432,14 +560,16 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建收货记录，申请ID={}，收货数量={}，质量状态={}", requestId, receivedQuantity, qualityStatus);
         
         try {
-            PurchaseRequest request = purchaseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("采购申请不存在");
+            try (WriteBehindCache.Handle<PurchaseRequest> handle = workflowStore.getPurchaseRequests().lock(requestId)) {
+                PurchaseRequest request = handle.get();
+                if (request == null) {
+                    throw new RuntimeException("采购申请不存在");
+                }
+                
+                stateMachines.purchaseRequests().fire(request, PurchaseRequestStatus.Event.COMPLETE);
+                request.setUpdatedAt(LocalDateTime.now());
             }
             
-            request.setStatus("COMPLETED");
-            request.setUpdatedAt(LocalDateTime.now());
-            
             log.info("收货记录创建成功");
             return true;
         } catch (Exception e) {
@@ -471,7 +601,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         try {
             // 创建审批记录
             Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
+            approval.setId(documentNumberGenerator.nextId(SEQ_APPROVAL));
             approval.setBusinessType("PAYMENT");
             approval.setBusinessId(invoiceId);
             approval.setApproverId(approverId);
@@ -482,7 +612,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
             approval.setCreatedAt(LocalDateTime.now());
             approval.setUpdatedAt(LocalDateTime.now());
             
-            approvals.put(approval.getId(), approval);
+            workflowStore.getApprovals().insert(approval);
             
             log.info("付款审批完成，结果={}", approved);
             return true;
@@ -567,14 +697,14 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("创建费用报销申请，员工ID={}，费用类型={}，金额={}", request.getEmployeeId(), request.getExpenseType(), request.getAmount());
         
         try {
-            request.setId(expenseRequestIdCounter++);
-            request.setRequestNo("EXP" + String.format("%06d", request.getId()));
-            request.setStatus("DRAFT");
-            request.setApprovalStatus("PENDING");
+            request.setId(documentNumberGenerator.nextId(SEQ_EXPENSE_REQUEST));
+            request.setRequestNo(DocumentNumberFormatter.format("EXP", request.getId(), DOCUMENT_NO_WIDTH));
+            stateMachines.expenseRequests().initialize(request);
+            stateMachines.expenseRequestApprovals().initialize(request);
             request.setCreatedAt(LocalDateTime.now());
             request.setUpdatedAt(LocalDateTime.now());
             
-            expenseRequests.put(request.getId(), request);
+            workflowStore.getExpenseRequests().insert(request);
             
             log.info("费用报销申请创建成功，ID={}", request.getId());
             return true;
@@ -590,14 +720,20 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("上传报销单据，申请ID={}，附件类型={}，附件URL={}", requestId, attachmentType, attachmentUrl);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("费用报销申请不存在");
+            try (WriteBehindCache.Handle<ExpenseRequest> handle = workflowStore.getExpenseRequests().lock(requestId)) {
+                ExpenseRequest request = handle.get();
+                if (request == null) {
+                    throw new RuntimeException("费用报销申请不存在");
+                }
+                
+                // 首次上传单据时提交申请，之后上传只补充附件
+                if (stateMachines.expenseRequests().canFire(request, ExpenseRequestStatus.Event.SUBMIT)) {
+                    stateMachines.expenseRequests().fire(request, ExpenseRequestStatus.Event.SUBMIT);
+                    approvalRouter.start(BUSINESS_EXPENSE_REQUEST, requestId, request.getAmount());
+                }
+                request.setUpdatedAt(LocalDateTime.now());
             }
             
-            request.setStatus("SUBMITTED");
-            request.setUpdatedAt(LocalDateTime.now());
-            
             log.info("报销单据上传成功");
             return true;
         } catch (Exception e) {
@@ -612,33 +748,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("部门经理审批，申请ID={}，经理ID={}，结果={}", requestId, managerId, approved);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("费用报销申请不存在");
-            }
-            
-            // 创建审批记录
-            Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
-            approval.setBusinessType("EXPENSE_REQUEST");
-            approval.setBusinessId(requestId);
-            approval.setApproverId(managerId);
-            approval.setApprovalLevel(1);
-            approval.setResult(approved ? "APPROVED" : "REJECTED");
-            approval.setComments(comments);
-            approval.setApprovedAt(LocalDateTime.now());
-            approval.setCreatedAt(LocalDateTime.now());
-            approval.setUpdatedAt(LocalDateTime.now());
-            
-            approvals.put(approval.getId(), approval);
-            
-            // 更新申请状态
-            if (approved) {
-                request.setStatus("MANAGER_APPROVED");
-            } else {
-                request.setStatus("REJECTED");
-            }
-            request.setUpdatedAt(LocalDateTime.now());
+            decideExpenseRequest(requestId, managerId, 1, ExpenseRequestStatus.Event.MANAGER_APPROVE, approved, comments);
             
             log.info("部门经理审批完成，结果={}", approved);
             return true;
@@ -654,33 +764,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("财务审核，申请ID={}，财务人员ID={}，结果={}", requestId, financeId, approved);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("费用报销申请不存在");
-            }
-            
-            // 创建审批记录
-            Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
-            approval.setBusinessType("EXPENSE_REQUEST");
-            approval.setBusinessId(requestId);
-            approval.setApproverId(financeId);
-            approval.setApprovalLevel(2);
-            approval.setResult(approved ? "APPROVED" : "REJECTED");
-            approval.setComments(comments);
-            approval.setApprovedAt(LocalDateTime.now());
-            approval.setCreatedAt(LocalDateTime.now());
-            approval.setUpdatedAt(LocalDateTime.now());
-            
-            approvals.put(approval.getId(), approval);
-            
-            // 更新申请状态
-            if (approved) {
-                request.setStatus("FINANCE_REVIEWED");
-            } else {
-                request.setStatus("REJECTED");
-            }
-            request.setUpdatedAt(LocalDateTime.now());
+            decideExpenseRequest(requestId, financeId, 2, ExpenseRequestStatus.Event.FINANCE_APPROVE, approved, comments);
             
             log.info("财务审核完成，结果={}", approved);
             return true;
@@ -696,33 +780,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("CEO审批，申请ID={}，CEO ID={}，结果={}", requestId, ceoId, approved);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("费用报销申请不存在");
-            }
-            
-            // 创建审批记录
-            Approval approval = new Approval();
-            approval.setId(approvalIdCounter++);
-            approval.setBusinessType("EXPENSE_REQUEST");
-            approval.setBusinessId(requestId);
-            approval.setApproverId(ceoId);
-            approval.setApprovalLevel(3);
-            approval.setResult(approved ? "APPROVED" : "REJECTED");
-            approval.setComments(comments);
-            approval.setApprovedAt(LocalDateTime.now());
-            approval.setCreatedAt(LocalDateTime.now());
-            approval.setUpdatedAt(LocalDateTime.now());
-            
-            approvals.put(approval.getId(), approval);
-            
-            // 更新申请状态
-            if (approved) {
-                request.setStatus("CEO_APPROVED");
-            } else {
-                request.setStatus("REJECTED");
-            }
-            request.setUpdatedAt(LocalDateTime.now());
+            decideExpenseRequest(requestId, ceoId, 3, ExpenseRequestStatus.Event.CEO_APPROVE, approved, comments);
             
             log.info("CEO审批完成，结果={}", approved);
             return true;
@@ -738,10 +796,12 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("生成会计凭证，申请ID={}", requestId);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
+            ExpenseRequest request = workflowStore.getExpenseRequests().get(requestId);
             if (request == null) {
                 throw new RuntimeException("费用报销申请不存在");
             }
+            autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.EXPENSE, requestId, null,
+                    request.getAmount(), request.getExpenseDate(), "费用报销-" + request.getExpenseType()));
             
             log.info("会计凭证生成成功");
             return true;
@@ -757,14 +817,18 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("执行费用付款，申请ID={}，付款金额={}，付款方式={}", requestId, paymentAmount, paymentMethod);
         
         try {
-            ExpenseRequest request = expenseRequests.get(requestId);
-            if (request == null) {
-                throw new RuntimeException("费用报销申请不存在");
+            try (WriteBehindCache.Handle<ExpenseRequest> handle = workflowStore.getExpenseRequests().lock(requestId)) {
+                ExpenseRequest request = handle.get();
+                if (request == null) {
+                    throw new RuntimeException("费用报销申请不存在");
+                }
+                
+                stateMachines.expenseRequests().fire(request, ExpenseRequestStatus.Event.PAY);
+                request.setUpdatedAt(LocalDateTime.now());
+                autoVoucherQueue.submit(AutoVoucherEvent.of(AutoVoucherSource.EXPENSE_PAYMENT, requestId, null,
+                        paymentAmount, null, "费用付款-" + paymentMethod));
             }
             
-            request.setStatus("PAID");
-            request.setUpdatedAt(LocalDateTime.now());
-            
             log.info("费用付款执行成功");
             return true;
         } catch (Exception e) {
@@ -797,17 +861,26 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
             boolean attachmentUploaded = uploadExpenseAttachment(request.getId(), "INVOICE", "invoice_url");
             result.put("attachmentUploaded", attachmentUploaded);
             
-            // 3. 部门经理审批
-            boolean managerApproved = managerApprove(request.getId(), 2L, true, "同意报销");
-            result.put("managerApproved", managerApproved);
-            
-            // 4. 财务审核
-            boolean financeReviewed = financeReview(request.getId(), 3L, true, "审核通过");
-            result.put("financeReviewed", financeReviewed);
-            
-            // 5. CEO审批（大额费用）
-            boolean ceoApproved = ceoApprove(request.getId(), 4L, true, "同意");
-            result.put("ceoApproved", ceoApproved);
+            // 3~5. 按审批路由逐级审批：部门经理审批、财务审核、CEO审批，金额未达起点的级别（如小额费用的CEO审批）跳过
+            result.put("managerApproved", false);
+            result.put("financeReviewed", false);
+            result.put("ceoApproved", false);
+            Integer level;
+            while ((level = approvalRouter.currentLevel(BUSINESS_EXPENSE_REQUEST, request.getId(), amount)) != null) {
+                switch (level) {
+                    case 1:
+                        result.put("managerApproved", managerApprove(request.getId(), 2L, true, "同意报销"));
+                        break;
+                    case 2:
+                        result.put("financeReviewed", financeReview(request.getId(), 3L, true, "审核通过"));
+                        break;
+                    case 3:
+                        result.put("ceoApproved", ceoApprove(request.getId(), 4L, true, "同意"));
+                        break;
+                    default:
+                        throw new RuntimeException("费用报销流程不支持的审批级别：" + level);
+                }
+            }
             
             // 6. 生成会计凭证
             boolean voucherGenerated = generateAccountingVoucher(request.getId());
@@ -832,14 +905,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询销售机会列表，客户ID={}，状态={}", customerId, status);
         
         try {
-            List<SalesOpportunity> result = new ArrayList<>();
-            for (SalesOpportunity opportunity : salesOpportunities.values()) {
-                if ((customerId == null || opportunity.getCustomerId().equals(customerId)) &&
-                    (status == null || opportunity.getStatus().equals(status))) {
-                    result.add(opportunity);
-                }
-            }
-            return result;
+            return workflowStore.findSalesOpportunities(customerId, status);
         } catch (Exception e) {
             log.error("查询销售机会列表失败", e);
             throw new RuntimeException("查询销售机会列表失败", e);
@@ -851,14 +917,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询合同列表，客户ID={}，状态={}", customerId, status);
         
         try {
-            List<Contract> result = new ArrayList<>();
-            for (Contract contract : contracts.values()) {
-                if ((customerId == null || contract.getCustomerId().equals(customerId)) &&
-                    (status == null || contract.getStatus().equals(status))) {
-                    result.add(contract);
-                }
-            }
-            return result;
+            return workflowStore.findContracts(customerId, status);
         } catch (Exception e) {
             log.error("查询合同列表失败", e);
             throw new RuntimeException("查询合同列表失败", e);
@@ -870,14 +929,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询项目列表，合同ID={}，状态={}", contractId, status);
         
         try {
-            List<Project> result = new ArrayList<>();
-            for (Project project : projects.values()) {
-                if ((contractId == null || project.getContractId().equals(contractId)) &&
-                    (status == null || project.getStatus().equals(status))) {
-                    result.add(project);
-                }
-            }
-            return result;
+            return workflowStore.findProjects(contractId, status);
         } catch (Exception e) {
             log.error("查询项目列表失败", e);
             throw new RuntimeException("查询项目列表失败", e);
@@ -889,14 +941,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询发票列表，项目ID={}，状态={}", projectId, status);
         
         try {
-            List<Invoice> result = new ArrayList<>();
-            for (Invoice invoice : invoices.values()) {
-                if ((projectId == null || invoice.getProjectId().equals(projectId)) &&
-                    (status == null || invoice.getStatus().equals(status))) {
-                    result.add(invoice);
-                }
-            }
-            return result;
+            return workflowStore.findInvoices(projectId, status);
         } catch (Exception e) {
             log.error("查询发票列表失败", e);
             throw new RuntimeException("查询发票列表失败", e);
@@ -908,14 +953,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询采购申请列表，部门ID={}，状态={}", departmentId, status);
         
         try {
-            List<PurchaseRequest> result = new ArrayList<>();
-            for (PurchaseRequest request : purchaseRequests.values()) {
-                if ((departmentId == null || request.getDepartmentId().equals(departmentId)) &&
-                    (status == null || request.getStatus().equals(status))) {
-                    result.add(request);
-                }
-            }
-            return result;
+            return workflowStore.findPurchaseRequests(departmentId, status);
         } catch (Exception e) {
             log.error("查询采购申请列表失败", e);
             throw new RuntimeException("查询采购申请列表失败", e);
@@ -927,14 +965,7 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询费用报销申请列表，员工ID={}，状态={}", employeeId, status);
         
         try {
-            List<ExpenseRequest> result = new ArrayList<>();
-            for (ExpenseRequest request : expenseRequests.values()) {
-                if ((employeeId == null || request.getEmployeeId().equals(employeeId)) &&
-                    (status == null || request.getStatus().equals(status))) {
-                    result.add(request);
-                }
-            }
-            return result;
+            return workflowStore.findExpenseRequests(employeeId, status);
         } catch (Exception e) {
             log.error("查询费用报销申请列表失败", e);
             throw new RuntimeException("查询费用报销申请列表失败", e);
@@ -946,56 +977,74 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
         log.info("查询审批记录，业务类型={}，业务ID={}", businessType, businessId);
         
         try {
-            List<Approval> result = new ArrayList<>();
-            for (Approval approval : approvals.values()) {
-                if ((businessType == null || approval.getBusinessType().equals(businessType)) &&
-                    (businessId == null || approval.getBusinessId().equals(businessId))) {
-                    result.add(approval);
-                }
-            }
-            return result;
+            return workflowStore.findApprovals(businessType, businessId);
         } catch (Exception e) {
             log.error("查询审批记录失败", e);
             throw new RuntimeException("查询审批记录失败", e);
         }
     }
 
+    @Override
+    public List<Approval> getPendingApprovals(Long approverId, int limit) {
+        log.info("查询待审批记录，审批人ID={}，条数={}", approverId, limit);
+        
+        try {
+            return workflowStore.findPendingApprovals(approverId, limit);
+        } catch (Exception e) {
+            log.error("查询待审批记录失败", e);
+            throw new RuntimeException("查询待审批记录失败", e);
+        }
+    }
+
+    @Override
+    public int countPendingApprovals(Long approverId) {
+        return workflowStore.countPendingApprovals(approverId);
+    }
+
+    @Override
+    public ReceivableAgingVO getReceivableAging(Long customerId) {
+        return receivableAgingEngine.getAging(customerId);
+    }
+
+    @Override
+    public List<ReceivableAgingVO> getReceivableAgingByCustomer() {
+        return receivableAgingEngine.getAgingByCustomer();
+    }
+
     @Override
     public Map<String, Object> getWorkflowStatistics() {
         log.info("获取流程统计信息");
         
         try {
             Map<String, Object> statistics = new HashMap<>();
+            Map<String, Object> details = workflowStore.getStatistics();
             
             // 销售机会统计
-            statistics.put("totalOpportunities", salesOpportunities.size());
-            statistics.put("wonOpportunities", salesOpportunities.values().stream()
-                    .filter(o -> "CLOSED_WON".equals(o.getStatus())).count());
+            statistics.put("totalOpportunities", total(details, "salesOpportunities"));
+            statistics.put("wonOpportunities", breakdown(details, "salesOpportunities", "byStatus", "CLOSED_WON"));
             
             // 合同统计
-            statistics.put("totalContracts", contracts.size());
-            statistics.put("approvedContracts", contracts.values().stream()
-                    .filter(c -> "APPROVED".equals(c.getApprovalStatus())).count());
+            statistics.put("totalContracts", total(details, "contracts"));
+            statistics.put("approvedContracts", breakdown(details, "contracts", "byApprovalStatus", "APPROVED"));
             
             // 项目统计
-            statistics.put("totalProjects", projects.size());
-            statistics.put("completedProjects", projects.values().stream()
-                    .filter(p -> "COMPLETED".equals(p.getStatus())).count());
+            statistics.put("totalProjects", total(details, "projects"));
+            statistics.put("completedProjects", breakdown(details, "projects", "byStatus", "COMPLETED"));
             
             // 发票统计
-            statistics.put("totalInvoices", invoices.size());
-            statistics.put("paidInvoices", invoices.values().stream()
-                    .filter(i -> "PAID".equals(i.getPaymentStatus())).count());
+            statistics.put("totalInvoices", total(details, "invoices"));
+            statistics.put("paidInvoices", breakdown(details, "invoices", "byPaymentStatus", "PAID"));
             
             // 采购申请统计
-            statistics.put("totalPurchaseRequests", purchaseRequests.size());
-            statistics.put("approvedPurchaseRequests", purchaseRequests.values().stream()
-                    .filter(p -> "APPROVED".equals(p.getApprovalStatus())).count());
+            statistics.put("totalPurchaseRequests", total(details, "purchaseRequests"));
+            statistics.put("approvedPurchaseRequests", breakdown(details, "purchaseRequests", "byApprovalStatus", "APPROVED"));
             
             // 费用报销统计
-            statistics.put("totalExpenseRequests", expenseRequests.size());
-            statistics.put("paidExpenseRequests", expenseRequests.values().stream()
-                    .filter(e -> "PAID".equals(e.getStatus())).count());
+            statistics.put("totalExpenseRequests", total(details, "expenseRequests"));
+            statistics.put("paidExpenseRequests", breakdown(details, "expenseRequests", "byStatus", "PAID"));
+            
+            // 按状态分布及每日新增
+            statistics.put("details", details);
             
             log.info("流程统计信息获取完成");
             return statistics;
@@ -1004,4 +1053,61 @@ public class BusinessWorkflowServiceImpl implements BusinessWorkflowService {
             throw new RuntimeException("获取流程统计信息失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 费用报销申请的一级审批：第1、2、3级分别对应部门经理、财务、CEO审批
+     * 本级通过时推进申请状态（路由跳过了前面的级别、状态不允许该事件时保持原状态），
+     * 最后一级通过时审批状态转为已通过，此后无论申请停在哪个审批中状态都可付款；任一级拒绝即整体拒绝
+     */
+    private void decideExpenseRequest(Long requestId, Long approverId, int level, ExpenseRequestStatus.Event event,
+                                      boolean approved, String comments) {
+        try (WriteBehindCache.Handle<ExpenseRequest> handle = workflowStore.getExpenseRequests().lock(requestId)) {
+            ExpenseRequest request = handle.get();
+            if (request == null) {
+                throw new RuntimeException("费用报销申请不存在");
+            }
+            
+            // 先校验申请处于审批中（可拒绝的状态），状态不允许时不修改审批记录
+            if (!stateMachines.expenseRequests().canFire(request, ExpenseRequestStatus.Event.REJECT)) {
+                throw new RuntimeException("费用报销申请当前状态不允许该审批：" + request.getStatus());
+            }
+            ApprovalDecision decision = approvalRouter.decide(BUSINESS_EXPENSE_REQUEST, requestId, request.getAmount(),
+                    level, approverId, approved, comments);
+            
+            switch (decision) {
+                case REJECTED:
+                    stateMachines.expenseRequestApprovals().fire(request, ApprovalStatus.Event.REJECT);
+                    stateMachines.expenseRequests().fire(request, ExpenseRequestStatus.Event.REJECT);
+                    break;
+                case LEVEL_APPROVED:
+                    advanceExpenseRequest(request, event);
+                    break;
+                case APPROVED:
+                    stateMachines.expenseRequestApprovals().fire(request, ApprovalStatus.Event.APPROVE);
+                    advanceExpenseRequest(request, event);
+                    break;
+                default:
+                    // 本级尚有其他审批人未审批
+                    break;
+            }
+            request.setUpdatedAt(LocalDateTime.now());
+            log.info("费用报销审批流程状态={}，级别={}", decision, level);
+        }
+    }
+
+    private void advanceExpenseRequest(ExpenseRequest request, ExpenseRequestStatus.Event event) {
+        if (stateMachines.expenseRequests().canFire(request, event)) {
+            stateMachines.expenseRequests().fire(request, event);
+        }
+    }
+
+    private static Object total(Map<String, Object> details, String type) {
+        return ((Map<?, ?>) details.get(type)).get("total");
+    }
+
+    private static int breakdown(Map<String, Object> details, String type, String breakdown, String key) {
+        Map<?, ?> counts = (Map<?, ?>) ((Map<?, ?>) details.get(type)).get(breakdown);
+        Object count = counts.get(key);
+        return count == null ? 0 : (Integer) count;
+    }
+}
\ No newline at end of file
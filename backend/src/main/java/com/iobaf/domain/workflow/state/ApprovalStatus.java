@@ -0,0 +1,42 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 审批状态，合同、采购申请、费用报销申请共用
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum ApprovalStatus {
+
+    /**
+     * 待审批
+     */
+    PENDING,
+
+    /**
+     * 已通过
+     */
+    APPROVED,
+
+    /**
+     * 已拒绝
+     */
+    REJECTED;
+
+    /**
+     * 审批事件
+     */
+    public enum Event {
+
+        /**
+         * 通过
+         */
+        APPROVE,
+
+        /**
+         * 拒绝
+         */
+        REJECT
+    }
+}
\ No newline at end of file
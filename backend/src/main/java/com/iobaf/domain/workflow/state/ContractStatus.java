@@ -0,0 +1,82 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 合同状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum ContractStatus {
+
+    /**
+     * 草稿
+     */
+    DRAFT,
+
+    /**
+     * 待审批
+     */
+    PENDING_APPROVAL,
+
+    /**
+     * 已审批
+     */
+    APPROVED,
+
+    /**
+     * 已签署
+     */
+    SIGNED,
+
+    /**
+     * 执行中
+     */
+    EXECUTING,
+
+    /**
+     * 已完成
+     */
+    COMPLETED,
+
+    /**
+     * 已终止
+     */
+    TERMINATED;
+
+    /**
+     * 合同事件
+     */
+    public enum Event {
+
+        /**
+         * 提交审批
+         */
+        SUBMIT,
+
+        /**
+         * 审批通过
+         */
+        APPROVE,
+
+        /**
+         * 签署
+         */
+        SIGN,
+
+        /**
+         * 开始执行
+         */
+        START,
+
+        /**
+         * 执行完成
+         */
+        COMPLETE,
+
+        /**
+         * 终止
+         */
+        TERMINATE
+    }
+}
\ No newline at end of file
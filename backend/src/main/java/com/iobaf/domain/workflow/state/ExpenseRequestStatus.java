@@ -0,0 +1,82 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 费用报销申请状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum ExpenseRequestStatus {
+
+    /**
+     * 草稿
+     */
+    DRAFT,
+
+    /**
+     * 已提交
+     */
+    SUBMITTED,
+
+    /**
+     * 经理已审批
+     */
+    MANAGER_APPROVED,
+
+    /**
+     * 财务已审核
+     */
+    FINANCE_REVIEWED,
+
+    /**
+     * CEO已审批
+     */
+    CEO_APPROVED,
+
+    /**
+     * 已付款
+     */
+    PAID,
+
+    /**
+     * 已拒绝
+     */
+    REJECTED;
+
+    /**
+     * 费用报销申请事件
+     */
+    public enum Event {
+
+        /**
+         * 上传单据并提交
+         */
+        SUBMIT,
+
+        /**
+         * 部门经理审批通过
+         */
+        MANAGER_APPROVE,
+
+        /**
+         * 财务审核通过
+         */
+        FINANCE_APPROVE,
+
+        /**
+         * CEO审批通过
+         */
+        CEO_APPROVE,
+
+        /**
+         * 任一级审批拒绝
+         */
+        REJECT,
+
+        /**
+         * 付款
+         */
+        PAY
+    }
+}
\ No newline at end of file
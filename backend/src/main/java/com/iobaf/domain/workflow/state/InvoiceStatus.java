@@ -0,0 +1,62 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 发票状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum InvoiceStatus {
+
+    /**
+     * 草稿
+     */
+    DRAFT,
+
+    /**
+     * 已开具
+     */
+    ISSUED,
+
+    /**
+     * 已付款
+     */
+    PAID,
+
+    /**
+     * 已逾期
+     */
+    OVERDUE,
+
+    /**
+     * 已作废
+     */
+    CANCELLED;
+
+    /**
+     * 发票事件
+     */
+    public enum Event {
+
+        /**
+         * 开具
+         */
+        ISSUE,
+
+        /**
+         * 收齐款项
+         */
+        PAY,
+
+        /**
+         * 逾期
+         */
+        MARK_OVERDUE,
+
+        /**
+         * 作废
+         */
+        CANCEL
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 销售机会状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum OpportunityStatus {
+
+    /**
+     * 线索
+     */
+    LEAD,
+
+    /**
+     * 已确认
+     */
+    QUALIFIED,
+
+    /**
+     * 方案中
+     */
+    PROPOSAL,
+
+    /**
+     * 谈判中
+     */
+    NEGOTIATION,
+
+    /**
+     * 已成交
+     */
+    CLOSED_WON,
+
+    /**
+     * 已失败
+     */
+    CLOSED_LOST;
+
+    /**
+     * 销售机会事件
+     */
+    public enum Event {
+
+        /**
+         * 确认线索
+         */
+        QUALIFY,
+
+        /**
+         * 提交方案
+         */
+        PROPOSE,
+
+        /**
+         * 进入谈判
+         */
+        NEGOTIATE,
+
+        /**
+         * 成交
+         */
+        WIN,
+
+        /**
+         * 失败关闭
+         */
+        LOSE
+    }
+}
\ No newline at end of file
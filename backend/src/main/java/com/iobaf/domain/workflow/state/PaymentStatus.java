@@ -0,0 +1,42 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 发票付款状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum PaymentStatus {
+
+    /**
+     * 未付款
+     */
+    UNPAID,
+
+    /**
+     * 部分付款
+     */
+    PARTIAL,
+
+    /**
+     * 已付款
+     */
+    PAID;
+
+    /**
+     * 付款事件
+     */
+    public enum Event {
+
+        /**
+         * 收到部分款项
+         */
+        RECEIVE,
+
+        /**
+         * 款项收齐
+         */
+        SETTLE
+    }
+}
\ No newline at end of file
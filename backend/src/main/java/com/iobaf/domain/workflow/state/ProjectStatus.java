@@ -0,0 +1,77 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 项目状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum ProjectStatus {
+
+    /**
+     * 规划中
+     */
+    PLANNING,
+
+    /**
+     * 执行中
+     */
+    EXECUTING,
+
+    /**
+     * 测试中
+     */
+    TESTING,
+
+    /**
+     * 已完成
+     */
+    COMPLETED,
+
+    /**
+     * 已暂停
+     */
+    SUSPENDED,
+
+    /**
+     * 已取消
+     */
+    CANCELLED;
+
+    /**
+     * 项目事件
+     */
+    public enum Event {
+
+        /**
+         * 开始执行
+         */
+        START,
+
+        /**
+         * 进入测试
+         */
+        TEST,
+
+        /**
+         * 完成
+         */
+        COMPLETE,
+
+        /**
+         * 暂停
+         */
+        SUSPEND,
+
+        /**
+         * 恢复执行
+         */
+        RESUME,
+
+        /**
+         * 取消
+         */
+        CANCEL
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.iobaf.domain.workflow.state;
+
+/**
+ * 采购申请状态
+ * 转换规则见 {@link WorkflowStateMachines}
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+public enum PurchaseRequestStatus {
+
+    /**
+     * 草稿
+     */
+    DRAFT,
+
+    /**
+     * 已提交
+     */
+    SUBMITTED,
+
+    /**
+     * 已审批
+     */
+    APPROVED,
+
+    /**
+     * 已拒绝
+     */
+    REJECTED,
+
+    /**
+     * 处理中
+     */
+    PROCESSING,
+
+    /**
+     * 已完成
+     */
+    COMPLETED;
+
+    /**
+     * 采购申请事件
+     */
+    public enum Event {
+
+        /**
+         * 提交
+         */
+        SUBMIT,
+
+        /**
+         * 审批通过
+         */
+        APPROVE,
+
+        /**
+         * 审批拒绝
+         */
+        REJECT,
+
+        /**
+         * 选定供应商
+         */
+        PROCESS,
+
+        /**
+         * 收货完成
+         */
+        COMPLETE
+    }
+}
\ No newline at end of file
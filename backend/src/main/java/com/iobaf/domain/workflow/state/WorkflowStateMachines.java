@@ -0,0 +1,220 @@
+package com.iobaf.domain.workflow.state;
+
+import com.iobaf.common.statemachine.StateMachine;
+import com.iobaf.domain.workflow.entity.Contract;
+import com.iobaf.domain.workflow.entity.ExpenseRequest;
+import com.iobaf.domain.workflow.entity.Invoice;
+import com.iobaf.domain.workflow.entity.Project;
+import com.iobaf.domain.workflow.entity.PurchaseRequest;
+import com.iobaf.domain.workflow.entity.SalesOpportunity;
+import com.iobaf.domain.workflow.event.WorkflowTransitionEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 业务流程单据状态机
+ * 集中定义各类单据的状态转换表，每次转换发布 {@link WorkflowTransitionEvent}。
+ * 单据状态只能经这里的状态机修改，不在转换表中的转换被拒绝
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Component
+public class WorkflowStateMachines {
+
+    private static final BigDecimal FULL_PROGRESS = BigDecimal.valueOf(100);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final StateMachine<SalesOpportunity, OpportunityStatus, OpportunityStatus.Event> salesOpportunities;
+
+    private final StateMachine<Contract, ContractStatus, ContractStatus.Event> contracts;
+
+    private final StateMachine<Contract, ApprovalStatus, ApprovalStatus.Event> contractApprovals;
+
+    private final StateMachine<Project, ProjectStatus, ProjectStatus.Event> projects;
+
+    private final StateMachine<Invoice, InvoiceStatus, InvoiceStatus.Event> invoices;
+
+    private final StateMachine<Invoice, PaymentStatus, PaymentStatus.Event> invoicePayments;
+
+    private final StateMachine<PurchaseRequest, PurchaseRequestStatus, PurchaseRequestStatus.Event> purchaseRequests;
+
+    private final StateMachine<PurchaseRequest, ApprovalStatus, ApprovalStatus.Event> purchaseRequestApprovals;
+
+    private final StateMachine<ExpenseRequest, ExpenseRequestStatus, ExpenseRequestStatus.Event> expenseRequests;
+
+    private final StateMachine<ExpenseRequest, ApprovalStatus, ApprovalStatus.Event> expenseRequestApprovals;
+
+    public WorkflowStateMachines(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+
+        salesOpportunities = builder("sales-opportunity", OpportunityStatus.class, OpportunityStatus.Event.class,
+                SalesOpportunity::getId, SalesOpportunity::getStatus, SalesOpportunity::setStatus)
+                .initial(OpportunityStatus.LEAD)
+                .permit(OpportunityStatus.LEAD, OpportunityStatus.Event.QUALIFY, OpportunityStatus.QUALIFIED)
+                .permit(OpportunityStatus.QUALIFIED, OpportunityStatus.Event.PROPOSE, OpportunityStatus.PROPOSAL)
+                .permit(OpportunityStatus.PROPOSAL, OpportunityStatus.Event.NEGOTIATE, OpportunityStatus.NEGOTIATION)
+                .permitAll(OpportunityStatus.Event.WIN, OpportunityStatus.CLOSED_WON,
+                        OpportunityStatus.QUALIFIED, OpportunityStatus.PROPOSAL, OpportunityStatus.NEGOTIATION)
+                .permitAll(OpportunityStatus.Event.LOSE, OpportunityStatus.CLOSED_LOST,
+                        OpportunityStatus.LEAD, OpportunityStatus.QUALIFIED, OpportunityStatus.PROPOSAL,
+                        OpportunityStatus.NEGOTIATION)
+                .build();
+
+        contracts = builder("contract", ContractStatus.class, ContractStatus.Event.class,
+                Contract::getId, Contract::getStatus, Contract::setStatus)
+                .initial(ContractStatus.DRAFT)
+                .permit(ContractStatus.DRAFT, ContractStatus.Event.SUBMIT, ContractStatus.PENDING_APPROVAL)
+                .permitAll(ContractStatus.Event.APPROVE, ContractStatus.APPROVED,
+                        ContractStatus.DRAFT, ContractStatus.PENDING_APPROVAL)
+                .permit(ContractStatus.APPROVED, ContractStatus.Event.SIGN, ContractStatus.SIGNED)
+                .permit(ContractStatus.SIGNED, ContractStatus.Event.START, ContractStatus.EXECUTING)
+                .permit(ContractStatus.EXECUTING, ContractStatus.Event.COMPLETE, ContractStatus.COMPLETED)
+                .permitAll(ContractStatus.Event.TERMINATE, ContractStatus.TERMINATED,
+                        ContractStatus.DRAFT, ContractStatus.PENDING_APPROVAL, ContractStatus.APPROVED,
+                        ContractStatus.SIGNED, ContractStatus.EXECUTING)
+                .build();
+        contractApprovals = approvalBuilder("contract.approval",
+                Contract::getId, Contract::getApprovalStatus, Contract::setApprovalStatus).build();
+
+        projects = builder("project", ProjectStatus.class, ProjectStatus.Event.class,
+                Project::getId, Project::getStatus, Project::setStatus)
+                .initial(ProjectStatus.PLANNING)
+                .permit(ProjectStatus.PLANNING, ProjectStatus.Event.START, ProjectStatus.EXECUTING)
+                .permit(ProjectStatus.EXECUTING, ProjectStatus.Event.TEST, ProjectStatus.TESTING)
+                // 进度达到100%才能完成
+                .permitAll(ProjectStatus.Event.COMPLETE, ProjectStatus.COMPLETED,
+                        project -> project.getProgress() != null && project.getProgress().compareTo(FULL_PROGRESS) >= 0,
+                        ProjectStatus.PLANNING, ProjectStatus.EXECUTING, ProjectStatus.TESTING)
+                .permitAll(ProjectStatus.Event.SUSPEND, ProjectStatus.SUSPENDED,
+                        ProjectStatus.PLANNING, ProjectStatus.EXECUTING, ProjectStatus.TESTING)
+                .permit(ProjectStatus.SUSPENDED, ProjectStatus.Event.RESUME, ProjectStatus.EXECUTING)
+                .permitAll(ProjectStatus.Event.CANCEL, ProjectStatus.CANCELLED,
+                        ProjectStatus.PLANNING, ProjectStatus.EXECUTING, ProjectStatus.TESTING, ProjectStatus.SUSPENDED)
+                .build();
+
+        // 系统生成的发票直接处于已开具状态
+        invoices = builder("invoice", InvoiceStatus.class, InvoiceStatus.Event.class,
+                Invoice::getId, Invoice::getStatus, Invoice::setStatus)
+                .initial(InvoiceStatus.ISSUED)
+                .permit(InvoiceStatus.DRAFT, InvoiceStatus.Event.ISSUE, InvoiceStatus.ISSUED)
+                .permitAll(InvoiceStatus.Event.PAY, InvoiceStatus.PAID, InvoiceStatus.ISSUED, InvoiceStatus.OVERDUE)
+                .permit(InvoiceStatus.ISSUED, InvoiceStatus.Event.MARK_OVERDUE, InvoiceStatus.OVERDUE)
+                // 已收款的发票不能作废
+                .permitAll(InvoiceStatus.Event.CANCEL, InvoiceStatus.CANCELLED,
+                        invoice -> invoice.getReceivedAmount() == null || invoice.getReceivedAmount().signum() == 0,
+                        InvoiceStatus.DRAFT, InvoiceStatus.ISSUED)
+                .build();
+        invoicePayments = builder("invoice.payment", PaymentStatus.class, PaymentStatus.Event.class,
+                Invoice::getId, Invoice::getPaymentStatus, Invoice::setPaymentStatus)
+                .initial(PaymentStatus.UNPAID)
+                .permitAll(PaymentStatus.Event.RECEIVE, PaymentStatus.PARTIAL, PaymentStatus.UNPAID, PaymentStatus.PARTIAL)
+                .permitAll(PaymentStatus.Event.SETTLE, PaymentStatus.PAID, PaymentStatus.UNPAID, PaymentStatus.PARTIAL)
+                .build();
+
+        purchaseRequests = builder("purchase-request", PurchaseRequestStatus.class, PurchaseRequestStatus.Event.class,
+                PurchaseRequest::getId, PurchaseRequest::getStatus, PurchaseRequest::setStatus)
+                .initial(PurchaseRequestStatus.DRAFT)
+                .permit(PurchaseRequestStatus.DRAFT, PurchaseRequestStatus.Event.SUBMIT, PurchaseRequestStatus.SUBMITTED)
+                .permitAll(PurchaseRequestStatus.Event.APPROVE, PurchaseRequestStatus.APPROVED,
+                        PurchaseRequestStatus.DRAFT, PurchaseRequestStatus.SUBMITTED)
+                .permitAll(PurchaseRequestStatus.Event.REJECT, PurchaseRequestStatus.REJECTED,
+                        PurchaseRequestStatus.DRAFT, PurchaseRequestStatus.SUBMITTED)
+                .permit(PurchaseRequestStatus.APPROVED, PurchaseRequestStatus.Event.PROCESS, PurchaseRequestStatus.PROCESSING)
+                .permit(PurchaseRequestStatus.PROCESSING, PurchaseRequestStatus.Event.COMPLETE, PurchaseRequestStatus.COMPLETED)
+                .build();
+        purchaseRequestApprovals = approvalBuilder("purchase-request.approval",
+                PurchaseRequest::getId, PurchaseRequest::getApprovalStatus, PurchaseRequest::setApprovalStatus).build();
+
+        StateMachine<ExpenseRequest, ApprovalStatus, ApprovalStatus.Event> expenseApprovals = approvalBuilder(
+                "expense-request.approval",
+                ExpenseRequest::getId, ExpenseRequest::getApprovalStatus, ExpenseRequest::setApprovalStatus).build();
+        expenseRequestApprovals = expenseApprovals;
+        expenseRequests = builder("expense-request", ExpenseRequestStatus.class, ExpenseRequestStatus.Event.class,
+                ExpenseRequest::getId, ExpenseRequest::getStatus, ExpenseRequest::setStatus)
+                .initial(ExpenseRequestStatus.DRAFT)
+                .permit(ExpenseRequestStatus.DRAFT, ExpenseRequestStatus.Event.SUBMIT, ExpenseRequestStatus.SUBMITTED)
+                .permit(ExpenseRequestStatus.SUBMITTED, ExpenseRequestStatus.Event.MANAGER_APPROVE,
+                        ExpenseRequestStatus.MANAGER_APPROVED)
+                .permit(ExpenseRequestStatus.MANAGER_APPROVED, ExpenseRequestStatus.Event.FINANCE_APPROVE,
+                        ExpenseRequestStatus.FINANCE_REVIEWED)
+                .permit(ExpenseRequestStatus.FINANCE_REVIEWED, ExpenseRequestStatus.Event.CEO_APPROVE,
+                        ExpenseRequestStatus.CEO_APPROVED)
+                .permitAll(ExpenseRequestStatus.Event.REJECT, ExpenseRequestStatus.REJECTED,
+                        ExpenseRequestStatus.SUBMITTED, ExpenseRequestStatus.MANAGER_APPROVED,
+                        ExpenseRequestStatus.FINANCE_REVIEWED)
+                // 审批路由可按金额跳过任一级审批，审批流程全部通过后即可付款，不论最后一级是哪一级
+                .permitAll(ExpenseRequestStatus.Event.PAY, ExpenseRequestStatus.PAID,
+                        request -> expenseApprovals.stateOf(request) == ApprovalStatus.APPROVED,
+                        ExpenseRequestStatus.SUBMITTED, ExpenseRequestStatus.MANAGER_APPROVED,
+                        ExpenseRequestStatus.FINANCE_REVIEWED, ExpenseRequestStatus.CEO_APPROVED)
+                .build();
+    }
+
+    public StateMachine<SalesOpportunity, OpportunityStatus, OpportunityStatus.Event> salesOpportunities() {
+        return salesOpportunities;
+    }
+
+    public StateMachine<Contract, ContractStatus, ContractStatus.Event> contracts() {
+        return contracts;
+    }
+
+    public StateMachine<Contract, ApprovalStatus, ApprovalStatus.Event> contractApprovals() {
+        return contractApprovals;
+    }
+
+    public StateMachine<Project, ProjectStatus, ProjectStatus.Event> projects() {
+        return projects;
+    }
+
+    public StateMachine<Invoice, InvoiceStatus, InvoiceStatus.Event> invoices() {
+        return invoices;
+    }
+
+    public StateMachine<Invoice, PaymentStatus, PaymentStatus.Event> invoicePayments() {
+        return invoicePayments;
+    }
+
+    public StateMachine<PurchaseRequest, PurchaseRequestStatus, PurchaseRequestStatus.Event> purchaseRequests() {
+        return purchaseRequests;
+    }
+
+    public StateMachine<PurchaseRequest, ApprovalStatus, ApprovalStatus.Event> purchaseRequestApprovals() {
+        return purchaseRequestApprovals;
+    }
+
+    public StateMachine<ExpenseRequest, ExpenseRequestStatus, ExpenseRequestStatus.Event> expenseRequests() {
+        return expenseRequests;
+    }
+
+    public StateMachine<ExpenseRequest, ApprovalStatus, ApprovalStatus.Event> expenseRequestApprovals() {
+        return expenseRequestApprovals;
+    }
+
+    /**
+     * 单据审批状态：待审批只能通过或拒绝一次
+     */
+    private <T> StateMachine.Builder<T, ApprovalStatus, ApprovalStatus.Event> approvalBuilder(
+            String name, Function<T, Long> idGetter, Function<T, String> stateGetter, BiConsumer<T, String> stateSetter) {
+        return builder(name, ApprovalStatus.class, ApprovalStatus.Event.class, idGetter, stateGetter, stateSetter)
+                .initial(ApprovalStatus.PENDING)
+                .permit(ApprovalStatus.PENDING, ApprovalStatus.Event.APPROVE, ApprovalStatus.APPROVED)
+                .permit(ApprovalStatus.PENDING, ApprovalStatus.Event.REJECT, ApprovalStatus.REJECTED);
+    }
+
+    /**
+     * 创建状态机构建器，并注册发布转换事件的监听器
+     */
+    private <T, S extends Enum<S>, E extends Enum<E>> StateMachine.Builder<T, S, E> builder(
+            String name, Class<S> stateType, Class<E> eventType, Function<T, Long> idGetter,
+            Function<T, String> stateGetter, BiConsumer<T, String> stateSetter) {
+        return StateMachine.<T, S, E>builder(name, stateType, eventType, stateGetter, stateSetter)
+                .listener((entity, from, event, to) -> eventPublisher.publishEvent(new WorkflowTransitionEvent(
+                        name, idGetter.apply(entity), from.name(), event.name(), to.name())));
+    }
+}
\ No newline at end of file
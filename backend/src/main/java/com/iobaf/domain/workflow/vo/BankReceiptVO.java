@@ -0,0 +1,53 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 待核销的一笔收款（银行流水中的一行或一次手工收款）
+ * 指定了发票时按给出的顺序核销到这些发票，否则按发票日期先后核销到该客户的未结清发票
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class BankReceiptVO {
+
+    /**
+     * 银行流水号，已入账的流水号跳过；手工收款可为空
+     */
+    private String bankReference;
+
+    /**
+     * 客户ID，指定发票时可为空（取发票的客户）
+     */
+    private Long customerId;
+
+    /**
+     * 收款金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 收款日期，为空时取当天
+     */
+    private LocalDate paymentDate;
+
+    /**
+     * 指定核销的发票ID
+     */
+    private List<Long> invoiceIds;
+
+    /**
+     * 指定核销的发票编号，与发票ID二选一
+     */
+    private List<String> invoiceNos;
+
+    /**
+     * 备注
+     */
+    private String remarks;
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 费用报销流程批量执行参数
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class ExpenseReimbursementParamVO {
+
+    /**
+     * 员工ID
+     */
+    private Long employeeId;
+
+    /**
+     * 费用类型
+     */
+    private String expenseType;
+
+    /**
+     * 金额
+     */
+    private BigDecimal amount;
+
+    /**
+     * 描述
+     */
+    private String description;
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 收款核销结果
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class PaymentApplicationResultVO {
+
+    /**
+     * 提交的收款笔数
+     */
+    private Integer receiptCount;
+
+    /**
+     * 新入账的收款笔数
+     */
+    private Integer paymentCount;
+
+    /**
+     * 因银行流水号已入账而跳过的笔数
+     */
+    private Integer duplicateCount;
+
+    /**
+     * 生成的核销明细条数
+     */
+    private Integer allocationCount;
+
+    /**
+     * 核销后结清的发票张数
+     */
+    private Integer settledInvoiceCount;
+
+    /**
+     * 新入账收款金额合计
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 已核销金额合计
+     */
+    private BigDecimal allocatedAmount;
+
+    /**
+     * 未核销金额合计，留在收款上作为客户预收
+     */
+    private BigDecimal unallocatedAmount;
+
+    /**
+     * 新入账的收款ID，按提交顺序
+     */
+    private List<Long> paymentIds;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private Long elapsedMillis;
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 采购到付款流程批量执行参数
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class PurchaseToPaymentParamVO {
+
+    /**
+     * 部门ID
+     */
+    private Long departmentId;
+
+    /**
+     * 物品名称
+     */
+    private String itemName;
+
+    /**
+     * 数量
+     */
+    private Integer quantity;
+
+    /**
+     * 预估金额
+     */
+    private BigDecimal estimatedAmount;
+}
\ No newline at end of file
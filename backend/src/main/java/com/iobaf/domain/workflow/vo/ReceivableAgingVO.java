@@ -0,0 +1,67 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 应收账龄
+ * 未收款金额按发票日期起算的天数分为0-30、31-60、61-90、90天以上四段
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class ReceivableAgingVO {
+
+    /**
+     * 客户ID，汇总全部客户时为空；0表示无法确定客户的发票
+     */
+    private Long customerId;
+
+    /**
+     * 账龄计算日期
+     */
+    private LocalDate asOf;
+
+    /**
+     * 0-30天
+     */
+    private BigDecimal days0To30;
+
+    /**
+     * 31-60天
+     */
+    private BigDecimal days31To60;
+
+    /**
+     * 61-90天
+     */
+    private BigDecimal days61To90;
+
+    /**
+     * 90天以上
+     */
+    private BigDecimal over90Days;
+
+    /**
+     * 未收款合计
+     */
+    private BigDecimal totalOutstanding;
+
+    /**
+     * 统计期内开票金额
+     */
+    private BigDecimal periodInvoiced;
+
+    /**
+     * 统计期天数
+     */
+    private Integer periodDays;
+
+    /**
+     * 应收账款周转天数（DSO）= 未收款合计 / 统计期内开票金额 × 统计期天数，统计期内未开票时为空
+     */
+    private BigDecimal dso;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 销售到收款流程批量执行参数
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class SalesToReceiptParamVO {
+
+    /**
+     * 客户ID
+     */
+    private Long customerId;
+
+    /**
+     * 机会金额
+     */
+    private BigDecimal opportunityAmount;
+
+    /**
+     * 合同金额
+     */
+    private BigDecimal contractAmount;
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 批量执行中单个流程的执行结果
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class WorkflowBulkItemVO {
+
+    /**
+     * 在请求列表中的序号，从0开始
+     */
+    private Integer index;
+
+    /**
+     * 是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 流程返回结果，失败时为空
+     */
+    private Map<String, Object> result;
+
+    /**
+     * 失败原因，成功时为空
+     */
+    private String error;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private Double latencyMillis;
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.iobaf.domain.workflow.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 流程批量执行结果视图对象
+ *
+ * @author iobaf
+ * @since 2024-01-01
+ */
+@Data
+public class WorkflowBulkResultVO {
+
+    /**
+     * 流程名称
+     */
+    private String workflow;
+
+    /**
+     * 流程总数
+     */
+    private Integer total;
+
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 失败数量
+     */
+    private Integer failureCount;
+
+    /**
+     * 最大并发数
+     */
+    private Integer concurrency;
+
+    /**
+     * 是否使用虚拟线程执行
+     */
+    private Boolean virtualThreads;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private Long elapsedMillis;
+
+    /**
+     * 吞吐量（每秒完成的流程数）
+     */
+    private Double throughputPerSecond;
+
+    /**
+     * 单个流程最短耗时（毫秒）
+     */
+    private Double minLatencyMillis;
+
+    /**
+     * 单个流程平均耗时（毫秒）
+     */
+    private Double avgLatencyMillis;
+
+    /**
+     * 单个流程耗时中位数（毫秒）
+     */
+    private Double p50LatencyMillis;
+
+    /**
+     * 单个流程耗时95分位（毫秒）
+     */
+    private Double p95LatencyMillis;
+
+    /**
+     * 单个流程耗时99分位（毫秒）
+     */
+    private Double p99LatencyMillis;
+
+    /**
+     * 单个流程最长耗时（毫秒）
+     */
+    private Double maxLatencyMillis;
+
+    /**
+     * 各流程的执行结果，按请求顺序排列
+     */
+    private List<WorkflowBulkItemVO> items;
+}
\ No newline at end of file